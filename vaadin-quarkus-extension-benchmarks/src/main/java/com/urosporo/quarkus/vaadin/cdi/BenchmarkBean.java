@@ -0,0 +1,94 @@
+package com.urosporo.quarkus.vaadin.cdi;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.spi.Contextual;
+import javax.enterprise.context.spi.CreationalContext;
+
+/**
+ * A bean without a container, counting the instances it creates.
+ *
+ * @since 1.1.0
+ */
+public final class BenchmarkBean implements Contextual<Object> {
+
+    /**
+     * A creational context without any dependent instances.
+     */
+    public static final CreationalContext<Object> CREATIONAL_CONTEXT = new CreationalContext<Object>() {
+
+        @Override
+        public void push(final Object incompleteInstance) {
+
+            // nothing to resolve
+        }
+
+        @Override
+        public void release() {
+
+            // nothing to destroy
+        }
+    };
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    /**
+     * @param count
+     *            the number of beans
+     * @return new beans
+     */
+    public static BenchmarkBean[] newBeans(final int count) {
+
+        final BenchmarkBean[] beans = new BenchmarkBean[count];
+        for (int index = 0; index < count; index++) {
+            beans[index] = new BenchmarkBean();
+        }
+        return beans;
+    }
+
+    /**
+     * Throws if any bean created more than one instance.
+     *
+     * @param beans
+     *            the beans of a single storage
+     * @throws IllegalStateException
+     *             if an instance was created twice
+     */
+    public static void checkCreatedOnce(final BenchmarkBean[] beans) {
+
+        for (int index = 0; index < beans.length; index++) {
+            final int created = beans[index].created.get();
+            if (created > 1) {
+                throw new IllegalStateException("The instance of the bean " + index + " was created " + created + " times");
+            }
+        }
+    }
+
+    /**
+     * Indexes the beans as the ones of the scope, replacing the current index.
+     *
+     * @param scope
+     *            the scope of the beans
+     * @param beans
+     *            the beans, in the order of their indices
+     */
+    public static void install(final Class<? extends Annotation> scope, final BenchmarkBean[] beans) {
+
+        BeanIndex.install(Collections.<String, Contextual<?>[]> singletonMap(scope.getName(), beans), new Class<?>[0]);
+    }
+
+    @Override
+    public Object create(final CreationalContext<Object> creationalContext) {
+
+        this.created.incrementAndGet();
+        return new Object();
+    }
+
+    @Override
+    public void destroy(final Object instance, final CreationalContext<Object> creationalContext) {
+
+        // nothing to release
+    }
+}
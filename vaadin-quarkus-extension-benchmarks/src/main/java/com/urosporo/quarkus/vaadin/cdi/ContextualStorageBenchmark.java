@@ -0,0 +1,144 @@
+package com.urosporo.quarkus.vaadin.cdi;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.urosporo.quarkus.vaadin.cdi.annotation.UIScoped;
+
+/**
+ * Contention of the threads resolving the instances of a single {@link ContextualStorage}, like the background threads of a UI in the
+ * concurrent mode.
+ * <p>
+ * {@link #existingInstance(Cursor)} resolves created instances, {@link #existingInstanceLocked(Cursor)} does the same under a lock of the
+ * storage, as a storage guarded by a lock would. The lock-free one is expected to scale with the threads, the locked one not. Compare them with
+ * {@code -t 1} and {@code -t max}.
+ * <p>
+ * {@link #newInstance(Cursor)} lets all the threads walk the empty slots of a new storage in the same order, so they race for each creation. Each
+ * iteration fails if any instance was created twice.
+ *
+ * @since 1.1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ContextualStorageBenchmark {
+
+    private static final int BEANS = 1 << 16;
+
+    private static final int MASK = BEANS - 1;
+
+    /**
+     * The beans indexed for the scope, shared by the storages.
+     */
+    @State(Scope.Benchmark)
+    public static class Beans {
+
+        BenchmarkBean[] beans;
+
+        @Setup(Level.Trial)
+        public void install() {
+
+            this.beans = BenchmarkBean.newBeans(BEANS);
+            BenchmarkBean.install(UIScoped.class, this.beans);
+        }
+    }
+
+    /**
+     * A storage with all the instances created.
+     */
+    @State(Scope.Benchmark)
+    public static class FilledStorage {
+
+        ContextualStorage storage;
+
+        @Setup(Level.Trial)
+        public void fill(final Beans beans) {
+
+            this.storage = new ContextualStorage(null, true, UIScoped.class);
+            for (final BenchmarkBean bean : beans.beans) {
+                this.storage.createContextualInstance(bean, BenchmarkBean.CREATIONAL_CONTEXT);
+            }
+        }
+    }
+
+    /**
+     * A new storage for each iteration, with new beans so their creations are counted per storage.
+     */
+    @State(Scope.Benchmark)
+    public static class EmptyStorage {
+
+        BenchmarkBean[] beans;
+
+        ContextualStorage storage;
+
+        @Setup(Level.Iteration)
+        public void create() {
+
+            this.beans = BenchmarkBean.newBeans(BEANS);
+            BenchmarkBean.install(UIScoped.class, this.beans);
+            this.storage = new ContextualStorage(null, true, UIScoped.class);
+        }
+
+        @TearDown(Level.Iteration)
+        public void check() {
+
+            BenchmarkBean.checkCreatedOnce(this.beans);
+        }
+    }
+
+    /**
+     * The next bean of a thread. All the threads start with the first bean.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+
+            this.next = 0;
+        }
+
+        int next() {
+
+            return this.next++ & MASK;
+        }
+    }
+
+    @Benchmark
+    public Object existingInstance(final Beans beans, final FilledStorage storage, final Cursor cursor) {
+
+        return storage.storage.createContextualInstance(beans.beans[cursor.next()], BenchmarkBean.CREATIONAL_CONTEXT);
+    }
+
+    @Benchmark
+    public Object existingInstanceLocked(final Beans beans, final FilledStorage storage, final Cursor cursor) {
+
+        synchronized (storage.storage) {
+            return storage.storage.createContextualInstance(beans.beans[cursor.next()], BenchmarkBean.CREATIONAL_CONTEXT);
+        }
+    }
+
+    @Benchmark
+    public Object newInstance(final EmptyStorage storage, final Cursor cursor) {
+
+        return storage.storage.createContextualInstance(storage.beans[cursor.next()], BenchmarkBean.CREATIONAL_CONTEXT);
+    }
+}
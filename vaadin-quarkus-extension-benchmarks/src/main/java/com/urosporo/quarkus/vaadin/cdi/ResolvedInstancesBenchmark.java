@@ -0,0 +1,117 @@
+package com.urosporo.quarkus.vaadin.cdi;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.urosporo.quarkus.vaadin.cdi.annotation.VaadinSessionScoped;
+import com.urosporo.quarkus.vaadin.cdi.context.VaadinSessionScopedContext;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * The repeated lookups of {@link VaadinSessionScoped @VaadinSessionScoped} instances within a request, with and without the memo of
+ * {@link ResolvedInstances}, i.e. what a client proxy costs after its first call in a request.
+ * <p>
+ * The memo pays off if {@code memoized=true} is faster than {@code memoized=false}. Run it with {@code -prof gc} as well: a memoized lookup is
+ * expected not to allocate.
+ *
+ * @since 1.1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResolvedInstancesBenchmark {
+
+    private static final int BEANS = 16;
+
+    @Param({ "false", "true" })
+    boolean memoized;
+
+    private final VaadinSessionScopedContext context = new VaadinSessionScopedContext();
+
+    private BenchmarkBean[] beans;
+
+    private VaadinSession session;
+
+    private int next;
+
+    /**
+     * A current session with its storage, all the instances created, locked like by a request thread.
+     */
+    @Setup(Level.Trial)
+    public void createSession() {
+
+        this.beans = BenchmarkBean.newBeans(BEANS);
+        BenchmarkBean.install(VaadinSessionScoped.class, this.beans);
+
+        this.session = new BenchmarkSession();
+        this.session.getLockInstance().lock();
+        this.session.setAttribute(VaadinSessionScopedContext.class.getName(), new ContextualStorage(null, false, VaadinSessionScoped.class));
+        VaadinSession.setCurrent(this.session);
+        for (final BenchmarkBean bean : this.beans) {
+            this.context.get(bean, BenchmarkBean.CREATIONAL_CONTEXT);
+        }
+
+        if (this.memoized) {
+            ResolvedInstances.begin();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeSession() {
+
+        ResolvedInstances.end();
+        VaadinSession.setCurrent(null);
+        // not unlocked by the session, without a service to run the pending access tasks
+        this.session.getLockInstance().unlock();
+        BenchmarkBean.checkCreatedOnce(this.beans);
+    }
+
+    @Benchmark
+    public Object get() {
+
+        return this.context.get(this.beans[this.next++ & BEANS - 1]);
+    }
+
+    @Benchmark
+    public Object getOrCreate() {
+
+        return this.context.get(this.beans[this.next++ & BEANS - 1], BenchmarkBean.CREATIONAL_CONTEXT);
+    }
+
+    /**
+     * A session without a service, with a lock of its own.
+     */
+    private static final class BenchmarkSession extends VaadinSession {
+
+        private final Lock lock = new ReentrantLock();
+
+        private BenchmarkSession() {
+
+            super(null);
+        }
+
+        @Override
+        public Lock getLockInstance() {
+
+            return this.lock;
+        }
+    }
+}
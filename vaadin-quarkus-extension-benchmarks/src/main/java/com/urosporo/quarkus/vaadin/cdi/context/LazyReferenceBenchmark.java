@@ -0,0 +1,181 @@
+package com.urosporo.quarkus.vaadin.cdi.context;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.urosporo.quarkus.vaadin.cdi.BenchmarkBean;
+import com.urosporo.quarkus.vaadin.cdi.ContextualStorage;
+import com.urosporo.quarkus.vaadin.cdi.annotation.UIScoped;
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+
+/**
+ * The throughput of the shared objects read by every call of a client proxy, from all the threads at once.
+ * <p>
+ * {@link #lazyReference(References)} reads a {@link LazyReference}, compared to a lazy reference read under a lock and to one read from a
+ * volatile field. {@link #normalUIContextWrapper(Wrapper, CurrentUI)} resolves an existing instance through a shared
+ * {@link NormalUIContextWrapper}, each thread with its own current UI. The throughput of the lazy reference and the wrapper is expected to grow
+ * with the threads, compare the results of {@code -t 1} and {@code -t max}.
+ *
+ * @since 1.1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class LazyReferenceBenchmark {
+
+    private static final int BEANS = 64;
+
+    /**
+     * The references, resolved once before the measurement.
+     */
+    @State(Scope.Benchmark)
+    public static class References {
+
+        final LazyReference<Object> lazyReference = new LazyReference<>(Object::new);
+
+        final LockedReference<Object> lockedReference = new LockedReference<>(Object::new);
+
+        final VolatileReference<Object> volatileReference = new VolatileReference<>(Object::new);
+
+        @Setup(Level.Trial)
+        public void resolve() {
+
+            this.lazyReference.get();
+            this.lockedReference.get();
+            this.volatileReference.get();
+        }
+    }
+
+    /**
+     * The wrapper shared by all the threads, like the one registered with the container.
+     */
+    @State(Scope.Benchmark)
+    public static class Wrapper {
+
+        final NormalUIContextWrapper wrapper = new NormalUIContextWrapper();
+
+        BenchmarkBean[] beans;
+
+        @Setup(Level.Trial)
+        public void install() {
+
+            this.beans = BenchmarkBean.newBeans(BEANS);
+            BenchmarkBean.install(UIScoped.class, this.beans);
+        }
+    }
+
+    /**
+     * The current UI of a thread with its storage, all the instances created.
+     */
+    @State(Scope.Thread)
+    public static class CurrentUI {
+
+        int next;
+
+        @Setup(Level.Trial)
+        public void createUI(final Wrapper wrapper) {
+
+            final UI ui = new UI();
+            ComponentUtil.setData(ui, ContextualStorage.class, new ContextualStorage(null, false, UIScoped.class));
+            UI.setCurrent(ui);
+            for (final BenchmarkBean bean : wrapper.beans) {
+                wrapper.wrapper.get(bean, BenchmarkBean.CREATIONAL_CONTEXT);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void removeUI() {
+
+            UI.setCurrent(null);
+        }
+
+        int next() {
+
+            return this.next++ & BEANS - 1;
+        }
+    }
+
+    @Benchmark
+    public Object lazyReference(final References references) {
+
+        return references.lazyReference.get();
+    }
+
+    @Benchmark
+    public Object lockedReference(final References references) {
+
+        return references.lockedReference.get();
+    }
+
+    @Benchmark
+    public Object volatileReference(final References references) {
+
+        return references.volatileReference.get();
+    }
+
+    @Benchmark
+    public Object normalUIContextWrapper(final Wrapper wrapper, final CurrentUI ui) {
+
+        return wrapper.wrapper.get(wrapper.beans[ui.next()], BenchmarkBean.CREATIONAL_CONTEXT);
+    }
+
+    private static final class LockedReference<T> {
+
+        private final Supplier<T> supplier;
+
+        private T value;
+
+        private LockedReference(final Supplier<T> supplier) {
+
+            this.supplier = supplier;
+        }
+
+        private synchronized T get() {
+
+            if (this.value == null) {
+                this.value = this.supplier.get();
+            }
+            return this.value;
+        }
+    }
+
+    private static final class VolatileReference<T> {
+
+        private final Supplier<T> supplier;
+
+        private volatile T value;
+
+        private VolatileReference(final Supplier<T> supplier) {
+
+            this.supplier = supplier;
+        }
+
+        private T get() {
+
+            T current = this.value;
+            if (current == null) {
+                current = this.supplier.get();
+                this.value = current;
+            }
+            return current;
+        }
+    }
+}
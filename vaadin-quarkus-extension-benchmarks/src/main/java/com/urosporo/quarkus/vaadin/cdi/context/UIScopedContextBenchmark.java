@@ -0,0 +1,90 @@
+package com.urosporo.quarkus.vaadin.cdi.context;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.urosporo.quarkus.vaadin.cdi.BenchmarkBean;
+import com.urosporo.quarkus.vaadin.cdi.ContextualStorage;
+import com.urosporo.quarkus.vaadin.cdi.annotation.UIScoped;
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+
+/**
+ * The lookup of an existing instance by {@link UIScopedContext}, i.e. the path of every call of a {@code @NormalUIScoped} client proxy.
+ * <p>
+ * Run it with {@code -prof gc}: the path is expected not to allocate, i.e. a {@code gc.alloc.rate.norm} of about 0 B/op for each benchmark.
+ *
+ * @since 1.1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UIScopedContextBenchmark {
+
+    private static final int BEANS = 64;
+
+    private final UIScopedContext context = new UIScopedContext();
+
+    private BenchmarkBean[] beans;
+
+    private UI ui;
+
+    private int next;
+
+    /**
+     * A current UI with its storage, all the instances created. The UI isn't attached to a session, like a UI whose session lock is held.
+     */
+    @Setup(Level.Trial)
+    public void createUI() {
+
+        this.beans = BenchmarkBean.newBeans(BEANS);
+        BenchmarkBean.install(UIScoped.class, this.beans);
+
+        this.ui = new UI();
+        final ContextualStorage storage = new ContextualStorage(null, false, UIScoped.class);
+        ComponentUtil.setData(this.ui, ContextualStorage.class, storage);
+        UI.setCurrent(this.ui);
+        for (final BenchmarkBean bean : this.beans) {
+            this.context.get(bean, BenchmarkBean.CREATIONAL_CONTEXT);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void checkCreatedOnce() {
+
+        UI.setCurrent(null);
+        BenchmarkBean.checkCreatedOnce(this.beans);
+    }
+
+    @Benchmark
+    public Object get() {
+
+        return this.context.get(nextBean());
+    }
+
+    @Benchmark
+    public Object getOrCreate() {
+
+        return this.context.get(nextBean(), BenchmarkBean.CREATIONAL_CONTEXT);
+    }
+
+    private BenchmarkBean nextBean() {
+
+        return this.beans[this.next++ & BEANS - 1];
+    }
+}
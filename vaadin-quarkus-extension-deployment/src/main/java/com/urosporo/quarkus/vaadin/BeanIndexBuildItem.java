@@ -0,0 +1,40 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.List;
+import java.util.Map;
+
+import io.quarkus.builder.item.SimpleBuildItem;
+
+/**
+ * The beans of the Vaadin scopes, indexed in the validation phase and recorded once the bean container is built.
+ *
+ * @since 1.1.0
+ */
+public final class BeanIndexBuildItem extends SimpleBuildItem {
+
+    private final Map<String, List<String>> beanIdentifiers;
+
+    private final Map<String, String> routeScopeOwners;
+
+    public BeanIndexBuildItem(final Map<String, List<String>> beanIdentifiers, final Map<String, String> routeScopeOwners) {
+
+        this.beanIdentifiers = beanIdentifiers;
+        this.routeScopeOwners = routeScopeOwners;
+    }
+
+    /**
+     * @return the bean identifiers in index order, keyed by the scope of their context
+     */
+    public Map<String, List<String>> getBeanIdentifiers() {
+
+        return this.beanIdentifiers;
+    }
+
+    /**
+     * @return the owner class names of the route scoped beans, keyed by the bean identifier
+     */
+    public Map<String, String> getRouteScopeOwners() {
+
+        return this.routeScopeOwners;
+    }
+}
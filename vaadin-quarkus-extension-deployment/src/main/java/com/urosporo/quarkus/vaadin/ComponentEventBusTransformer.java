@@ -0,0 +1,94 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.function.BiFunction;
+
+import org.jboss.logging.Logger;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import io.quarkus.gizmo.Gizmo;
+
+/**
+ * Patches {@code ComponentEventBus#createEventForDomEvent} to try the generated {@link DomEventFactories} first:
+ *
+ * <pre>
+ * ComponentEvent&lt;?&gt; event = DomEventFactories.create(eventType, domEvent, source);
+ * if (event != null) {
+ *     return event;
+ * }
+ * // original, reflective code
+ * </pre>
+ *
+ * @since 1.1.0
+ */
+class ComponentEventBusTransformer implements BiFunction<String, ClassVisitor, ClassVisitor> {
+
+    private static final Logger LOGGER = Logger.getLogger(ComponentEventBusTransformer.class);
+
+    static final String COMPONENT_EVENT_BUS = "com.vaadin.flow.component.ComponentEventBus";
+
+    private static final String METHOD_NAME = "createEventForDomEvent";
+
+    private static final String COMPONENT_EVENT = "com/vaadin/flow/component/ComponentEvent";
+
+    private static final String METHOD_DESCRIPTOR = "(Ljava/lang/Class;Lcom/vaadin/flow/dom/DomEvent;Lcom/vaadin/flow/component/Component;)L"
+            + COMPONENT_EVENT
+            + ";";
+
+    private static final String FACTORIES = DomEventFactories.class.getName().replace('.', '/');
+
+    @Override
+    public ClassVisitor apply(final String className, final ClassVisitor outputClassVisitor) {
+
+        return new ClassVisitor(Gizmo.ASM_API_VERSION, outputClassVisitor) {
+
+            private boolean transformed;
+
+            @Override
+            public MethodVisitor visitMethod(final int access, final String name, final String descriptor, final String signature,
+                    final String[] exceptions) {
+
+                final MethodVisitor methodVisitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+                if (!METHOD_NAME.equals(name) || !METHOD_DESCRIPTOR.equals(descriptor)) {
+                    return methodVisitor;
+                }
+                this.transformed = true;
+
+                final int firstParameter = (access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+
+                return new MethodVisitor(Gizmo.ASM_API_VERSION, methodVisitor) {
+
+                    @Override
+                    public void visitCode() {
+
+                        super.visitCode();
+
+                        final Label fallback = new Label();
+
+                        visitVarInsn(Opcodes.ALOAD, firstParameter);
+                        visitVarInsn(Opcodes.ALOAD, firstParameter + 1);
+                        visitVarInsn(Opcodes.ALOAD, firstParameter + 2);
+                        visitMethodInsn(Opcodes.INVOKESTATIC, FACTORIES, "create", METHOD_DESCRIPTOR, false);
+                        visitInsn(Opcodes.DUP);
+                        visitJumpInsn(Opcodes.IFNULL, fallback);
+                        visitInsn(Opcodes.ARETURN);
+                        visitLabel(fallback);
+                        visitFrame(Opcodes.F_SAME1, 0, null, 1, new Object[] { COMPONENT_EVENT });
+                        visitInsn(Opcodes.POP);
+                    }
+                };
+            }
+
+            @Override
+            public void visitEnd() {
+
+                if (!this.transformed) {
+                    LOGGER.warn(METHOD_NAME + METHOD_DESCRIPTOR + " not found in " + className + ", DOM events are created by reflection.");
+                }
+                super.visitEnd();
+            }
+        };
+    }
+}
@@ -0,0 +1,122 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.IndexView;
+import org.jboss.jandex.MethodInfo;
+import org.jboss.logging.Logger;
+
+import io.quarkus.gizmo.ClassCreator;
+import io.quarkus.gizmo.ClassOutput;
+import io.quarkus.gizmo.MethodCreator;
+import io.quarkus.gizmo.MethodDescriptor;
+import io.quarkus.gizmo.ResultHandle;
+
+/**
+ * Generates a {@link Supplier} per instantiable {@code Component} subclass of the index, calling its public no-args constructor directly, and a
+ * {@link ComponentFactories.Registrar} which registers all of them.
+ * <p>
+ * Only the components of the application and the ones Flow instantiates by itself, e.g. route targets, layouts and {@code @Id} types, get a
+ * factory. The other components of the Vaadin jars are created by the application with {@code new}, so their factories would only load classes
+ * at startup. The components without a factory are still instantiated by reflection.
+ *
+ * @since 1.1.0
+ */
+class ComponentFactoryGenerator {
+
+    private static final Logger LOGGER = Logger.getLogger(ComponentFactoryGenerator.class);
+
+    static final String REGISTRAR_CLASS_NAME = "com.urosporo.quarkus.vaadin.ComponentFactories$$Registrar";
+
+    private static final String FACTORY_SUFFIX = "$$VaadinFactory";
+
+    private final IndexView index;
+
+    private final Set<String> eligibleClasses;
+
+    private final ClassOutput classOutput;
+
+    /**
+     * @param index
+     *            the combined index
+     * @param eligibleClasses
+     *            the names of the component classes to generate a factory for, if instantiable
+     * @param classOutput
+     *            the output of the generated classes
+     */
+    ComponentFactoryGenerator(final IndexView index, final Set<String> eligibleClasses, final ClassOutput classOutput) {
+
+        this.index = index;
+        this.eligibleClasses = eligibleClasses;
+        this.classOutput = classOutput;
+    }
+
+    /**
+     * @return the number of generated factories
+     */
+    int generate() {
+
+        final List<ClassInfo> components = new ArrayList<>();
+        for (final ClassInfo component : this.index.getAllKnownSubclasses(ReflectiveSurfaceBuilder.COMPONENT)) {
+            if (this.eligibleClasses.contains(component.name().toString()) && isInstantiable(component)) {
+                components.add(component);
+            }
+        }
+
+        for (final ClassInfo component : components) {
+            generateFactory(component);
+        }
+
+        try (ClassCreator registrar = ClassCreator.builder().classOutput(this.classOutput).className(REGISTRAR_CLASS_NAME)
+                .interfaces(ComponentFactories.Registrar.class).build()) {
+
+            final MethodCreator register = registrar.getMethodCreator("register", void.class, ComponentFactories.class);
+            final ResultHandle factories = register.getMethodParam(0);
+            final MethodDescriptor registerFactory = MethodDescriptor.ofMethod(ComponentFactories.class, "register", void.class, Class.class,
+                    Supplier.class);
+
+            for (final ClassInfo component : components) {
+                final String componentName = component.name().toString();
+                register.invokeVirtualMethod(registerFactory, factories, register.loadClass(componentName),
+                        register.newInstance(MethodDescriptor.ofConstructor(componentName + FACTORY_SUFFIX)));
+            }
+            register.returnValue(null);
+        }
+
+        return components.size();
+    }
+
+    private void generateFactory(final ClassInfo component) {
+
+        final String componentName = component.name().toString();
+
+        LOGGER.debug("Generate factory for " + componentName);
+
+        try (ClassCreator factory = ClassCreator.builder().classOutput(this.classOutput).className(componentName + FACTORY_SUFFIX)
+                .interfaces(Supplier.class).build()) {
+
+            final MethodCreator get = factory.getMethodCreator("get", Object.class);
+            get.returnValue(get.newInstance(MethodDescriptor.ofConstructor(componentName)));
+        }
+    }
+
+    private static boolean isInstantiable(final ClassInfo component) {
+
+        final int flags = component.flags();
+        if (!Modifier.isPublic(flags) || Modifier.isAbstract(flags) || Modifier.isInterface(flags)) {
+            return false;
+        }
+        if (component.nestingType() == ClassInfo.NestingType.ANONYMOUS || component.nestingType() == ClassInfo.NestingType.LOCAL) {
+            return false;
+        }
+
+        // non static inner classes don't have a no-args constructor
+        final MethodInfo constructor = component.method("<init>");
+        return constructor != null && Modifier.isPublic(constructor.flags());
+    }
+}
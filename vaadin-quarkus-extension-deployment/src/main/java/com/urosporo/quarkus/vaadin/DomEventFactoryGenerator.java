@@ -0,0 +1,248 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.AnnotationTarget;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.IndexView;
+import org.jboss.jandex.MethodInfo;
+import org.jboss.jandex.PrimitiveType;
+import org.jboss.jandex.Type;
+import org.jboss.logging.Logger;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentEvent;
+
+import elemental.json.JsonObject;
+import io.quarkus.gizmo.ClassCreator;
+import io.quarkus.gizmo.ClassOutput;
+import io.quarkus.gizmo.MethodCreator;
+import io.quarkus.gizmo.MethodDescriptor;
+import io.quarkus.gizmo.ResultHandle;
+
+/**
+ * Generates a {@link DomEventFactory} per {@code @DomEvent} class of the index and a {@link DomEventFactories.Registrar} which registers all of
+ * them.
+ * <p>
+ * The factories call the {@code @EventData} constructor directly and decode every event data expression the same way
+ * {@code ComponentEventBus} does it. Events with event data types {@code JsonCodec} can't decode, or without an accessible constructor, are
+ * skipped and keep using the reflective path.
+ *
+ * @since 1.1.0
+ */
+class DomEventFactoryGenerator {
+
+    private static final Logger LOGGER = Logger.getLogger(DomEventFactoryGenerator.class);
+
+    static final String REGISTRAR_CLASS_NAME = "com.urosporo.quarkus.vaadin.DomEventFactories$$Registrar";
+
+    private static final String FACTORY_SUFFIX = "$$DomEventFactory";
+
+    private static final DotName EVENT_DATA = DotName.createSimple("com.vaadin.flow.component.EventData");
+
+    private static final Set<DotName> DECODABLE_TYPES = new HashSet<>(Arrays.asList(DotName.createSimple(String.class.getName()),
+            DotName.createSimple(Boolean.class.getName()), DotName.createSimple(Integer.class.getName()),
+            DotName.createSimple(Double.class.getName())));
+
+    private static final String ELEMENTAL_JSON_PACKAGE = "elemental.json.";
+
+    private final IndexView index;
+
+    private final ClassOutput classOutput;
+
+    DomEventFactoryGenerator(final IndexView index, final ClassOutput classOutput) {
+
+        this.index = index;
+        this.classOutput = classOutput;
+    }
+
+    /**
+     * @return the number of generated factories
+     */
+    int generate() {
+
+        final List<ClassInfo> events = new ArrayList<>();
+
+        for (final AnnotationInstance domEvent : this.index.getAnnotations(ReflectiveSurfaceBuilder.DOM_EVENT)) {
+            if (domEvent.target().kind() != AnnotationTarget.Kind.CLASS) {
+                continue;
+            }
+            final ClassInfo event = domEvent.target().asClass();
+            final MethodInfo constructor = findEventConstructor(event);
+            if (constructor == null) {
+                LOGGER.debug("No factory generated for " + event.name() + ", it keeps using the reflective event construction.");
+                continue;
+            }
+            generateFactory(event, constructor);
+            events.add(event);
+        }
+
+        try (ClassCreator registrar = ClassCreator.builder().classOutput(this.classOutput).className(REGISTRAR_CLASS_NAME)
+                .interfaces(DomEventFactories.Registrar.class).build()) {
+
+            final MethodCreator register = registrar.getMethodCreator("register", void.class, DomEventFactories.class);
+            final ResultHandle factories = register.getMethodParam(0);
+            final MethodDescriptor registerFactory = MethodDescriptor.ofMethod(DomEventFactories.class, "register", void.class, Class.class,
+                    DomEventFactory.class);
+
+            for (final ClassInfo event : events) {
+                final String eventName = event.name().toString();
+                register.invokeVirtualMethod(registerFactory, factories, register.loadClass(eventName),
+                        register.newInstance(MethodDescriptor.ofConstructor(eventName + FACTORY_SUFFIX)));
+            }
+            register.returnValue(null);
+        }
+
+        return events.size();
+    }
+
+    private void generateFactory(final ClassInfo event, final MethodInfo constructor) {
+
+        final String eventName = event.name().toString();
+
+        LOGGER.debug("Generate factory for " + eventName);
+
+        try (ClassCreator factory = ClassCreator.builder().classOutput(this.classOutput).className(eventName + FACTORY_SUFFIX)
+                .interfaces(DomEventFactory.class).build()) {
+
+            final MethodCreator create = factory.getMethodCreator("create", ComponentEvent.class, Component.class, JsonObject.class);
+            final ResultHandle eventData = create.getMethodParam(1);
+
+            final List<Type> parameters = constructor.parameters();
+            final Object[] parameterTypes = new Object[parameters.size()];
+            final ResultHandle[] arguments = new ResultHandle[parameters.size()];
+
+            parameterTypes[0] = parameters.get(0).name().toString();
+            arguments[0] = create.checkCast(create.getMethodParam(0), parameters.get(0).name().toString());
+            parameterTypes[1] = boolean.class;
+            // created out of a DOM event, thus always from client
+            arguments[1] = create.load(true);
+
+            for (int position = 2; position < parameters.size(); position++) {
+                final Type parameter = parameters.get(position);
+                final ResultHandle expression = create.load(getEventDataExpression(constructor, position));
+
+                if (parameter.kind() == Type.Kind.PRIMITIVE) {
+                    final PrimitiveType.Primitive primitive = parameter.asPrimitiveType().primitive();
+                    parameterTypes[position] = primitiveClass(primitive);
+                    arguments[position] = create.invokeStaticMethod(MethodDescriptor.ofMethod(DomEventFactories.class,
+                            "decodeAs" + primitiveDecoderSuffix(primitive), primitiveClass(primitive), JsonObject.class, String.class), eventData,
+                            expression);
+                } else {
+                    final String typeName = parameter.name().toString();
+                    parameterTypes[position] = typeName;
+                    final ResultHandle value = create.invokeStaticMethod(
+                            MethodDescriptor.ofMethod(DomEventFactories.class, "decode", Object.class, JsonObject.class, String.class, Class.class),
+                            eventData, expression, create.loadClass(typeName));
+                    arguments[position] = create.checkCast(value, typeName);
+                }
+            }
+
+            create.returnValue(create.newInstance(MethodDescriptor.ofConstructor(eventName, parameterTypes), arguments));
+        }
+    }
+
+    /**
+     * Same rules as {@code ComponentEventBusUtil#getEventConstructor}: the constructor takes the source component, the fromClient flag and
+     * only {@code @EventData} parameters.
+     */
+    private MethodInfo findEventConstructor(final ClassInfo event) {
+
+        if (!Modifier.isPublic(event.flags()) || Modifier.isAbstract(event.flags())) {
+            return null;
+        }
+
+        MethodInfo eventConstructor = null;
+        for (final MethodInfo constructor : event.methods()) {
+            if (!"<init>".equals(constructor.name()) || !isEventConstructor(constructor)) {
+                continue;
+            }
+            if (eventConstructor != null) {
+                // ambiguous, let Flow report it
+                return null;
+            }
+            eventConstructor = constructor;
+        }
+
+        if (eventConstructor == null || !Modifier.isPublic(eventConstructor.flags())) {
+            return null;
+        }
+        for (int position = 2; position < eventConstructor.parameters().size(); position++) {
+            if (!isDecodable(eventConstructor.parameters().get(position))) {
+                return null;
+            }
+        }
+        return eventConstructor;
+    }
+
+    private static boolean isEventConstructor(final MethodInfo constructor) {
+
+        final List<Type> parameters = constructor.parameters();
+        // the source might be a type variable, its name is the erasure used in the constructor descriptor
+        if (parameters.size() < 2 || parameters.get(0).kind() == Type.Kind.PRIMITIVE || parameters.get(0).kind() == Type.Kind.ARRAY
+                || parameters.get(1).kind() != Type.Kind.PRIMITIVE
+                || parameters.get(1).asPrimitiveType().primitive() != PrimitiveType.Primitive.BOOLEAN) {
+            return false;
+        }
+        for (int position = 2; position < parameters.size(); position++) {
+            if (getEventDataExpression(constructor, position) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getEventDataExpression(final MethodInfo constructor, final int position) {
+
+        for (final AnnotationInstance annotation : constructor.annotations()) {
+            if (EVENT_DATA.equals(annotation.name())
+                    && annotation.target().kind() == AnnotationTarget.Kind.METHOD_PARAMETER
+                    && annotation.target().asMethodParameter().position() == position) {
+                return annotation.value().asString();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isDecodable(final Type type) {
+
+        if (type.kind() == Type.Kind.PRIMITIVE) {
+            return primitiveDecoderSuffix(type.asPrimitiveType().primitive()) != null;
+        }
+        return type.kind() == Type.Kind.CLASS
+                && (DECODABLE_TYPES.contains(type.name()) || type.name().toString().startsWith(ELEMENTAL_JSON_PACKAGE));
+    }
+
+    private static String primitiveDecoderSuffix(final PrimitiveType.Primitive primitive) {
+
+        switch (primitive) {
+        case BOOLEAN:
+            return "Boolean";
+        case INT:
+            return "Int";
+        case DOUBLE:
+            return "Double";
+        default:
+            return null;
+        }
+    }
+
+    private static Class<?> primitiveClass(final PrimitiveType.Primitive primitive) {
+
+        switch (primitive) {
+        case BOOLEAN:
+            return boolean.class;
+        case INT:
+            return int.class;
+        default:
+            return double.class;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.Map;
+import java.util.Set;
+
+import io.quarkus.builder.item.SimpleBuildItem;
+
+/**
+ * The per-class instantiation decisions of the components, made in the validation phase and recorded once the bean container is built.
+ *
+ * @since 1.1.0
+ */
+public final class InstantiationTableBuildItem extends SimpleBuildItem {
+
+    private final Map<String, String> beanIdentifiers;
+
+    private final Set<String> plainClasses;
+
+    public InstantiationTableBuildItem(final Map<String, String> beanIdentifiers, final Set<String> plainClasses) {
+
+        this.beanIdentifiers = beanIdentifiers;
+        this.plainClasses = plainClasses;
+    }
+
+    /**
+     * @return the identifier of the single bean a class resolves to, keyed by the class name
+     */
+    public Map<String, String> getBeanIdentifiers() {
+
+        return this.beanIdentifiers;
+    }
+
+    /**
+     * @return the names of the classes which aren't CDI beans
+     */
+    public Set<String> getPlainClasses() {
+
+        return this.plainClasses;
+    }
+}
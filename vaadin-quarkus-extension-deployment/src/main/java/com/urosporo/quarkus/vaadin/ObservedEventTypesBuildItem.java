@@ -0,0 +1,33 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.Set;
+
+import io.quarkus.builder.item.SimpleBuildItem;
+
+/**
+ * The event types observed by the beans, collected in the validation phase and recorded once the bean container is built.
+ *
+ * @since 1.1.0
+ */
+public final class ObservedEventTypesBuildItem extends SimpleBuildItem {
+
+    private final Set<String> eventTypes;
+
+    private final Set<String> asyncEventTypes;
+
+    public ObservedEventTypesBuildItem(final Set<String> eventTypes, final Set<String> asyncEventTypes) {
+
+        this.eventTypes = eventTypes;
+        this.asyncEventTypes = asyncEventTypes;
+    }
+
+    public Set<String> getEventTypes() {
+
+        return this.eventTypes;
+    }
+
+    public Set<String> getAsyncEventTypes() {
+
+        return this.asyncEventTypes;
+    }
+}
@@ -0,0 +1,190 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.AnnotationTarget;
+import org.jboss.jandex.AnnotationValue;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.FieldInfo;
+import org.jboss.jandex.IndexView;
+import org.jboss.jandex.MethodInfo;
+import org.jboss.jandex.Type;
+import org.jboss.logging.Logger;
+
+/**
+ * Computes the members Vaadin Flow accesses reflectively out of the Jandex index.
+ * <p>
+ * Components are only registered when Flow instantiates them itself: navigation targets, their (parent) layouts, error views, themes and the
+ * components injected by {@code @Id} into templates. Methods are only registered when they are invoked by the client ({@code @ClientCallable},
+ * {@code @EventHandler}) and {@code @DomEvent} classes only need their constructors, which carry the {@code @EventData} parameters.
+ *
+ * @since 1.1.0
+ */
+class ReflectiveSurfaceBuilder {
+
+    private static final Logger LOGGER = Logger.getLogger(ReflectiveSurfaceBuilder.class);
+
+    static final DotName COMPONENT = DotName.createSimple("com.vaadin.flow.component.Component");
+    static final DotName DOM_EVENT = DotName.createSimple("com.vaadin.flow.component.DomEvent");
+    static final DotName CLIENT_CALLABLE = DotName.createSimple("com.vaadin.flow.component.ClientCallable");
+    static final DotName EVENT_HANDLER = DotName.createSimple("com.vaadin.flow.component.polymertemplate.EventHandler");
+    static final DotName TEMPLATE_ID = DotName.createSimple("com.vaadin.flow.component.template.Id");
+    static final DotName POLYMER_TEMPLATE_ID = DotName.createSimple("com.vaadin.flow.component.polymertemplate.Id");
+    static final DotName HAS_ERROR_PARAMETER = DotName.createSimple("com.vaadin.flow.router.HasErrorParameter");
+    static final DotName THEME = DotName.createSimple("com.vaadin.flow.theme.Theme");
+
+    private final IndexView index;
+
+    private final Set<String> instantiatedClasses = new LinkedHashSet<>();
+    private final Set<String> eventClasses = new LinkedHashSet<>();
+    private final List<MethodInfo> invokedMethods = new ArrayList<>();
+    private final List<FieldInfo> injectedFields = new ArrayList<>();
+
+    ReflectiveSurfaceBuilder(final IndexView index) {
+
+        this.index = index;
+    }
+
+    ReflectiveSurfaceBuilder build() {
+
+        final Deque<DotName> queue = new ArrayDeque<>(collectRoots());
+        final Set<DotName> visited = new LinkedHashSet<>();
+
+        while (!queue.isEmpty()) {
+            final DotName className = queue.poll();
+            if (!visited.add(className)) {
+                continue;
+            }
+
+            final ClassInfo classInfo = this.index.getClassByName(className);
+            if (classInfo == null) {
+                // not indexed, but Flow still has to be able to instantiate it
+                this.instantiatedClasses.add(className.toString());
+                continue;
+            }
+            if (!Modifier.isAbstract(classInfo.flags()) && !Modifier.isInterface(classInfo.flags())) {
+                this.instantiatedClasses.add(className.toString());
+            }
+
+            // @Id injected sub components might be declared on any superclass of the template
+            for (ClassInfo current = classInfo; current != null; current = superClass(current)) {
+                for (final FieldInfo field : current.fields()) {
+                    if (field.hasAnnotation(TEMPLATE_ID) || field.hasAnnotation(POLYMER_TEMPLATE_ID)) {
+                        this.injectedFields.add(field);
+                        queue.add(field.type().name());
+                    }
+                }
+            }
+        }
+
+        for (final DotName annotation : new DotName[] { CLIENT_CALLABLE, EVENT_HANDLER }) {
+            for (final AnnotationInstance instance : this.index.getAnnotations(annotation)) {
+                if (instance.target().kind() == AnnotationTarget.Kind.METHOD) {
+                    this.invokedMethods.add(instance.target().asMethod());
+                }
+            }
+        }
+
+        for (final AnnotationInstance domEvent : this.index.getAnnotations(DOM_EVENT)) {
+            if (domEvent.target().kind() == AnnotationTarget.Kind.CLASS) {
+                this.eventClasses.add(domEvent.target().asClass().name().toString());
+            }
+        }
+
+        LOGGER.debug("Reflective surface: "
+                + this.instantiatedClasses.size()
+                + " components, "
+                + this.eventClasses.size()
+                + " events, "
+                + this.invokedMethods.size()
+                + " methods and "
+                + this.injectedFields.size()
+                + " fields.");
+
+        return this;
+    }
+
+    /**
+     * @return the classes Flow instantiates, only their constructors are needed.
+     */
+    Set<String> getInstantiatedClasses() {
+
+        return this.instantiatedClasses;
+    }
+
+    /**
+     * @return the {@code @DomEvent} classes, only their constructors are needed.
+     */
+    Set<String> getEventClasses() {
+
+        return this.eventClasses;
+    }
+
+    List<MethodInfo> getInvokedMethods() {
+
+        return this.invokedMethods;
+    }
+
+    List<FieldInfo> getInjectedFields() {
+
+        return this.injectedFields;
+    }
+
+    private Set<DotName> collectRoots() {
+
+        final Set<DotName> roots = new LinkedHashSet<>();
+
+        for (final DotName annotation : new DotName[] { RouteTableBuilder.ROUTE_ANNOTATION, RouteTableBuilder.ROUTE_ALIAS_ANNOTATION }) {
+            for (final AnnotationInstance instance : this.index.getAnnotations(annotation)) {
+                addRouteTarget(instance, roots);
+            }
+        }
+        for (final AnnotationInstance container : this.index.getAnnotations(RouteTableBuilder.ROUTE_ALIAS_CONTAINER_ANNOTATION)) {
+            for (final AnnotationInstance routeAlias : container.value().asNestedArray()) {
+                addClassValue(routeAlias.value("layout"), roots);
+            }
+        }
+        for (final AnnotationInstance parentLayout : this.index.getAnnotations(RouteTableBuilder.PARENT_LAYOUT_ANNOTATION)) {
+            addClassValue(parentLayout.value(), roots);
+        }
+        for (final AnnotationInstance theme : this.index.getAnnotations(THEME)) {
+            addClassValue(theme.value(), roots);
+        }
+        for (final ClassInfo errorView : this.index.getAllKnownImplementors(HAS_ERROR_PARAMETER)) {
+            roots.add(errorView.name());
+        }
+        return roots;
+    }
+
+    private static void addRouteTarget(final AnnotationInstance route, final Set<DotName> roots) {
+
+        if (route.target().kind() == AnnotationTarget.Kind.CLASS) {
+            roots.add(route.target().asClass().name());
+            addClassValue(route.value("layout"), roots);
+        }
+    }
+
+    private static void addClassValue(final AnnotationValue value, final Set<DotName> roots) {
+
+        if (value != null && value.kind() == AnnotationValue.Kind.CLASS && value.asClass().kind() == Type.Kind.CLASS) {
+            roots.add(value.asClass().name());
+        }
+    }
+
+    private ClassInfo superClass(final ClassInfo classInfo) {
+
+        final DotName superName = classInfo.superName();
+        if (superName == null || COMPONENT.equals(superName)) {
+            return null;
+        }
+        return this.index.getClassByName(superName);
+    }
+}
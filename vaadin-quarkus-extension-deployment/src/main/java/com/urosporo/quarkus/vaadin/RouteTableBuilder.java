@@ -0,0 +1,302 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.AnnotationTarget;
+import org.jboss.jandex.AnnotationValue;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.IndexView;
+import org.jboss.logging.Logger;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.router.ParentLayout;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.router.RouteAlias;
+import com.vaadin.flow.router.RoutePrefix;
+
+/**
+ * Resolves the Vaadin route table out of the Jandex index the same way {@code RouteUtil} does it at runtime using reflection.
+ *
+ * @since 1.1.0
+ */
+class RouteTableBuilder {
+
+    private static final Logger LOGGER = Logger.getLogger(RouteTableBuilder.class);
+
+    static final DotName ROUTE_ANNOTATION = DotName.createSimple(Route.class.getName());
+    static final DotName ROUTE_ALIAS_ANNOTATION = DotName.createSimple(RouteAlias.class.getName());
+    static final DotName ROUTE_ALIAS_CONTAINER_ANNOTATION = DotName.createSimple(RouteAlias.Container.class.getName());
+    static final DotName PARENT_LAYOUT_ANNOTATION = DotName.createSimple(ParentLayout.class.getName());
+    static final DotName ROUTE_PREFIX_ANNOTATION = DotName.createSimple(RoutePrefix.class.getName());
+
+    private static final DotName UI_CLASS = DotName.createSimple(UI.class.getName());
+
+    private static final DotName OBJECT_CLASS = DotName.createSimple(Object.class.getName());
+
+    private final IndexView index;
+
+    RouteTableBuilder(final IndexView index) {
+
+        this.index = index;
+    }
+
+    /**
+     * @return the resolved routes and route aliases of all {@link Route @Route} annotated classes of the index.
+     */
+    List<RouteDefinition> build() {
+
+        final List<RouteDefinition> routeTable = new ArrayList<>();
+        final Set<DotName> navigationTargets = new LinkedHashSet<>();
+
+        for (final AnnotationInstance route : this.index.getAnnotations(ROUTE_ANNOTATION)) {
+            if (route.target().kind() == AnnotationTarget.Kind.CLASS) {
+                navigationTargets.add(route.target().asClass().name());
+            }
+        }
+
+        for (final DotName navigationTarget : navigationTargets) {
+
+            final ClassInfo component = this.index.getClassByName(navigationTarget);
+            final AnnotationInstance route = component.classAnnotation(ROUTE_ANNOTATION);
+            final List<AnnotationInstance> routeAliases = getRouteAliases(component);
+
+            final String routePath = getRoutePath(component, route);
+            routeTable.add(resolve(component, routePath, route, routePath, routeAliases));
+
+            for (final AnnotationInstance routeAlias : routeAliases) {
+                routeTable.add(resolve(component, getRouteAliasPath(component, routeAlias), route, routePath, routeAliases));
+            }
+        }
+        return routeTable;
+    }
+
+    private RouteDefinition resolve(final ClassInfo component, final String path, final AnnotationInstance route, final String routePath,
+            final List<AnnotationInstance> routeAliases) {
+
+        final RouteDefinition definition = new RouteDefinition(path, component.name().toString(),
+                getParentLayouts(component, path, route, routePath, routeAliases));
+        LOGGER.debug("Resolved " + definition);
+        return definition;
+    }
+
+    /**
+     * Same as {@code RouteUtil.getParentLayouts}: the layouts of the route if the path is the one of the route, else the ones of the first
+     * route alias with the path.
+     */
+    private List<String> getParentLayouts(final ClassInfo component, final String path, final AnnotationInstance route, final String routePath,
+            final List<AnnotationInstance> routeAliases) {
+
+        final List<String> parentLayouts = new ArrayList<>();
+        if (path.equals(routePath) && !UI_CLASS.equals(layoutValue(route))) {
+            collectParentLayouts(layoutValue(route), parentLayouts);
+        } else {
+            for (final AnnotationInstance routeAlias : routeAliases) {
+                if (path.equals(getRouteAliasPath(component, routeAlias)) && !UI_CLASS.equals(layoutValue(routeAlias))) {
+                    collectParentLayouts(layoutValue(routeAlias), parentLayouts);
+                    break;
+                }
+            }
+        }
+        return parentLayouts;
+    }
+
+    private String getRoutePath(final ClassInfo component, final AnnotationInstance route) {
+
+        final String routeName = resolveRouteName(component, route);
+        if (booleanValue(route, "absolute")) {
+            return routeName;
+        }
+        return getRoutePrefixes(component.name(), layoutValue(route), routeName);
+    }
+
+    private String getRouteAliasPath(final ClassInfo component, final AnnotationInstance routeAlias) {
+
+        final String value = stringValue(routeAlias, "value", "");
+        if (booleanValue(routeAlias, "absolute")) {
+            return value;
+        }
+        return getRoutePrefixes(component.name(), layoutValue(routeAlias), value);
+    }
+
+    private String getRoutePrefixes(final DotName component, final DotName layout, final String value) {
+
+        final List<String> prefixes = getParentRoutePrefixes(component, layout);
+        Collections.reverse(prefixes);
+        if (!value.isEmpty()) {
+            prefixes.add(value);
+        }
+        return String.join("/", prefixes);
+    }
+
+    /**
+     * Same as {@code RouteUtil.getParentRoutePrefixes}: the prefix of the class, then the ones of the given layout, or else of the parent
+     * layout of the class, up to an absolute prefix. Only the {@link RoutePrefix @RoutePrefix} of the layouts is taken into account, even an
+     * empty one.
+     *
+     * @param layout
+     *            the layout of the route, <code>null</code> for the layouts themselves
+     */
+    private List<String> getParentRoutePrefixes(final DotName component, final DotName layout) {
+
+        final List<String> prefixes = new ArrayList<>();
+
+        final ClassInfo componentInfo = this.index.getClassByName(component);
+        if (componentInfo == null) {
+            LOGGER.debug("Class " + component + " isn't part of the index, its route prefix is ignored.");
+            return prefixes;
+        }
+
+        final AnnotationInstance routePrefix = getInheritedAnnotation(componentInfo, ROUTE_PREFIX_ANNOTATION);
+        if (routePrefix != null) {
+            prefixes.add(stringValue(routePrefix, "value", ""));
+            if (booleanValue(routePrefix, "absolute")) {
+                return prefixes;
+            }
+        }
+
+        if (layout != null && !UI_CLASS.equals(layout)) {
+            prefixes.addAll(getParentRoutePrefixes(layout, null));
+        } else {
+            final DotName parentLayout = getParentLayout(component);
+            if (parentLayout != null) {
+                prefixes.addAll(getParentRoutePrefixes(parentLayout, null));
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * Adds the layout and its parent layouts, from the innermost to the outermost one.
+     */
+    private void collectParentLayouts(final DotName layout, final List<String> parentLayouts) {
+
+        if (!parentLayouts.contains(layout.toString())) {
+            parentLayouts.add(layout.toString());
+            final DotName parentLayout = getParentLayout(layout);
+            if (parentLayout != null) {
+                collectParentLayouts(parentLayout, parentLayouts);
+            }
+        }
+    }
+
+    private DotName getParentLayout(final DotName layout) {
+
+        final ClassInfo layoutInfo = this.index.getClassByName(layout);
+        if (layoutInfo == null) {
+            return null;
+        }
+        final AnnotationInstance parentLayout = getInheritedAnnotation(layoutInfo, PARENT_LAYOUT_ANNOTATION);
+        return parentLayout == null ? null : parentLayout.value().asClass().name();
+    }
+
+    /**
+     * Looks up an annotation like {@code AnnotationReader.getAnnotationFor} does, i.e. on the class or else on its nearest superclass declaring
+     * it, or else on one of the interfaces of the class.
+     */
+    private AnnotationInstance getInheritedAnnotation(final ClassInfo classInfo, final DotName annotation) {
+
+        for (ClassInfo current = classInfo; current != null; current = getSuperclass(current)) {
+            final AnnotationInstance instance = current.classAnnotation(annotation);
+            if (instance != null) {
+                return instance;
+            }
+        }
+        for (final DotName interfaceName : classInfo.interfaceNames()) {
+            final ClassInfo interfaceInfo = this.index.getClassByName(interfaceName);
+            final AnnotationInstance instance = interfaceInfo == null ? null : interfaceInfo.classAnnotation(annotation);
+            if (instance != null) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up the route aliases like {@code AnnotationReader.getAnnotationsFor} does: the ones of the superclasses and interfaces first, then
+     * the ones of the class, which are the inherited ones if it doesn't declare any.
+     */
+    private List<AnnotationInstance> getRouteAliases(final ClassInfo component) {
+
+        final List<AnnotationInstance> routeAliases = new ArrayList<>();
+        if (component == null || OBJECT_CLASS.equals(component.name())) {
+            return routeAliases;
+        }
+
+        routeAliases.addAll(getRouteAliases(getSuperclass(component)));
+        for (final DotName interfaceName : component.interfaceNames()) {
+            routeAliases.addAll(getRouteAliases(this.index.getClassByName(interfaceName)));
+        }
+
+        List<AnnotationInstance> declaredRouteAliases = getDeclaredRouteAliases(component);
+        for (ClassInfo current = getSuperclass(component); declaredRouteAliases.isEmpty() && current != null; current = getSuperclass(current)) {
+            declaredRouteAliases = getDeclaredRouteAliases(current);
+        }
+        routeAliases.addAll(declaredRouteAliases);
+        return routeAliases;
+    }
+
+    private static List<AnnotationInstance> getDeclaredRouteAliases(final ClassInfo component) {
+
+        final List<AnnotationInstance> routeAliases = new ArrayList<>();
+
+        final AnnotationInstance routeAlias = component.classAnnotation(ROUTE_ALIAS_ANNOTATION);
+        if (routeAlias != null) {
+            routeAliases.add(routeAlias);
+        }
+
+        final AnnotationInstance container = component.classAnnotation(ROUTE_ALIAS_CONTAINER_ANNOTATION);
+        if (container != null) {
+            Collections.addAll(routeAliases, container.value().asNestedArray());
+        }
+        return routeAliases;
+    }
+
+    private ClassInfo getSuperclass(final ClassInfo classInfo) {
+
+        return classInfo.superName() == null || OBJECT_CLASS.equals(classInfo.superName()) ? null : this.index.getClassByName(classInfo.superName());
+    }
+
+    private static String resolveRouteName(final ClassInfo component, final AnnotationInstance route) {
+
+        final String value = stringValue(route, "value", Route.NAMING_CONVENTION);
+        if (!Route.NAMING_CONVENTION.equals(value)) {
+            return value;
+        }
+
+        final String simpleName = component.name().withoutPackagePrefix().substring(component.name().withoutPackagePrefix().lastIndexOf('$') + 1);
+        if ("MainView".equals(simpleName) || "Main".equals(simpleName)) {
+            return "";
+        }
+        if (simpleName.endsWith("View")) {
+            return simpleName.substring(0, simpleName.length() - 4).toLowerCase();
+        }
+        return simpleName.toLowerCase();
+    }
+
+    /**
+     * @return the layout of the route or route alias, {@link UI} by default
+     */
+    private static DotName layoutValue(final AnnotationInstance route) {
+
+        final AnnotationValue layout = route.value("layout");
+        return layout == null ? UI_CLASS : layout.asClass().name();
+    }
+
+    private static String stringValue(final AnnotationInstance annotation, final String name, final String defaultValue) {
+
+        final AnnotationValue value = annotation.value(name);
+        return value == null ? defaultValue : value.asString();
+    }
+
+    private static boolean booleanValue(final AnnotationInstance annotation, final String name) {
+
+        final AnnotationValue value = annotation.value(name);
+        return value != null && value.asBoolean();
+    }
+}
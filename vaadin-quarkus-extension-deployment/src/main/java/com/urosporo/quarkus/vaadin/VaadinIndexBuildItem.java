@@ -0,0 +1,28 @@
+package com.urosporo.quarkus.vaadin;
+
+import org.jboss.jandex.IndexView;
+
+import io.quarkus.builder.item.SimpleBuildItem;
+
+/**
+ * The combined index of the application along with the classes of the Vaadin Flow jars.
+ * <p>
+ * The Vaadin jars are indexed apart from the combined index, so they don't become bean archives: only the build steps of the extension see
+ * their components and {@code @DomEvent} classes.
+ *
+ * @since 1.1.0
+ */
+public final class VaadinIndexBuildItem extends SimpleBuildItem {
+
+    private final IndexView index;
+
+    public VaadinIndexBuildItem(final IndexView index) {
+
+        this.index = index;
+    }
+
+    public IndexView getIndex() {
+
+        return this.index;
+    }
+}
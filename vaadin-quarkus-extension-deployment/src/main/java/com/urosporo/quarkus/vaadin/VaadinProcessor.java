@@ -1,20 +1,39 @@
 package com.urosporo.quarkus.vaadin;
 
+import static io.quarkus.deployment.annotations.ExecutionTime.RUNTIME_INIT;
 import static io.quarkus.deployment.annotations.ExecutionTime.STATIC_INIT;
 
-import java.util.Collection;
-import java.util.function.Consumer;
-import java.util.function.Function;
-
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.atmosphere.container.Servlet30CometSupport;
+import org.atmosphere.cpr.ApplicationConfig;
 import org.jboss.jandex.AnnotationInstance;
-import org.jboss.jandex.AnnotationTarget;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.CompositeIndex;
 import org.jboss.jandex.DotName;
 import org.jboss.jandex.IndexView;
+import org.jboss.jandex.Indexer;
+import org.jboss.jandex.Type;
 import org.jboss.logging.Logger;
 
 import com.urosporo.quarkus.vaadin.cdi.QuarkusVaadinServlet;
 import com.urosporo.quarkus.vaadin.cdi.annotation.NormalRouteScoped;
 import com.urosporo.quarkus.vaadin.cdi.annotation.NormalUIScoped;
+import com.urosporo.quarkus.vaadin.cdi.annotation.RouteScopeOwner;
 import com.urosporo.quarkus.vaadin.cdi.annotation.RouteScoped;
 import com.urosporo.quarkus.vaadin.cdi.annotation.UIScoped;
 import com.urosporo.quarkus.vaadin.cdi.annotation.VaadinServiceScoped;
@@ -25,7 +44,6 @@ import com.urosporo.quarkus.vaadin.cdi.context.RouteScopedContext;
 import com.urosporo.quarkus.vaadin.cdi.context.UIScopedContext;
 import com.urosporo.quarkus.vaadin.cdi.context.VaadinServiceScopedContext;
 import com.urosporo.quarkus.vaadin.cdi.context.VaadinSessionScopedContext;
-import com.vaadin.flow.router.Route;
 
 import io.quarkus.arc.deployment.AdditionalBeanBuildItem;
 import io.quarkus.arc.deployment.BeanArchiveIndexBuildItem;
@@ -33,13 +51,33 @@ import io.quarkus.arc.deployment.BeanContainerBuildItem;
 import io.quarkus.arc.deployment.BeanDefiningAnnotationBuildItem;
 import io.quarkus.arc.deployment.BeanDeploymentValidatorBuildItem;
 import io.quarkus.arc.deployment.ContextRegistrarBuildItem;
+import io.quarkus.arc.deployment.ValidationPhaseBuildItem;
+import io.quarkus.arc.processor.BeanInfo;
+import io.quarkus.arc.processor.BuildExtension;
 import io.quarkus.arc.processor.ContextRegistrar;
+import io.quarkus.arc.processor.ObserverInfo;
+import io.quarkus.bootstrap.model.AppArtifact;
+import io.quarkus.bootstrap.model.AppDependency;
+import io.quarkus.deployment.GeneratedClassGizmoAdaptor;
 import io.quarkus.deployment.annotations.BuildProducer;
 import io.quarkus.deployment.annotations.BuildStep;
 import io.quarkus.deployment.annotations.Record;
+import io.quarkus.deployment.builditem.ApplicationArchivesBuildItem;
+import io.quarkus.deployment.builditem.BytecodeTransformerBuildItem;
+import io.quarkus.deployment.builditem.CombinedIndexBuildItem;
 import io.quarkus.deployment.builditem.FeatureBuildItem;
+import io.quarkus.deployment.builditem.GeneratedClassBuildItem;
+import io.quarkus.deployment.builditem.ShutdownContextBuildItem;
+import io.quarkus.deployment.builditem.nativeimage.NativeImageResourceBundleBuildItem;
 import io.quarkus.deployment.builditem.nativeimage.ReflectiveClassBuildItem;
+import io.quarkus.deployment.builditem.nativeimage.ReflectiveFieldBuildItem;
+import io.quarkus.deployment.builditem.nativeimage.ReflectiveMethodBuildItem;
+import io.quarkus.deployment.pkg.builditem.CurateOutcomeBuildItem;
+import io.quarkus.deployment.recording.RecorderContext;
+import io.quarkus.runtime.RuntimeValue;
 import io.quarkus.undertow.deployment.ServletBuildItem;
+import io.quarkus.undertow.deployment.ServletInitParamBuildItem;
+import io.quarkus.vertx.http.deployment.FilterBuildItem;
 
 /**
  *
@@ -51,7 +89,11 @@ public class VaadinProcessor {
 
     private static final Logger LOGGER = Logger.getLogger(VaadinProcessor.class);
 
-    private static final DotName ROUTE_ANNOTATION = DotName.createSimple(Route.class.getName());
+    private static final String VAADIN_GROUP_ID = "com.vaadin";
+
+    private static final int VERTX_PUSH_FILTER_PRIORITY = 10;
+
+    private static final DotName ROUTE_SCOPE_OWNER = DotName.createSimple(RouteScopeOwner.class.getName());
 
     @BuildStep
     public void build(final BuildProducer<AdditionalBeanBuildItem> additionalBeanProducer,
@@ -125,28 +167,419 @@ public class VaadinProcessor {
     @BuildStep
     @Record(STATIC_INIT)
     void scanForRoutes(final BeanArchiveIndexBuildItem beanArchiveIndex, final BeanContainerBuildItem beanContainer,
-            final BuildProducer<ReflectiveClassBuildItem> routeAnnotatedClassesProducer, final QuarkusVaadinRecorder recorder) {
+            final QuarkusVaadinRecorder recorder) {
 
         LOGGER.info("Scan for @Routes");
 
-        scanForReflectiveBeans(beanArchiveIndex, routeAnnotatedClassesProducer, ROUTE_ANNOTATION, this::buildReflectiveClassBuildItem,
-                target -> recorder.registerRoute(beanContainer.getValue(), target.toString()));
+        final List<RouteDefinition> routeTable = new RouteTableBuilder(beanArchiveIndex.getIndex()).build();
+
+        LOGGER.info("Resolved " + routeTable.size() + " routes and route aliases.");
+
+        recorder.registerRoutes(beanContainer.getValue(), routeTable);
+    }
+
+    @BuildStep
+    @Record(STATIC_INIT)
+    @SuppressWarnings("unchecked")
+    void generateComponentFactories(final VaadinIndexBuildItem vaadinIndex, final ApplicationArchivesBuildItem applicationArchives,
+            final BeanContainerBuildItem beanContainer, final BuildProducer<GeneratedClassBuildItem> generatedClassProducer,
+            final RecorderContext recorderContext, final QuarkusVaadinRecorder recorder) {
+
+        LOGGER.info("Generate component factories");
+
+        // the components of the application, and the ones of the Vaadin jars Flow instantiates by itself; the hierarchy of the application
+        // components goes through the Vaadin jars, so it's only known to the Vaadin index
+        final Set<String> eligibleClasses = new HashSet<>(
+                new ReflectiveSurfaceBuilder(vaadinIndex.getIndex()).build().getInstantiatedClasses());
+        final IndexView applicationIndex = applicationArchives.getRootArchive().getIndex();
+        for (final ClassInfo component : vaadinIndex.getIndex().getAllKnownSubclasses(ReflectiveSurfaceBuilder.COMPONENT)) {
+            if (applicationIndex.getClassByName(component.name()) != null) {
+                eligibleClasses.add(component.name().toString());
+            }
+        }
+
+        final int generatedFactories = new ComponentFactoryGenerator(vaadinIndex.getIndex(), eligibleClasses,
+                new GeneratedClassGizmoAdaptor(generatedClassProducer, true)).generate();
+
+        LOGGER.info("Generated " + generatedFactories + " component factories.");
+
+        recorder.registerComponentFactories(beanContainer.getValue(),
+                (RuntimeValue) recorderContext.newInstance(ComponentFactoryGenerator.REGISTRAR_CLASS_NAME));
+    }
+
+    @BuildStep
+    void registerI18NProvider(final VaadinConfig config, final BuildProducer<AdditionalBeanBuildItem> additionalBeanProducer,
+            final BuildProducer<NativeImageResourceBundleBuildItem> resourceBundleProducer) {
+
+        if (!config.i18n.enabled) {
+            return;
+        }
+
+        LOGGER.info("Register ResourceBundleI18NProvider for bundle " + config.i18n.bundleName);
+
+        additionalBeanProducer.produce(AdditionalBeanBuildItem.builder().addBeanClass(ResourceBundleI18NProvider.class)
+                .setDefaultScope(DotName.createSimple(VaadinServiceScoped.class.getName())).setUnremovable().build());
+        resourceBundleProducer.produce(new NativeImageResourceBundleBuildItem(config.i18n.bundleName));
+    }
+
+    @BuildStep
+    @Record(STATIC_INIT)
+    void configureI18NProvider(final VaadinConfig config, final BeanContainerBuildItem beanContainer, final QuarkusVaadinRecorder recorder) {
+
+        recorder.registerI18n(beanContainer.getValue(), config.i18n.bundleName, config.i18n.locales.orElse(Collections.emptyList()));
+    }
+
+    @BuildStep
+    @Record(STATIC_INIT)
+    void configureRouteScope(final VaadinConfig config, final BeanContainerBuildItem beanContainer, final QuarkusVaadinRecorder recorder) {
+
+        LOGGER.info("Configure route scope: keep the beans of " + config.routeScope.keepInactive + " inactive owners");
+
+        recorder.registerRouteScope(beanContainer.getValue(), config.routeScope.keepInactive);
+    }
+
+    @BuildStep
+    @Record(STATIC_INIT)
+    void configureConcurrentStorages(final VaadinConfig config, final QuarkusVaadinRecorder recorder) {
+
+        if (!config.concurrentStorages) {
+            return;
+        }
+
+        LOGGER.info("Resolve the UI, route and session scoped beans without the session lock");
+
+        recorder.registerConcurrentStorages(true);
+    }
+
+    @BuildStep
+    @Record(RUNTIME_INIT)
+    void startContextTeardown(final VaadinConfig config, final BeanContainerBuildItem beanContainer, final ShutdownContextBuildItem shutdownContext,
+            final QuarkusVaadinRecorder recorder) {
+
+        if (!config.teardown.async) {
+            return;
+        }
+
+        LOGGER.info("Destroy the beans of torn down contexts asynchronously");
+
+        recorder.startContextTeardown(shutdownContext, config.teardown.parallelism, config.teardown.batchSize, config.teardown.queueCapacity,
+                config.teardown.destroyTimeout.toMillis(), config.teardown.shutdownTimeout.toMillis());
+    }
+
+    @BuildStep
+    @Record(RUNTIME_INIT)
+    void startMemorySampler(final VaadinConfig config, final BeanContainerBuildItem beanContainer, final ShutdownContextBuildItem shutdownContext,
+            final QuarkusVaadinRecorder recorder) {
+
+        if (!config.memoryAccounting.enabled) {
+            return;
+        }
+
+        LOGGER.info("Sample the memory of the scoped beans of " + config.memoryAccounting.sampleRate * 100 + "% of the requests");
+
+        recorder.startMemorySampler(shutdownContext, config.memoryAccounting.sampleRate, config.memoryAccounting.maxObjects,
+                config.memoryAccounting.timeBudget.toMillis());
+    }
+
+    @BuildStep
+    @Record(RUNTIME_INIT)
+    void startPushCoalescing(final VaadinConfig config, final BeanContainerBuildItem beanContainer, final ShutdownContextBuildItem shutdownContext,
+            final QuarkusVaadinRecorder recorder) {
+
+        if (!config.pushCoalescing.enabled) {
+            return;
+        }
+
+        LOGGER.info("Coalesce the automatic pushes within " + config.pushCoalescing.window.toMillis() + " ms");
+
+        recorder.startPushCoalescing(shutdownContext, config.pushCoalescing.window.toMillis(), config.pushCoalescing.maxDeferredPushes,
+                config.pushCoalescing.maxMessageBytes);
+    }
+
+    @BuildStep
+    @Record(RUNTIME_INIT)
+    void startVertxPushTransport(final VaadinConfig config, final BeanContainerBuildItem beanContainer,
+            final ShutdownContextBuildItem shutdownContext, final QuarkusVaadinRecorder recorder, final BuildProducer<FilterBuildItem> filterProducer) {
+
+        if (config.push.transport != PushTransport.VERTX_WEBSOCKET) {
+            return;
+        }
+
+        LOGGER.info("Serve the WebSocket push connections on Vert.x");
+
+        // the filters run ahead of the Undertow route, this one after the authentication and authorization of the HTTP server
+        filterProducer.produce(new FilterBuildItem(recorder.startVertxPushTransport(shutdownContext, config.push.heartbeatInterval.toMillis()),
+                VERTX_PUSH_FILTER_PRIORITY));
+    }
+
+    @BuildStep
+    void configureAtmosphereTransports(final VaadinConfig config, final BuildProducer<ServletInitParamBuildItem> initParamProducer) {
+
+        if (config.push.transport != PushTransport.VERTX_WEBSOCKET) {
+            return;
+        }
+
+        // Atmosphere only serves the long polling fallback, without registering its JSR 356 endpoint
+        initParamProducer.produce(new ServletInitParamBuildItem(ApplicationConfig.PROPERTY_COMET_SUPPORT, Servlet30CometSupport.class.getName()));
+        initParamProducer.produce(new ServletInitParamBuildItem(ApplicationConfig.WEBSOCKET_SUPPORT, Boolean.FALSE.toString()));
+    }
+
+    @BuildStep
+    @Record(RUNTIME_INIT)
+    void startSlowClientGuard(final VaadinConfig config, final BeanContainerBuildItem beanContainer, final ShutdownContextBuildItem shutdownContext,
+            final QuarkusVaadinRecorder recorder) {
+
+        if (!config.slowClients.enabled) {
+            return;
+        }
+
+        LOGGER.info("Bound the pending work of slow clients: " + config.slowClients.policy);
+
+        recorder.startSlowClientGuard(shutdownContext, config.slowClients.policy, config.slowClients.maxPendingAccessTasks,
+                config.slowClients.maxUnsentPushBytes);
+    }
+
+    @BuildStep
+    @Record(RUNTIME_INIT)
+    void startPollEventThrottle(final VaadinConfig config, final BeanContainerBuildItem beanContainer,
+            final ShutdownContextBuildItem shutdownContext, final QuarkusVaadinRecorder recorder) {
+
+        if (config.pollEvents.mode == PollEventMode.ALL || config.pollEvents.interval.isZero()) {
+            return;
+        }
+
+        LOGGER.info("Deliver the poll events " + config.pollEvents.mode + " within " + config.pollEvents.interval.toMillis() + " ms");
+
+        recorder.startPollEventThrottle(shutdownContext, config.pollEvents.mode, config.pollEvents.interval.toMillis());
+    }
+
+    @BuildStep
+    @Record(STATIC_INIT)
+    void configureBroadcast(final VaadinConfig config, final BeanContainerBuildItem beanContainer, final QuarkusVaadinRecorder recorder) {
+
+        LOGGER.info("Configure push broadcaster: " + config.broadcast.parallelism + " threads, batches of " + config.broadcast.batchSize + " UIs");
+
+        recorder.registerBroadcast(beanContainer.getValue(), config.broadcast.parallelism, config.broadcast.batchSize,
+                config.broadcast.queueCapacity, config.broadcast.maxPendingMessages);
+    }
+
+    @BuildStep
+    InstantiationTableBuildItem computeInstantiationTable(final ValidationPhaseBuildItem validationPhase, final VaadinIndexBuildItem vaadinIndex,
+            final BuildProducer<ValidationPhaseBuildItem.ValidationErrorBuildItem> validationErrors) {
+
+        LOGGER.info("Compute instantiation table");
+
+        final Map<DotName, List<BeanInfo>> beansByType = new HashMap<>();
+        for (final BeanInfo bean : validationPhase.getContext().get(BuildExtension.Key.BEANS)) {
+            for (final Type type : bean.getTypes()) {
+                beansByType.computeIfAbsent(type.name(), name -> new ArrayList<>()).add(bean);
+            }
+        }
+
+        final Map<String, String> beanIdentifiers = new HashMap<>();
+        final Set<String> plainClasses = new HashSet<>();
+        for (final ClassInfo component : vaadinIndex.getIndex().getAllKnownSubclasses(ReflectiveSurfaceBuilder.COMPONENT)) {
+            final List<BeanInfo> beans = beansByType.get(component.name());
+            if (beans == null) {
+                plainClasses.add(component.name().toString());
+            } else if (beans.size() == 1 && isUnambiguous(beans.get(0))) {
+                beanIdentifiers.put(component.name().toString(), beans.get(0).getIdentifier());
+            }
+            // qualified, alternative and ambiguous ones are left to the runtime resolution
+        }
+
+        LOGGER.info("Resolved " + beanIdentifiers.size() + " component beans and " + plainClasses.size() + " plain components.");
+
+        return new InstantiationTableBuildItem(beanIdentifiers, plainClasses);
+    }
+
+    /**
+     * @return whether the bean is the one the runtime lookup by type resolves to in any case, i.e. it is neither an alternative nor qualified
+     */
+    private static boolean isUnambiguous(final BeanInfo bean) {
+
+        return !bean.isAlternative() && bean.hasDefaultQualifiers();
+    }
+
+    @BuildStep
+    @Record(STATIC_INIT)
+    void registerInstantiationTable(final InstantiationTableBuildItem instantiationTable, final BeanContainerBuildItem beanContainer,
+            final QuarkusVaadinRecorder recorder) {
+
+        recorder.registerInstantiationTable(beanContainer.getValue(), instantiationTable.getBeanIdentifiers(), instantiationTable.getPlainClasses());
+    }
+
+    @BuildStep
+    BeanIndexBuildItem computeBeanIndex(final ValidationPhaseBuildItem validationPhase,
+            final BuildProducer<ValidationPhaseBuildItem.ValidationErrorBuildItem> validationErrors) {
+
+        LOGGER.info("Compute bean index of the Vaadin scopes");
+
+        final Map<DotName, String> contextScopes = new HashMap<>();
+        contextScopes.put(DotName.createSimple(VaadinServiceScoped.class.getName()), VaadinServiceScoped.class.getName());
+        contextScopes.put(DotName.createSimple(VaadinSessionScoped.class.getName()), VaadinSessionScoped.class.getName());
+        contextScopes.put(DotName.createSimple(UIScoped.class.getName()), UIScoped.class.getName());
+        contextScopes.put(DotName.createSimple(NormalUIScoped.class.getName()), UIScoped.class.getName());
+        contextScopes.put(DotName.createSimple(RouteScoped.class.getName()), RouteScoped.class.getName());
+        contextScopes.put(DotName.createSimple(NormalRouteScoped.class.getName()), RouteScoped.class.getName());
+
+        final Map<String, List<String>> beanIdentifiers = new HashMap<>();
+        final Map<String, String> routeScopeOwners = new HashMap<>();
+        for (final BeanInfo bean : validationPhase.getContext().get(BuildExtension.Key.BEANS)) {
+            final String contextScope = contextScopes.get(bean.getScope().getDotName());
+            if (contextScope == null) {
+                continue;
+            }
+            beanIdentifiers.computeIfAbsent(contextScope, scope -> new ArrayList<>()).add(bean.getIdentifier());
+            if (RouteScoped.class.getName().equals(contextScope)) {
+                routeScopeOwners.put(bean.getIdentifier(), getRouteScopeOwner(bean).toString());
+            }
+        }
+        // a stable order, so the indices are the same in any instance of the same build
+        beanIdentifiers.values().forEach(Collections::sort);
+
+        LOGGER.debug("Indexed beans: " + beanIdentifiers);
+
+        return new BeanIndexBuildItem(beanIdentifiers, routeScopeOwners);
+    }
+
+    @BuildStep
+    @Record(STATIC_INIT)
+    void registerBeanIndex(final BeanIndexBuildItem beanIndex, final BeanContainerBuildItem beanContainer, final QuarkusVaadinRecorder recorder) {
+
+        recorder.registerBeanIndex(beanContainer.getValue(), beanIndex.getBeanIdentifiers(), beanIndex.getRouteScopeOwners());
+    }
+
+    /**
+     * Same as {@code RouteScopedContext}: the value of the {@code RouteScopeOwner} qualifier, else the bean class.
+     */
+    private static DotName getRouteScopeOwner(final BeanInfo bean) {
+
+        for (final AnnotationInstance qualifier : bean.getQualifiers()) {
+            if (ROUTE_SCOPE_OWNER.equals(qualifier.name())) {
+                return qualifier.value().asClass().name();
+            }
+        }
+        return bean.getBeanClass();
+    }
+
+    @BuildStep
+    ObservedEventTypesBuildItem collectObservedEventTypes(final ValidationPhaseBuildItem validationPhase,
+            final BuildProducer<ValidationPhaseBuildItem.ValidationErrorBuildItem> validationErrors) {
+
+        LOGGER.info("Collect observed event types");
+
+        final Set<String> eventTypes = new HashSet<>();
+        final Set<String> asyncEventTypes = new HashSet<>();
+        for (final ObserverInfo observer : validationPhase.getContext().get(BuildExtension.Key.OBSERVERS)) {
+            (observer.isAsync() ? asyncEventTypes : eventTypes).add(observer.getObservedType().name().toString());
+        }
+
+        LOGGER.debug("Observed event types: " + eventTypes + ", asynchronously observed event types: " + asyncEventTypes);
+
+        return new ObservedEventTypesBuildItem(eventTypes, asyncEventTypes);
     }
 
     @BuildStep
-    void registerForVaadinFlowReflection(final BuildProducer<ReflectiveClassBuildItem> reflectiveClass) {
+    @Record(STATIC_INIT)
+    void registerObservedEventTypes(final ObservedEventTypesBuildItem observedEventTypes, final BeanContainerBuildItem beanContainer,
+            final QuarkusVaadinRecorder recorder) {
+
+        recorder.registerObservedEventTypes(beanContainer.getValue(), observedEventTypes.getEventTypes(), observedEventTypes.getAsyncEventTypes());
+    }
+
+    @BuildStep
+    @Record(STATIC_INIT)
+    @SuppressWarnings("unchecked")
+    void generateDomEventFactories(final VaadinIndexBuildItem vaadinIndex, final BuildProducer<GeneratedClassBuildItem> generatedClassProducer,
+            final BuildProducer<BytecodeTransformerBuildItem> transformerProducer, final RecorderContext recorderContext,
+            final QuarkusVaadinRecorder recorder) {
+
+        LOGGER.info("Generate DOM event factories");
+
+        final int generatedFactories = new DomEventFactoryGenerator(vaadinIndex.getIndex(),
+                new GeneratedClassGizmoAdaptor(generatedClassProducer, true)).generate();
+
+        LOGGER.info("Generated " + generatedFactories + " DOM event factories.");
+
+        transformerProducer.produce(new BytecodeTransformerBuildItem(ComponentEventBusTransformer.COMPONENT_EVENT_BUS, new ComponentEventBusTransformer()));
+
+        recorder.registerDomEventFactories(
+                (RuntimeValue) recorderContext.newInstance(DomEventFactoryGenerator.REGISTRAR_CLASS_NAME));
+    }
+
+    @BuildStep
+    VaadinIndexBuildItem indexVaadinDependencies(final CombinedIndexBuildItem combinedIndex, final CurateOutcomeBuildItem curateOutcome) {
+
+        LOGGER.info("Index Vaadin Flow dependencies");
+
+        // the @DomEvent classes and components of Vaadin itself have to be known to the extension, but the Vaadin jars mustn't become bean
+        // archives, so they aren't added to the combined index
+        final Indexer indexer = new Indexer();
+        for (final AppDependency dependency : curateOutcome.getEffectiveModel().getUserDependencies()) {
+            final AppArtifact artifact = dependency.getArtifact();
+            if (VAADIN_GROUP_ID.equals(artifact.getGroupId())
+                    && "jar".equals(artifact.getType())
+                    && (artifact.getArtifactId().startsWith("flow-") || artifact.getArtifactId().endsWith("-flow"))) {
+
+                LOGGER.debug("Index " + artifact);
+                for (final Path path : artifact.getPaths()) {
+                    indexJar(path, indexer);
+                }
+            }
+        }
+        return new VaadinIndexBuildItem(CompositeIndex.create(combinedIndex.getIndex(), indexer.complete()));
+    }
+
+    private static void indexJar(final Path path, final Indexer indexer) {
+
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        try (JarFile jar = new JarFile(path.toFile())) {
+            final Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                if (entry.getName().endsWith(".class") && !entry.getName().startsWith("META-INF/")
+                        && !entry.getName().endsWith("module-info.class")) {
+                    try (InputStream classFile = jar.getInputStream(entry)) {
+                        indexer.index(classFile);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to index " + path, e);
+        }
+    }
+
+    @BuildStep
+    void registerForVaadinFlowReflection(final VaadinIndexBuildItem vaadinIndex, final BuildProducer<ReflectiveClassBuildItem> reflectiveClass,
+            final BuildProducer<ReflectiveMethodBuildItem> reflectiveMethod, final BuildProducer<ReflectiveFieldBuildItem> reflectiveField) {
 
         LOGGER.info("Register Vaadin Flow 4 reflection");
 
+        final ReflectiveSurfaceBuilder reflectiveSurface = new ReflectiveSurfaceBuilder(vaadinIndex.getIndex()).build();
+
+        LOGGER.info("Found "
+                + reflectiveSurface.getInstantiatedClasses().size()
+                + " components and "
+                + reflectiveSurface.getEventClasses().size()
+                + " DOM events to register for reflection.");
+
+        if (!reflectiveSurface.getInstantiatedClasses().isEmpty()) {
+            reflectiveClass.produce(ReflectiveClassBuildItem.builder(reflectiveSurface.getInstantiatedClasses().toArray(new String[0]))
+                    .constructors(true).methods(false).build());
+        }
+        if (!reflectiveSurface.getEventClasses().isEmpty()) {
+            reflectiveClass.produce(ReflectiveClassBuildItem.builder(reflectiveSurface.getEventClasses().toArray(new String[0]))
+                    .constructors(true).methods(false).build());
+        }
+        reflectiveSurface.getInvokedMethods().forEach(method -> reflectiveMethod.produce(new ReflectiveMethodBuildItem(method)));
+        reflectiveSurface.getInjectedFields().forEach(field -> reflectiveField.produce(new ReflectiveFieldBuildItem(field)));
+
+        // instantiated by name, so they can't be derived from the index
         final ReflectiveClassBuildItem vaadinClassBuildItem = ReflectiveClassBuildItem
-                .builder("com.vaadin.flow.component.UI", "com.vaadin.flow.component.PollEvent", "com.vaadin.flow.component.ClickEvent",
-                        "com.vaadin.flow.component.CompositionEndEvent", "com.vaadin.flow.component.CompositionStartEvent",
-                        "com.vaadin.flow.component.CompositionUpdateEvent", "com.vaadin.flow.component.KeyDownEvent",
-                        "com.vaadin.flow.component.KeyPressEvent", "com.vaadin.flow.component.KeyUpEvent",
-                        "com.vaadin.flow.component.splitlayout.GeneratedVaadinSplitLayout$SplitterDragendEvent",
-                        "com.vaadin.flow.component.details.Details$OpenedChangeEvent", "com.vaadin.flow.component.details.Details",
-                        "com.vaadin.flow.router.InternalServerError", "com.vaadin.flow.router.RouteNotFoundError", "com.vaadin.flow.theme.lumo.Lumo")
-                .constructors(true).methods(true).build();
+                .builder("com.vaadin.flow.component.UI", "com.vaadin.flow.theme.lumo.Lumo").constructors(true).methods(true).build();
 
         reflectiveClass.produce(vaadinClassBuildItem);
     }
@@ -160,7 +593,7 @@ public class VaadinProcessor {
                 .builder("org.atmosphere.cpr.DefaultBroadcaster", "org.atmosphere.cpr.DefaultAtmosphereResourceFactory",
                         "org.atmosphere.cpr.DefaultBroadcasterFactory", "org.atmosphere.cpr.DefaultMetaBroadcaster",
                         "org.atmosphere.cpr.DefaultAtmosphereResourceSessionFactory", "org.atmosphere.util.VoidAnnotationProcessor",
-                        "org.atmosphere.cache.UUIDBroadcasterCache", "org.atmosphere.websocket.protocol.SimpleHttpProtocol",
+                        "org.atmosphere.cache.UUIDBroadcasterCache", "org.atmosphere.container.Servlet30CometSupport", "org.atmosphere.websocket.protocol.SimpleHttpProtocol",
                         "org.atmosphere.interceptor.IdleResourceInterceptor", "org.atmosphere.interceptor.OnDisconnectInterceptor",
                         "org.atmosphere.interceptor.WebSocketMessageSuspendInterceptor", "org.atmosphere.interceptor.JavaScriptProtocol",
                         "org.atmosphere.interceptor.JSONPAtmosphereInterceptor", "org.atmosphere.interceptor.SSEAtmosphereInterceptor",
@@ -170,37 +603,4 @@ public class VaadinProcessor {
 
         reflectiveClass.produce(athmosClassBuildItem);
     }
-
-    private void scanForReflectiveBeans(final BeanArchiveIndexBuildItem beanArchiveIndex,
-            final BuildProducer<ReflectiveClassBuildItem> vaadinReflectiveClassProducer, final DotName annotationType,
-            final Function<AnnotationTarget, ReflectiveClassBuildItem> buildItem, final Consumer<AnnotationTarget> recorder) {
-
-        LOGGER.info("Scan for " + annotationType.local() + " annotated beans.");
-
-        final IndexView indexView = beanArchiveIndex.getIndex();
-
-        final Collection<AnnotationInstance> annotationInstances = indexView.getAnnotations(annotationType);
-
-        LOGGER.info("Found " + annotationInstances.size() + " of " + annotationType.local() + " annotated beans.");
-
-        for (final AnnotationInstance annotationInstance : annotationInstances) {
-
-            recorder.accept(annotationInstance.target());
-            vaadinReflectiveClassProducer.produce(buildItem.apply(annotationInstance.target()));
-
-            LOGGER.info("Found "
-                    + annotationType.toString()
-                    + " annotation on class "
-                    + annotationInstance.target().toString()
-                    + ". Item will be registered to Vaadin.");
-
-        }
-    }
-
-    private ReflectiveClassBuildItem buildReflectiveClassBuildItem(final AnnotationTarget target) {
-
-        LOGGER.debug("Register reflective-item generated for " + target.toString());
-
-        return new ReflectiveClassBuildItem(false, false, target.toString());
-    }
 }
@@ -0,0 +1,153 @@
+package com.urosporo.quarkus.vaadin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.vaadin.flow.component.ComponentEvent;
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.DomEvent;
+import com.vaadin.flow.component.EventData;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+import io.quarkus.test.QuarkusUnitTest;
+
+/**
+ * Creates the components of the application and the {@code @DomEvent} events by the factories generated at build time, and leaves the ones
+ * without a factory to reflection.
+ */
+public class GeneratedFactoriesTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest TEST = new QuarkusUnitTest().setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+            .addClasses(GreetingComponent.class, NamedComponent.class, PressEvent.class, UnannotatedEvent.class)
+            // read by the workarounds of the Vaadin servlet deployment
+            .addAsResource(new StringAsset("{\"productionMode\": true}"), "META-INF/VAADIN/config/flow-build-info.json"));
+
+    @Inject
+    QuarkusBuildContext buildContext;
+
+    @Test
+    void createsTheApplicationComponents() {
+
+        final ComponentFactories factories = this.buildContext.getComponentFactories();
+
+        assertTrue(factories.contains(GreetingComponent.class));
+        final GreetingComponent component = factories.create(GreetingComponent.class);
+        assertSame(GreetingComponent.class, component.getClass());
+        assertEquals("Hello", component.getText());
+
+        // no public no-args constructor
+        assertFalse(factories.contains(NamedComponent.class));
+        assertNull(factories.create(NamedComponent.class));
+        // a component of the Vaadin jars the application creates with new
+        assertFalse(factories.contains(Div.class));
+    }
+
+    @Test
+    void createsTheDomEventsWithTheirEventData() {
+
+        final Div source = new Div();
+        final JsonObject eventData = Json.createObject();
+        eventData.put("event.button", 2);
+        eventData.put("event.shiftKey", true);
+        eventData.put("event.detail", "pressed");
+
+        final ComponentEvent<?> event = DomEventFactories.create(PressEvent.class,
+                new com.vaadin.flow.dom.DomEvent(source.getElement(), "press", eventData), source);
+
+        assertSame(PressEvent.class, event.getClass());
+        final PressEvent press = (PressEvent) event;
+        assertSame(source, press.getSource());
+        assertTrue(press.isFromClient());
+        assertEquals(2, press.button);
+        assertTrue(press.shiftKey);
+        assertEquals("pressed", press.detail);
+        // missing in the event data
+        assertNull(press.target);
+
+        assertNull(DomEventFactories.create(UnannotatedEvent.class,
+                new com.vaadin.flow.dom.DomEvent(source.getElement(), "press", eventData), source));
+    }
+
+    @Test
+    void firesTheDomEventsToTheListeners() {
+
+        final Div source = new Div();
+        final AtomicReference<PressEvent> received = new AtomicReference<>();
+        ComponentUtil.addListener(source, PressEvent.class, received::set);
+        final JsonObject eventData = Json.createObject();
+        eventData.put("event.button", 1);
+
+        // through the patched ComponentEventBus
+        source.getElement().getNode().getFeature(ElementListenerMap.class)
+                .fireEvent(new com.vaadin.flow.dom.DomEvent(source.getElement(), "press", eventData));
+
+        assertSame(source, received.get().getSource());
+        assertEquals(1, received.get().button);
+        assertFalse(received.get().shiftKey);
+    }
+
+    public static class GreetingComponent extends Div {
+
+        public GreetingComponent() {
+
+            setText("Hello");
+        }
+    }
+
+    public static class NamedComponent extends Div {
+
+        public NamedComponent(final String name) {
+
+            setText(name);
+        }
+    }
+
+    @DomEvent("press")
+    public static class PressEvent extends ComponentEvent<Div> {
+
+        final int button;
+
+        final boolean shiftKey;
+
+        final String detail;
+
+        final String target;
+
+        public PressEvent(final Div source, final boolean fromClient, @EventData("event.button") final int button,
+                @EventData("event.shiftKey") final boolean shiftKey, @EventData("event.detail") final String detail,
+                @EventData("event.target") final String target) {
+
+            super(source, fromClient);
+            this.button = button;
+            this.shiftKey = shiftKey;
+            this.detail = detail;
+            this.target = target;
+        }
+    }
+
+    public static class UnannotatedEvent extends ComponentEvent<Div> {
+
+        public UnannotatedEvent(final Div source, final boolean fromClient) {
+
+            super(source, fromClient);
+        }
+    }
+}
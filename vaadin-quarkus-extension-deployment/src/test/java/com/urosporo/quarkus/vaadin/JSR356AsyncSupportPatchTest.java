@@ -0,0 +1,190 @@
+package com.urosporo.quarkus.vaadin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.ContainerProvider;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import javax.websocket.WebSocketContainer;
+
+import org.atmosphere.cpr.ApplicationConfig;
+import org.atmosphere.cpr.AtmosphereFramework;
+import org.atmosphere.cpr.AtmosphereHandler;
+import org.atmosphere.cpr.AtmosphereRequest;
+import org.atmosphere.cpr.AtmosphereResource;
+import org.atmosphere.cpr.AtmosphereResourceEvent;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import io.quarkus.test.QuarkusUnitTest;
+import io.quarkus.test.common.http.TestHTTPResource;
+
+/**
+ * Opens many WebSockets at once to an Atmosphere servlet using the {@link JSR356AsyncSupportPatch}: the handshakes and the endpoints are
+ * handled by different threads, and each endpoint has to get the request of its own handshake. The Atmosphere handler echoes the request it
+ * got.
+ */
+public class JSR356AsyncSupportPatchTest {
+
+    private static final int SOCKETS = 1000;
+
+    /**
+     * Sockets with the same key, i.e. path and query string, share their handshake requests.
+     */
+    private static final int KEYS = 250;
+
+    private static final int CONNECTING_THREADS = 64;
+
+    @RegisterExtension
+    static final QuarkusUnitTest TEST = new QuarkusUnitTest().setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+            .addClasses(EchoServlet.class, EchoHandler.class)
+            // read by the workarounds of the Vaadin servlet deployment
+            .addAsResource(new StringAsset("{\"productionMode\": true}"), "META-INF/VAADIN/config/flow-build-info.json"));
+
+    @TestHTTPResource("/echo")
+    URI echoUri;
+
+    @Test
+    void pairsConcurrentHandshakesWithTheirEndpoints() throws Exception {
+
+        final WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        final String base = "ws" + this.echoUri.toString().substring("http".length());
+        final List<CompletableFuture<String>> received = new ArrayList<>();
+        final List<Session> sessions = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService connecting = Executors.newFixedThreadPool(CONNECTING_THREADS);
+        try {
+            for (int socket = 0; socket < SOCKETS; socket++) {
+                final URI uri = URI.create(base + "/" + socket % KEYS + "?v-uiId=" + socket % KEYS);
+                final CompletableFuture<String> message = new CompletableFuture<>();
+                received.add(message);
+                connecting.execute(() -> {
+
+                    try {
+                        start.await();
+                        sessions.add(container.connectToServer(new ReceivingEndpoint(message), ClientEndpointConfig.Builder.create().build(), uri));
+                    } catch (final Exception e) {
+                        message.completeExceptionally(e);
+                    }
+                });
+            }
+            start.countDown();
+
+            for (int socket = 0; socket < SOCKETS; socket++) {
+                final String expected = "/echo/" + socket % KEYS + "?v-uiId=" + socket % KEYS;
+                assertEquals(expected, received.get(socket).get(60, TimeUnit.SECONDS), "request of socket " + socket);
+            }
+        } finally {
+            connecting.shutdownNow();
+            for (final Session session : sessions) {
+                try {
+                    session.close();
+                } catch (final IOException e) {
+                    // closed anyway
+                }
+            }
+            // the server has to handle the closes before it is stopped
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (sessions.stream().anyMatch(Session::isOpen) && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    /**
+     * Sets up Atmosphere the way Vaadin's {@code PushRequestHandler} does: the WebSockets only go through the JSR 356 endpoints.
+     */
+    @WebServlet(urlPatterns = "/echo/*", loadOnStartup = 1, asyncSupported = true)
+    public static class EchoServlet extends HttpServlet {
+
+        private final AtmosphereFramework framework = new AtmosphereFramework(false, false);
+
+        @Override
+        public void init(final ServletConfig config) throws ServletException {
+
+            super.init(config);
+            this.framework.addInitParameter(ApplicationConfig.PROPERTY_COMET_SUPPORT, JSR356AsyncSupportPatch.class.getName());
+            this.framework.addInitParameter(ApplicationConfig.JSR356_MAPPING_PATH, "/echo");
+            this.framework.addInitParameter(ApplicationConfig.DISABLE_ATMOSPHEREINTERCEPTOR, "true");
+            this.framework.addAtmosphereHandler("/*", new EchoHandler());
+            this.framework.init(config);
+        }
+
+        @Override
+        public void destroy() {
+
+            this.framework.destroy();
+            super.destroy();
+        }
+    }
+
+    /**
+     * Sends the path and query string of the request Atmosphere got for the WebSocket.
+     */
+    public static class EchoHandler implements AtmosphereHandler {
+
+        @Override
+        public void onRequest(final AtmosphereResource resource) throws IOException {
+
+            final AtmosphereRequest request = resource.getRequest();
+            resource.suspend();
+            resource.write(request.getRequestURI() + '?' + request.getQueryString());
+        }
+
+        @Override
+        public void onStateChange(final AtmosphereResourceEvent event) throws IOException {
+
+            // nothing is broadcast
+        }
+
+        @Override
+        public void destroy() {
+
+            // stateless
+        }
+    }
+
+    private static final class ReceivingEndpoint extends Endpoint {
+
+        private final CompletableFuture<String> message;
+
+        private ReceivingEndpoint(final CompletableFuture<String> message) {
+
+            this.message = message;
+        }
+
+        @Override
+        public void onOpen(final Session session, final EndpointConfig config) {
+
+            session.addMessageHandler(new MessageHandler.Whole<String>() {
+
+                @Override
+                public void onMessage(final String text) {
+
+                    ReceivingEndpoint.this.message.complete(text);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.urosporo.quarkus.vaadin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.vaadin.flow.component.PushConfiguration;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.shared.communication.PushMode;
+
+import io.quarkus.test.QuarkusUnitTest;
+
+/**
+ * Defers the pushes of a UI up to the maximum count and estimated size, and runs the flushes by the executor rather than the thread timing the
+ * windows.
+ */
+public class PushCoalescingTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest TEST = new QuarkusUnitTest().setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+            // read by the workarounds of the Vaadin servlet deployment
+            .addAsResource(new StringAsset("{\"productionMode\": true}"), "META-INF/VAADIN/config/flow-build-info.json"));
+
+    @AfterEach
+    void stopCoalescing() {
+
+        PushCoalescing.stop();
+    }
+
+    @Test
+    void boundsTheDeferredPushesByCountAndSize() {
+
+        PushCoalescing.start(50, 8, 1000, new VaadinMetrics(), Runnable::run);
+        final PushCoalescing coalescing = PushCoalescing.current();
+        final UI ui = mockUI(PushMode.AUTOMATIC);
+
+        // unknown size
+        assertTrue(coalescing.isDeferrable(ui, 0, 0));
+        assertTrue(coalescing.isDeferrable(ui, 6, 0));
+        assertFalse(coalescing.isDeferrable(ui, 7, 0));
+
+        assertTrue(coalescing.isDeferrable(ui, 3, 200));
+        assertFalse(coalescing.isDeferrable(ui, 4, 200));
+        assertFalse(coalescing.isDeferrable(ui, 0, 1000));
+
+        assertFalse(coalescing.isDeferrable(mockUI(PushMode.MANUAL), 0, 0));
+        PushCoalescing.stop();
+        assertFalse(coalescing.isDeferrable(ui, 0, 0));
+    }
+
+    @Test
+    void runsTheFlushesByTheExecutor() throws Exception {
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "flush-executor"));
+        try {
+            PushCoalescing.start(10, 8, 1000, new VaadinMetrics(), executor);
+            final CompletableFuture<String> flushThread = new CompletableFuture<>();
+            assertTrue(PushCoalescing.current().schedule(() -> flushThread.complete(Thread.currentThread().getName())));
+            assertEquals("flush-executor", flushThread.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static UI mockUI(final PushMode pushMode) {
+
+        final PushConfiguration pushConfiguration = mock(PushConfiguration.class);
+        when(pushConfiguration.getPushMode()).thenReturn(pushMode);
+        final UI ui = mock(UI.class);
+        when(ui.getPushConfiguration()).thenReturn(pushConfiguration);
+        return ui;
+    }
+}
@@ -0,0 +1,139 @@
+package com.urosporo.quarkus.vaadin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jboss.jandex.Index;
+import org.jboss.jandex.Indexer;
+import org.junit.jupiter.api.Test;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.internal.AnnotationReader;
+import com.vaadin.flow.router.ParentLayout;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.router.RouteAlias;
+import com.vaadin.flow.router.RoutePrefix;
+import com.vaadin.flow.router.RouterLayout;
+import com.vaadin.flow.router.internal.RouteUtil;
+
+/**
+ * Compares the route table resolved out of the Jandex index with the paths and parent layouts {@link RouteUtil} resolves by reflection.
+ */
+public class RouteTableBuilderTest {
+
+    private static final Class<?>[] CLASSES = { MainLayout.class, AdminLayout.class, AbsoluteLayout.class, EmptyPrefixLayout.class,
+            RoutedLayout.class, Prefixed.class, UsersView.class, DetailsView.class, OrphanView.class, AbsoluteView.class, MainView.class,
+            BaseView.class, SubView.class, InterfacePrefixedView.class };
+
+    private static final Class<?>[] NAVIGATION_TARGETS = { RoutedLayout.class, UsersView.class, DetailsView.class, OrphanView.class,
+            AbsoluteView.class, MainView.class, SubView.class, InterfacePrefixedView.class };
+
+    @Test
+    void resolvesTheRoutesAsFlowDoes() throws IOException {
+
+        final Indexer indexer = new Indexer();
+        for (final Class<?> indexedClass : CLASSES) {
+            try (InputStream classFile = indexedClass.getResourceAsStream(indexedClass.getName().replace('.', '/')
+                    .substring(indexedClass.getPackage().getName().length() + 1) + ".class")) {
+                indexer.index(classFile);
+            }
+        }
+        final Index index = indexer.complete();
+
+        final List<String> expected = new ArrayList<>();
+        for (final Class<?> navigationTarget : NAVIGATION_TARGETS) {
+            expected.add(describe(navigationTarget, RouteUtil.getRoutePath(navigationTarget, navigationTarget.getAnnotation(Route.class))));
+            for (final RouteAlias routeAlias : AnnotationReader.getAnnotationsFor(navigationTarget, RouteAlias.class)) {
+                expected.add(describe(navigationTarget, RouteUtil.getRouteAliasPath(navigationTarget, routeAlias)));
+            }
+        }
+
+        final List<String> actual = new RouteTableBuilder(index).build().stream()
+                .map(route -> route.getPath() + " -> " + route.getNavigationTarget() + " in " + route.getParentLayouts())
+                .collect(Collectors.toList());
+
+        assertEquals(expected.stream().sorted().collect(Collectors.toList()), actual.stream().sorted().collect(Collectors.toList()));
+    }
+
+    private static String describe(final Class<?> navigationTarget, final String path) {
+
+        return path + " -> " + navigationTarget.getName() + " in "
+                + RouteUtil.getParentLayouts(navigationTarget, path).stream().map(Class::getName).collect(Collectors.toList());
+    }
+
+    @RoutePrefix("app")
+    public static class MainLayout extends Component implements RouterLayout {
+    }
+
+    @RoutePrefix("admin")
+    @ParentLayout(MainLayout.class)
+    public static class AdminLayout extends Component implements RouterLayout {
+    }
+
+    @RoutePrefix(value = "abs", absolute = true)
+    @ParentLayout(MainLayout.class)
+    public static class AbsoluteLayout extends Component implements RouterLayout {
+    }
+
+    @RoutePrefix("")
+    @ParentLayout(MainLayout.class)
+    public static class EmptyPrefixLayout extends Component implements RouterLayout {
+    }
+
+    /**
+     * A layout which is a route itself: its absolute route doesn't apply to the routes using it as layout.
+     */
+    @Route(value = "routed", absolute = true, layout = AdminLayout.class)
+    @ParentLayout(MainLayout.class)
+    public static class RoutedLayout extends Component implements RouterLayout {
+    }
+
+    @RoutePrefix("iface")
+    public interface Prefixed {
+    }
+
+    @Route(value = "users", layout = AdminLayout.class)
+    @RouteAlias("people")
+    @RouteAlias(value = "members", layout = AbsoluteLayout.class)
+    @RouteAlias(value = "staff", layout = AdminLayout.class, absolute = true)
+    public static class UsersView extends Component {
+    }
+
+    @Route(layout = RoutedLayout.class)
+    public static class DetailsView extends Component {
+    }
+
+    /**
+     * Its own parent layout contributes the route prefixes, but isn't one of the parent layouts of the route.
+     */
+    @Route("orphan")
+    @RoutePrefix("own")
+    @ParentLayout(AdminLayout.class)
+    public static class OrphanView extends Component {
+    }
+
+    @Route(value = "abs", absolute = true, layout = AdminLayout.class)
+    public static class AbsoluteView extends Component {
+    }
+
+    @Route(layout = EmptyPrefixLayout.class)
+    public static class MainView extends Component {
+    }
+
+    @RouteAlias(value = "base", layout = AdminLayout.class)
+    public static class BaseView extends Component {
+    }
+
+    @Route("sub")
+    public static class SubView extends BaseView {
+    }
+
+    @Route("view")
+    public static class InterfacePrefixedView extends Component implements Prefixed {
+    }
+}
@@ -0,0 +1,72 @@
+package com.urosporo.quarkus.vaadin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.router.RouteAlias;
+import com.vaadin.flow.router.RoutePrefix;
+import com.vaadin.flow.router.RouterLayout;
+
+import io.quarkus.test.QuarkusUnitTest;
+
+/**
+ * Resolves the routes of the application at build time and records them for the servlet to register.
+ */
+public class RouteTableTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest TEST = new QuarkusUnitTest().setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+            .addClasses(MainLayout.class, HomeView.class, UsersView.class, LoginView.class)
+            // read by the workarounds of the Vaadin servlet deployment
+            .addAsResource(new StringAsset("{\"productionMode\": true}"), "META-INF/VAADIN/config/flow-build-info.json"));
+
+    @Inject
+    QuarkusBuildContext buildContext;
+
+    @Test
+    void recordsTheRoutesOfTheApplication() {
+
+        final Map<String, String> routes = new TreeMap<>();
+        for (final RouteDefinition route : this.buildContext.getRoutes()) {
+            assertEquals(Collections.singletonList(MainLayout.class.getName()), route.getParentLayouts(), route.toString());
+            routes.put(route.getPath(), route.getNavigationTarget());
+        }
+
+        final Map<String, String> expected = new TreeMap<>();
+        expected.put("app", HomeView.class.getName());
+        expected.put("app/home", HomeView.class.getName());
+        expected.put("app/users", UsersView.class.getName());
+        expected.put("login", LoginView.class.getName());
+        assertEquals(expected, routes);
+    }
+
+    @RoutePrefix("app")
+    public static class MainLayout extends Div implements RouterLayout {
+    }
+
+    @Route(value = "", layout = MainLayout.class)
+    @RouteAlias(value = "home", layout = MainLayout.class)
+    public static class HomeView extends Div {
+    }
+
+    @Route(value = "users", layout = MainLayout.class)
+    public static class UsersView extends Div {
+    }
+
+    @Route(value = "login", layout = MainLayout.class, absolute = true)
+    public static class LoginView extends Div {
+    }
+}
@@ -0,0 +1,165 @@
+package com.urosporo.quarkus.vaadin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.ErrorHandler;
+import com.vaadin.flow.server.ErrorHandlingCommand;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.WrappedSession;
+
+import io.quarkus.test.QuarkusUnitTest;
+
+/**
+ * Queues access tasks to a locked session, i.e. none of them runs: the tasks of the extension are exempt from the bound even if wrapped by
+ * {@link UI#access(Command)}, and the counted ones keep the error handling of the tasks they wrap.
+ */
+public class SlowClientGuardTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest TEST = new QuarkusUnitTest().setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+            // read by the workarounds of the Vaadin servlet deployment
+            .addAsResource(new StringAsset("{\"productionMode\": true}"), "META-INF/VAADIN/config/flow-build-info.json"));
+
+    private final List<Command> queuedCommands = new ArrayList<>();
+
+    private final List<Future<Void>> queuedFutures = new ArrayList<>();
+
+    private VaadinMetrics metrics;
+
+    private VaadinSession session;
+
+    private UI ui;
+
+    @BeforeEach
+    void setUp() {
+
+        // a single instance runs all the tests
+        this.queuedCommands.clear();
+        this.queuedFutures.clear();
+        this.metrics = new VaadinMetrics();
+        SlowClientGuard.start(SlowClientPolicy.DROP_OLDEST, 2, 1024, this.metrics);
+
+        final Map<String, Object> attributes = new HashMap<>();
+        final WrappedSession wrappedSession = mock(WrappedSession.class);
+        when(wrappedSession.getAttribute(anyString())).then(invocation -> attributes.get(invocation.getArgument(0)));
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1))).when(wrappedSession)
+                .setAttribute(anyString(), any());
+
+        this.session = mock(VaadinSession.class);
+        when(this.session.getSession()).thenReturn(wrappedSession);
+        // queued as by the servlet service, never run as the session stays locked
+        when(this.session.access(any())).then(invocation -> SlowClientGuard.accessSession(this.session, invocation.getArgument(0), this::queue));
+
+        this.ui = new UI();
+        this.ui.getInternals().setSession(this.session);
+    }
+
+    @AfterEach
+    void tearDown() {
+
+        SlowClientGuard.stop();
+    }
+
+    @Test
+    void exemptsTheUIAccessesOfTheExtension() {
+
+        this.ui.access(() -> {
+        });
+        this.ui.access(() -> {
+        });
+        final Future<Void> exempt = SlowClientGuard.accessExempt(this.ui, () -> {
+        });
+        assertEquals(2, SlowClientGuard.getPendingAccessTasks(this.session));
+
+        // beyond the maximum: the oldest counted task is dropped, never the exempt one
+        this.ui.access(() -> {
+        });
+        assertEquals(2, SlowClientGuard.getPendingAccessTasks(this.session));
+        assertTrue(this.queuedFutures.get(0).isCancelled());
+        assertFalse(exempt.isCancelled());
+        assertEquals(1, this.metrics.getDroppedAccessTasks());
+
+        // only the access queued by the extension is exempt, not the following ones of the same thread
+        SlowClientGuard.accessExempt(this.session, () -> {
+        });
+        this.session.access(() -> {
+        });
+        assertEquals(2, SlowClientGuard.getPendingAccessTasks(this.session));
+        assertEquals(2, this.metrics.getDroppedAccessTasks());
+    }
+
+    @Test
+    void handlesTheErrorsOfTheCountedTasks() {
+
+        final List<Exception> handled = new ArrayList<>();
+        this.session.access(new ErrorHandlingCommand() {
+
+            @Override
+            public void execute() {
+
+                // never run
+            }
+
+            @Override
+            public void handleError(final Exception exception) {
+
+                handled.add(exception);
+            }
+        });
+        final Exception exception = new IllegalStateException();
+        ((ErrorHandlingCommand) this.queuedCommands.get(0)).handleError(exception);
+        assertEquals(Collections.singletonList(exception), handled);
+
+        final List<Throwable> sessionHandled = new ArrayList<>();
+        final ErrorHandler errorHandler = event -> sessionHandled.add(event.getThrowable());
+        when(this.session.getErrorHandler()).thenReturn(errorHandler);
+        this.session.access(() -> {
+        });
+        ((ErrorHandlingCommand) this.queuedCommands.get(1)).handleError(exception);
+        assertEquals(Collections.singletonList(exception), sessionHandled);
+    }
+
+    @Test
+    void measuresThePushMessagesEncoded() {
+
+        for (final String message : new String[] { "", "[{\"syncId\":1}]", "Grüße", "€ 10", "😀" }) {
+            assertEquals(message.getBytes(StandardCharsets.UTF_8).length, SlowClientGuard.getEncodedLength(message), message);
+        }
+    }
+
+    private Future<Void> queue(final VaadinSession queuedSession, final Command command) {
+
+        assertSame(this.session, queuedSession);
+        final FutureTask<Void> future = new FutureTask<>(command::execute, null);
+        this.queuedCommands.add(command);
+        this.queuedFutures.add(future);
+        return future;
+    }
+}
@@ -0,0 +1,101 @@
+package com.urosporo.quarkus.vaadin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.CloseReason;
+import javax.websocket.ContainerProvider;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.vaadin.flow.server.SessionExpiredException;
+import com.vaadin.flow.server.VaadinServletService;
+
+import io.quarkus.test.QuarkusUnitTest;
+import io.quarkus.test.common.http.TestHTTPResource;
+
+/**
+ * Opens a push connection without a session: it's upgraded by the Vert.x transport selected by the configuration, which sends the handshake of
+ * the Atmosphere protocol and then the notification of the expired session, and closes it.
+ */
+public class VertxPushTransportTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest TEST = new QuarkusUnitTest().setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+            // read by the workarounds of the Vaadin servlet deployment
+            .addAsResource(new StringAsset("{\"productionMode\": true}"), "META-INF/VAADIN/config/flow-build-info.json"))
+            .overrideConfigKey("quarkus.vaadin.push.transport", "vertx-websocket");
+
+    @TestHTTPResource("/")
+    URI rootUri;
+
+    @Test
+    void servesThePushConnectionsOnVertx() throws Exception {
+
+        assertNotNull(VertxPushTransport.current());
+        // the Vaadin servlet can't be initialized without a frontend bundle, a service without a session stands in
+        final VaadinServletService service = mock(VaadinServletService.class);
+        when(service.findVaadinSession(any())).thenThrow(new SessionExpiredException());
+        VertxPushTransport.register(service);
+
+        final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        final CompletableFuture<CloseReason> closed = new CompletableFuture<>();
+        final URI pushUri = URI.create("ws" + this.rootUri.toString().substring("http".length()) + "?v-r=push&v-uiId=0&v-pushId=unknown");
+        final Session session = ContainerProvider.getWebSocketContainer().connectToServer(new Endpoint() {
+
+            @Override
+            public void onOpen(final Session openedSession, final EndpointConfig config) {
+
+                openedSession.addMessageHandler(new MessageHandler.Whole<String>() {
+
+                    @Override
+                    public void onMessage(final String text) {
+
+                        messages.add(text);
+                    }
+                });
+            }
+
+            @Override
+            public void onClose(final Session closedSession, final CloseReason closeReason) {
+
+                closed.complete(closeReason);
+            }
+        }, ClientEndpointConfig.Builder.create().build(), pushUri);
+        try {
+            final String handshake = messages.poll(10, TimeUnit.SECONDS);
+            assertTrue(handshake != null && handshake.matches("\\d+\\|[0-9a-f-]{36}\\|0\\|X\\|"), "handshake " + handshake);
+            assertEquals(handshake.length() - handshake.indexOf('|') - 1, Integer.parseInt(handshake.substring(0, handshake.indexOf('|'))));
+
+            final String notification = messages.poll(10, TimeUnit.SECONDS);
+            assertTrue(notification != null && notification.contains("sessionExpired"), "notification " + notification);
+            closed.get(10, TimeUnit.SECONDS);
+        } finally {
+            try {
+                session.close();
+            } catch (final IOException e) {
+                // closed anyway
+            }
+        }
+    }
+}
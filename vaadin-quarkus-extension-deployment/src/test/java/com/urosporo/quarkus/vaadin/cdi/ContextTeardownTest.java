@@ -0,0 +1,169 @@
+package com.urosporo.quarkus.vaadin.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.urosporo.quarkus.vaadin.VaadinMetrics;
+import com.urosporo.quarkus.vaadin.cdi.annotation.VaadinSessionScoped;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.Unremovable;
+import io.quarkus.test.QuarkusUnitTest;
+
+/**
+ * Tears down storages with a single worker and a batch of two storages: the storages of a batch exceeding the timeout are abandoned, the next
+ * batch gets a timeout of its own, and no thread is spawned beyond the worker.
+ */
+public class ContextTeardownTest {
+
+    private static final long DESTROY_TIMEOUT_MILLIS = 200;
+
+    @RegisterExtension
+    static final QuarkusUnitTest TEST = new QuarkusUnitTest().setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+            .addClasses(GateBean.class, SlowBean.class, FastBean.class)
+            // read by the workarounds of the Vaadin servlet deployment
+            .addAsResource(new StringAsset("{\"productionMode\": true}"), "META-INF/VAADIN/config/flow-build-info.json"));
+
+    private static final CountDownLatch GATE_ENTERED = new CountDownLatch(1);
+
+    private static final CountDownLatch GATE_RELEASED = new CountDownLatch(1);
+
+    private static final Set<Object> DESTROYED = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    @AfterEach
+    void stopTeardown() {
+
+        ContextTeardown.stop(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Test
+    void abandonsTheRestOfABatchExceedingTheTimeout() throws Exception {
+
+        final VaadinMetrics metrics = new VaadinMetrics();
+        ContextTeardown.start(1, 2, 100, DESTROY_TIMEOUT_MILLIS, metrics);
+
+        // holds the worker until the other storages are queued, so they are batched as expected
+        ContextTeardown.destroy(createStorage(GateBean.class), null);
+        assertTrue(GATE_ENTERED.await(10, TimeUnit.SECONDS));
+
+        final ContextualStorage slow = createStorage(SlowBean.class);
+        final List<ContextualStorage> fast = new ArrayList<>();
+        final List<Object> fastInstances = new ArrayList<>();
+        for (int index = 0; index < 3; index++) {
+            final ContextualStorage storage = createStorage(FastBean.class);
+            fast.add(storage);
+            fastInstances.add(storage.getContextualInstances().values().iterator().next());
+        }
+        final Object slowInstance = slow.getContextualInstances().values().iterator().next();
+
+        ContextTeardown.destroy(slow, null);
+        for (final ContextualStorage storage : fast) {
+            ContextTeardown.destroy(storage, null);
+        }
+        GATE_RELEASED.countDown();
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (metrics.getQueuedTeardowns() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        ContextTeardown.stop(TimeUnit.SECONDS.toMillis(10));
+
+        // the first batch: the slow storage exceeds the timeout, the fast one after it is abandoned
+        assertTrue(DESTROYED.contains(slowInstance));
+        assertFalse(DESTROYED.contains(fastInstances.get(0)));
+        assertTrue(fast.get(0).getContextualInstances().isEmpty(), "the abandoned instances are dropped");
+        // the second batch
+        assertTrue(DESTROYED.contains(fastInstances.get(1)));
+        assertTrue(DESTROYED.contains(fastInstances.get(2)));
+
+        assertEquals(1, metrics.getTimedOutTeardowns());
+        assertEquals(4, metrics.getDestroyedStorages());
+        assertEquals(0, metrics.getQueuedTeardowns());
+        assertFalse(Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().startsWith("vaadin-context-destroyer")));
+    }
+
+    @Test
+    void destroysInTheCallingThreadUnlessStarted() {
+
+        final ContextualStorage storage = createStorage(FastBean.class);
+        final Object instance = storage.getContextualInstances().values().iterator().next();
+
+        ContextTeardown.destroy(storage, null);
+
+        assertTrue(DESTROYED.contains(instance));
+        assertTrue(storage.getContextualInstances().isEmpty());
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static ContextualStorage createStorage(final Class<?> beanClass) {
+
+        final BeanManager beanManager = Arc.container().beanManager();
+        final Bean bean = beanManager.resolve(beanManager.getBeans(beanClass));
+        final ContextualStorage storage = new ContextualStorage(beanManager, false, VaadinSessionScoped.class);
+        storage.createContextualInstance(bean, beanManager.createCreationalContext(bean));
+        return storage;
+    }
+
+    @VaadinSessionScoped
+    @Unremovable
+    public static class GateBean {
+
+        @PreDestroy
+        void destroy() {
+
+            GATE_ENTERED.countDown();
+            try {
+                GATE_RELEASED.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @VaadinSessionScoped
+    @Unremovable
+    public static class SlowBean {
+
+        @PreDestroy
+        void destroy() {
+
+            try {
+                Thread.sleep(2 * DESTROY_TIMEOUT_MILLIS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            DESTROYED.add(this);
+        }
+    }
+
+    @VaadinSessionScoped
+    @Unremovable
+    public static class FastBean {
+
+        @PreDestroy
+        void destroy() {
+
+            DESTROYED.add(this);
+        }
+    }
+}
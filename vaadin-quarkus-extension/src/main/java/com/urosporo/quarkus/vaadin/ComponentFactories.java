@@ -0,0 +1,57 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Class-keyed table of the component factories generated at build time.
+ * <p>
+ * Every factory creates its component by a plain constructor call, so creating a registered component needs neither a reflective constructor
+ * lookup nor a reflective invocation. The table is filled once at static init and only read afterwards.
+ *
+ * @since 1.1.0
+ */
+public class ComponentFactories {
+
+    /**
+     * Implemented by the class generated at build time, which registers all the generated factories.
+     */
+    public interface Registrar {
+
+        void register(ComponentFactories factories);
+    }
+
+    private final Map<Class<?>, Supplier<?>> factories = new HashMap<>();
+
+    public void register(final Class<?> type, final Supplier<?> factory) {
+
+        this.factories.put(type, factory);
+    }
+
+    /**
+     * @param <T>
+     *            the component type
+     * @param type
+     *            the exact class to instantiate
+     * @return a new instance or <code>null</code> if there is no generated factory for the given type
+     */
+    public <T> T create(final Class<T> type) {
+
+        final Supplier<?> factory = this.factories.get(type);
+        if (factory == null) {
+            return null;
+        }
+        return type.cast(factory.get());
+    }
+
+    public boolean contains(final Class<?> type) {
+
+        return this.factories.containsKey(type);
+    }
+
+    public int size() {
+
+        return this.factories.size();
+    }
+}
@@ -0,0 +1,107 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentEvent;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.internal.JsonCodec;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * Class-keyed table of the {@link DomEventFactory DomEventFactories} generated at build time.
+ * <p>
+ * {@code ComponentEventBus#createEventForDomEvent} is patched at build time to ask {@link #create(Class, DomEvent, Component)} first and only
+ * falls back to its reflective constructor lookup if there is no generated factory for the event type.
+ *
+ * @since 1.1.0
+ */
+public final class DomEventFactories {
+
+    /**
+     * Implemented by the class generated at build time, which registers all the generated factories.
+     */
+    public interface Registrar {
+
+        void register(DomEventFactories factories);
+    }
+
+    private static volatile DomEventFactories current = new DomEventFactories();
+
+    private final Map<Class<?>, DomEventFactory> factories = new HashMap<>();
+
+    private DomEventFactories() {
+
+        // filled by install
+    }
+
+    public void register(final Class<?> eventType, final DomEventFactory factory) {
+
+        this.factories.put(eventType, factory);
+    }
+
+    /**
+     * Replaces the current factories, e.g. after a live reload.
+     *
+     * @param registrar
+     *            the generated registrar
+     * @return the number of installed factories
+     */
+    public static int install(final Registrar registrar) {
+
+        final DomEventFactories factories = new DomEventFactories();
+        registrar.register(factories);
+        current = factories;
+        return factories.factories.size();
+    }
+
+    /**
+     * Called by the patched {@code ComponentEventBus}.
+     *
+     * @param eventType
+     *            the {@code @DomEvent} annotated event type
+     * @param domEvent
+     *            the event sent by the client
+     * @param source
+     *            the component the event is fired on
+     * @return the event or <code>null</code> if there is no generated factory for the event type
+     */
+    public static ComponentEvent<?> create(final Class<?> eventType, final DomEvent domEvent, final Component source) {
+
+        final DomEventFactory factory = current.factories.get(eventType);
+        if (factory == null) {
+            return null;
+        }
+        return factory.create(source, domEvent.getEventData());
+    }
+
+    public static Object decode(final JsonObject eventData, final String expression, final Class<?> type) {
+
+        return JsonCodec.decodeAs(get(eventData, expression), type);
+    }
+
+    public static boolean decodeAsBoolean(final JsonObject eventData, final String expression) {
+
+        return JsonCodec.decodeAs(get(eventData, expression), boolean.class);
+    }
+
+    public static int decodeAsInt(final JsonObject eventData, final String expression) {
+
+        return JsonCodec.decodeAs(get(eventData, expression), int.class);
+    }
+
+    public static double decodeAsDouble(final JsonObject eventData, final String expression) {
+
+        return JsonCodec.decodeAs(get(eventData, expression), double.class);
+    }
+
+    private static JsonValue get(final JsonObject eventData, final String expression) {
+
+        final JsonValue value = eventData.get(expression);
+        return value == null ? Json.createNull() : value;
+    }
+}
@@ -0,0 +1,18 @@
+package com.urosporo.quarkus.vaadin;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentEvent;
+
+import elemental.json.JsonObject;
+
+/**
+ * Creates a {@code @DomEvent} annotated event out of the event data sent by the client, calling its {@code @EventData} constructor directly.
+ * <p>
+ * Implementations are generated at build time.
+ *
+ * @since 1.1.0
+ */
+public interface DomEventFactory {
+
+    ComponentEvent<?> create(Component source, JsonObject eventData);
+}
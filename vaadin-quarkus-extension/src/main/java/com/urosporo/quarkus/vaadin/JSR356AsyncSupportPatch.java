@@ -22,24 +22,34 @@ import org.atmosphere.cpr.AtmosphereConfig;
 import org.atmosphere.cpr.AtmosphereFramework;
 import org.atmosphere.cpr.WebSocketProcessorFactory;
 import org.atmosphere.util.IOUtils;
+import org.atmosphere.websocket.WebSocketProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.ServletContext;
+import javax.websocket.CloseReason;
 import javax.websocket.DeploymentException;
+import javax.websocket.EndpointConfig;
 import javax.websocket.HandshakeResponse;
+import javax.websocket.Session;
 import javax.websocket.server.HandshakeRequest;
 import javax.websocket.server.ServerContainer;
 import javax.websocket.server.ServerEndpointConfig;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A copy of the JSR356AsyncSupport Atmosphere file. The class is identical to the original, however
- * the {@link AtmosphereConfigurator} is patched to work around https://github.com/mvysny/vaadin-quarkus/issues/17.
+ * the {@link AtmosphereConfigurator} is patched to work around https://github.com/mvysny/vaadin-quarkus/issues/17,
+ * pairing each handshake request with its endpoint when the endpoint is opened.
  * See {@link AtmosphereConfigurator} for more details. Also see
  * https://github.com/Atmosphere/atmosphere/issues/2427 for more details.
  */
@@ -127,25 +137,29 @@ public class JSR356AsyncSupportPatch extends Servlet30CometSupport {
 
     public final static class AtmosphereConfigurator extends ServerEndpointConfig.Configurator {
 
+        /**
+         * How long a handshake request is kept if its endpoint is never opened, e.g. because the upgrade failed.
+         */
+        private static final long EXPIRY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
         private final AtmosphereFramework framework;
         /**
-         * TODO: UGLY!
-         * Quarkus call modifyHandshake BEFORE getEndpointInstance() where other jsr356 do the reverse.
+         * Quarkus calls modifyHandshake() BEFORE getEndpointInstance() where other jsr356 do the reverse.
          * However, because of VertX the thread pool of Undertow handling regular http requests
-         * differ to the thread pool handling websocket requests, so we can't use ThreadLocals to remember
-         * the HandshakeRequest. Use BlockingDeque with the capacity of 1 since we don't want
-         * the requests to get mixed up in case of high concurrency.
-         *
-         * The reasoning for BlockingDeque is that we expect that a call to getEndpointInstance() will
-         * immediately follow call to modifyHandshake(). We will therefore store the request into this deque,
-         * and we will pick it up in getEndpointInstance().
+         * differs from the thread pool handling websocket requests, so we can't use ThreadLocals to remember
+         * the HandshakeRequest, and getEndpointInstance() gets no hint of the connection it's called for.
          *
-         * The deque has a capacity of 1: if there are any concurrent attempts to initialize the endpoint,
-         * any follow-up modifyHandshake() will be delayed until the getEndpointInstance() is called.
+         * The request is therefore paired with its endpoint when the endpoint is opened: both the
+         * HandshakeRequest and the Session are built from the same upgrade exchange, so they share
+         * the request path and query string. The requests are queued by that key, so any number of
+         * handshakes proceed in parallel. Requests with the same key, e.g. concurrent reconnects of the
+         * same UI, are interchangeable and taken in order.
          *
          * For the ThreadLocal-based solution see the original JSR356AsyncSupport class from Atmosphere.
          */
-        private final BlockingDeque<HandshakeRequest> requests = new LinkedBlockingDeque<>(1);
+        private final ConcurrentMap<String, Deque<PendingHandshake>> requests = new ConcurrentHashMap<>();
+
+        private final AtomicLong lastExpiry = new AtomicLong(System.nanoTime());
 
         public AtmosphereConfigurator(AtmosphereFramework framework) {
             this.framework = framework;
@@ -153,25 +167,93 @@ public class JSR356AsyncSupportPatch extends Servlet30CometSupport {
 
         public <T> T getEndpointInstance(Class<T> endpointClass) throws InstantiationException {
             if (JSR356Endpoint.class.isAssignableFrom(endpointClass)) {
-                JSR356Endpoint e = new JSR356Endpoint(framework, WebSocketProcessorFactory.getDefault().getWebSocketProcessor(framework));
-                final HandshakeRequest request = requests.removeFirst();
-                e.handshakeRequest(request);
-                return (T) e;
+                return (T) new CorrelatedEndpoint(this, framework, WebSocketProcessorFactory.getDefault().getWebSocketProcessor(framework));
             } else {
                 return super.getEndpointInstance(endpointClass);
             }
         }
 
         public void modifyHandshake(ServerEndpointConfig sec, HandshakeRequest request, HandshakeResponse response) {
-            try {
-                // if there's an ongoing endpoint initialization, delay this call
-                // until the getEndpointInstance() has been called.
-                if (!requests.offer(request, 1, TimeUnit.SECONDS)) {
-                    throw new RuntimeException("Timed out waiting for getEndpointInstance() to be called");
+            final PendingHandshake handshake = new PendingHandshake(request);
+            requests.compute(key(request.getRequestURI(), request.getQueryString()), (key, queue) -> {
+                final Deque<PendingHandshake> pending = queue == null ? new ArrayDeque<>(1) : queue;
+                pending.add(handshake);
+                return pending;
+            });
+            expire(handshake.created);
+        }
+
+        /**
+         * @return the request of the handshake which opened the session, or null if there is none
+         */
+        HandshakeRequest takeRequest(Session session) {
+            final PendingHandshake[] taken = new PendingHandshake[1];
+            requests.computeIfPresent(key(session.getRequestURI(), session.getQueryString()), (key, pending) -> {
+                taken[0] = pending.poll();
+                return pending.isEmpty() ? null : pending;
+            });
+            return taken[0] == null ? null : taken[0].request;
+        }
+
+        private static String key(URI requestUri, String queryString) {
+            final String path = requestUri.getRawPath();
+            return queryString == null ? path : path + '?' + queryString;
+        }
+
+        /**
+         * Drops the requests of handshakes which never got their endpoint opened, at most once per expiry period.
+         */
+        private void expire(long now) {
+            final long last = lastExpiry.get();
+            if (now - last < EXPIRY_NANOS || !lastExpiry.compareAndSet(last, now)) {
+                return;
+            }
+            for (String key : requests.keySet()) {
+                requests.computeIfPresent(key, (k, pending) -> {
+                    pending.removeIf(handshake -> now - handshake.created > EXPIRY_NANOS);
+                    return pending.isEmpty() ? null : pending;
+                });
+            }
+        }
+    }
+
+    private static final class PendingHandshake {
+
+        private final HandshakeRequest request;
+
+        private final long created = System.nanoTime();
+
+        private PendingHandshake(HandshakeRequest request) {
+            this.request = request;
+        }
+    }
+
+    /**
+     * Takes its handshake request from the configurator when opened.
+     */
+    private static final class CorrelatedEndpoint extends JSR356Endpoint {
+
+        private final AtmosphereConfigurator configurator;
+
+        private CorrelatedEndpoint(AtmosphereConfigurator configurator, AtmosphereFramework framework, WebSocketProcessor webSocketProcessor) {
+            super(framework, webSocketProcessor);
+            this.configurator = configurator;
+        }
+
+        @Override
+        public void onOpen(Session session, EndpointConfig endpointConfig) {
+            final HandshakeRequest request = configurator.takeRequest(session);
+            if (request == null) {
+                logger.warn("No handshake request found for the WebSocket session {}", session.getRequestURI());
+                try {
+                    session.close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Handshake request not found"));
+                } catch (IOException e) {
+                    logger.trace("", e);
                 }
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+                return;
             }
+            handshakeRequest(request);
+            super.onOpen(session, endpointConfig);
         }
     }
-}
\ No newline at end of file
+}
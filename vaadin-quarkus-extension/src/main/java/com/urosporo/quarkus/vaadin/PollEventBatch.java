@@ -0,0 +1,56 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.vaadin.flow.component.PollEvent;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * The {@link PollEvent}s of a UI or session within an interval, delivered to CDI observers once the interval has elapsed if the poll events are
+ * batched, see {@link PollEventMode#BATCH_PER_UI} and {@link PollEventMode#BATCH_PER_SESSION}.
+ * <p>
+ * It is fired while the session is locked. If batched per UI, the UI is the current one.
+ *
+ * @since 1.1.0
+ */
+public final class PollEventBatch {
+
+    private final VaadinSession session;
+
+    private final List<UI> uis;
+
+    private final int polls;
+
+    public PollEventBatch(final VaadinSession session, final List<UI> uis, final int polls) {
+
+        this.session = session;
+        this.uis = Collections.unmodifiableList(uis);
+        this.polls = polls;
+    }
+
+    /**
+     * @return the session of the polling UIs
+     */
+    public VaadinSession getSession() {
+
+        return this.session;
+    }
+
+    /**
+     * @return the UIs which polled within the interval and are still attached, in the order of their first poll
+     */
+    public List<UI> getUIs() {
+
+        return this.uis;
+    }
+
+    /**
+     * @return the number of polls within the interval
+     */
+    public int getPolls() {
+
+        return this.polls;
+    }
+}
@@ -0,0 +1,38 @@
+package com.urosporo.quarkus.vaadin;
+
+/**
+ * How the {@code PollEvent}s of the UIs are delivered to CDI observers.
+ *
+ * @since 1.1.0
+ */
+public enum PollEventMode {
+
+    /**
+     * Every poll is delivered.
+     */
+    ALL,
+
+    /**
+     * At most one poll per UI and interval is delivered. The first poll is delivered at once, the following ones within the interval are
+     * coalesced: the last of them is delivered when the interval has elapsed, the others are dropped.
+     */
+    THROTTLE_PER_UI,
+
+    /**
+     * At most one poll per session and interval is delivered, whichever UI of the session polls. The first poll is delivered at once, the
+     * following ones within the interval are coalesced: the last of them is delivered when the interval has elapsed, the others are dropped.
+     */
+    THROTTLE_PER_SESSION,
+
+    /**
+     * No poll is delivered as such. The polls of a UI within an interval are delivered as one {@link PollEventBatch} when the interval has
+     * elapsed.
+     */
+    BATCH_PER_UI,
+
+    /**
+     * No poll is delivered as such. The polls of the UIs of a session within an interval are delivered as one {@link PollEventBatch} when the
+     * interval has elapsed.
+     */
+    BATCH_PER_SESSION
+}
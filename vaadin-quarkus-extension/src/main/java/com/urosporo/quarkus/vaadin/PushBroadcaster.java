@@ -0,0 +1,279 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import com.urosporo.quarkus.vaadin.cdi.annotation.UIScoped;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.shared.Registration;
+
+import io.quarkus.arc.Unremovable;
+
+/**
+ * Publishes messages to the UIs subscribed to a topic, across all the sessions.
+ * <p>
+ * A UI subscribes while it's the current one, e.g. from a {@link UIScoped @UIScoped} bean or a component of the UI. Its subscriptions are held
+ * by a UI scoped bean and removed with it, i.e. when the UI is detached.
+ * <p>
+ * The messages are handed to the listeners by {@link UI#access(com.vaadin.flow.server.Command)}, so the listeners may change the UI and the
+ * changes are pushed. The accesses are scheduled by a limited number of threads, each taking a batch of subscriptions, so a publisher never
+ * waits for the session locks. A full queue of batches makes the publisher schedule them itself. Each subscription queues the messages waiting
+ * for its access: the ones published meanwhile are delivered by the same access, and the oldest ones are dropped beyond the configured maximum,
+ * so a busy UI never piles up messages. An access cancelled before it ran, through the pending access queue of the session, is replaced by
+ * the next message published to the subscription.
+ *
+ * @since 1.1.0
+ */
+@ApplicationScoped
+@Unremovable
+public class PushBroadcaster {
+
+    private final Map<String, Set<Subscription>> topics = new ConcurrentHashMap<>();
+
+    @Inject
+    QuarkusBuildContext vaadinQuarkusContext;
+
+    @Inject
+    VaadinMetrics metrics;
+
+    @Inject
+    Instance<UITopicSubscriptions> uiSubscriptions;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Subscribes the current UI to a topic.
+     *
+     * @param <T>
+     *            the type of the messages the listener accepts
+     * @param topic
+     *            the topic to subscribe to
+     * @param messageType
+     *            the type of the messages the listener accepts, the others published to the topic are skipped
+     * @param listener
+     *            called with each message while the UI is locked
+     * @return the registration to unsubscribe before the UI is detached
+     * @throws IllegalStateException
+     *             if there is no current UI
+     */
+    public <T> Registration subscribe(final String topic, final Class<T> messageType, final Consumer<? super T> listener) {
+
+        final UI ui = UI.getCurrent();
+        if (ui == null) {
+            throw new IllegalStateException("There is no current UI to subscribe to " + topic);
+        }
+
+        final UITopicSubscriptions owner = this.uiSubscriptions.get();
+        final Subscription subscription = new Subscription(ui, topic, owner, messageType,
+                message -> listener.accept(messageType.cast(message)));
+        owner.add(subscription);
+        this.topics.compute(topic, (key, subscriptions) -> {
+
+            final Set<Subscription> topicSubscriptions = subscriptions == null ? ConcurrentHashMap.newKeySet() : subscriptions;
+            topicSubscriptions.add(subscription);
+            return topicSubscriptions;
+        });
+        return subscription;
+    }
+
+    /**
+     * Publishes a message to the UIs subscribed to a topic. The message is delivered asynchronously.
+     *
+     * @param topic
+     *            the topic to publish to
+     * @param message
+     *            the message
+     */
+    public void publish(final String topic, final Object message) {
+
+        this.metrics.messagePublished();
+        final Set<Subscription> subscriptions = this.topics.getOrDefault(topic, Collections.emptySet());
+        final int batchSize = this.vaadinQuarkusContext.getBroadcastBatchSize();
+        List<Subscription> batch = new ArrayList<>();
+        for (final Subscription subscription : subscriptions) {
+            if (subscription.offer(message)) {
+                batch.add(subscription);
+                if (batch.size() == batchSize) {
+                    schedule(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            schedule(batch);
+        }
+    }
+
+    /**
+     * @param topic
+     *            the topic
+     * @return the number of UIs subscribed to the topic
+     */
+    public int getSubscriberCount(final String topic) {
+
+        return this.topics.getOrDefault(topic, Collections.emptySet()).size();
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+
+    private void schedule(final List<Subscription> batch) {
+
+        getExecutor().execute(() -> batch.forEach(Subscription::schedule));
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+
+        if (this.executor == null) {
+            final int parallelism = this.vaadinQuarkusContext.getBroadcastParallelism();
+            final AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(this.vaadinQuarkusContext.getBroadcastQueueCapacity()), runnable -> {
+
+                        final Thread thread = new Thread(runnable, "vaadin-push-broadcaster-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+        return this.executor;
+    }
+
+    /**
+     * The subscription of a UI to a topic, with the messages waiting for its access.
+     */
+    private final class Subscription implements Registration {
+
+        private final UI ui;
+
+        private final String topic;
+
+        private final UITopicSubscriptions owner;
+
+        private final Class<?> messageType;
+
+        private final Consumer<Object> listener;
+
+        private final Queue<Object> pending = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger pendingCount = new AtomicInteger();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private volatile Delivery delivery;
+
+        private Subscription(final UI ui, final String topic, final UITopicSubscriptions owner, final Class<?> messageType,
+                final Consumer<Object> listener) {
+
+            this.ui = ui;
+            this.topic = topic;
+            this.owner = owner;
+            this.messageType = messageType;
+            this.listener = listener;
+        }
+
+        /**
+         * @return whether the subscription has to be scheduled, i.e. the message is accepted and no access is pending yet
+         */
+        private boolean offer(final Object message) {
+
+            if (!this.messageType.isInstance(message)) {
+                return false;
+            }
+            this.pending.add(message);
+            if (this.pendingCount.incrementAndGet() > PushBroadcaster.this.vaadinQuarkusContext.getBroadcastMaxPendingMessages()
+                    && this.pending.poll() != null) {
+                this.pendingCount.decrementAndGet();
+                PushBroadcaster.this.metrics.messageDropped();
+            }
+            if (this.scheduled.compareAndSet(false, true)) {
+                return true;
+            }
+            // the flag is only reset by the delivery, which a cancelled access never runs
+            final Delivery pending = this.delivery;
+            return pending != null && pending.isCancelled() && pending.replaced.compareAndSet(false, true);
+        }
+
+        private void schedule() {
+
+            // set before the access, which might deliver at once and let the next message schedule another
+            final Delivery next = new Delivery();
+            this.delivery = next;
+            try {
+                next.access = SlowClientGuard.accessExempt(this.ui, next);
+            } catch (final UIDetachedException e) {
+                remove();
+            }
+        }
+
+        private void deliver() {
+
+            // a message offered from now on schedules another access
+            this.scheduled.set(false);
+            Object message;
+            while ((message = this.pending.poll()) != null) {
+                this.pendingCount.decrementAndGet();
+                PushBroadcaster.this.metrics.messageDelivered();
+                this.listener.accept(message);
+            }
+        }
+
+        @Override
+        public void remove() {
+
+            PushBroadcaster.this.topics.computeIfPresent(this.topic, (key, subscriptions) -> {
+
+                subscriptions.remove(this);
+                return subscriptions.isEmpty() ? null : subscriptions;
+            });
+            this.owner.remove(this);
+        }
+
+        /**
+         * An access delivering the pending messages.
+         */
+        private final class Delivery implements Command {
+
+            private final AtomicBoolean replaced = new AtomicBoolean();
+
+            private volatile Future<Void> access;
+
+            @Override
+            public void execute() {
+
+                deliver();
+            }
+
+            private boolean isCancelled() {
+
+                final Future<Void> future = this.access;
+                return future != null && future.isCancelled();
+            }
+        }
+    }
+}
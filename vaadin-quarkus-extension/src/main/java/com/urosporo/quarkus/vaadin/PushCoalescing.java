@@ -0,0 +1,145 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.shared.communication.PushMode;
+
+/**
+ * Coalesces the automatic pushes of the UIs.
+ * <p>
+ * Unless {@link #start(long, int, long, VaadinMetrics, Executor) started}, every automatic push is sent at once, i.e. when the session is
+ * unlocked after a {@link UI#access(com.vaadin.flow.server.Command)}. Once started, the first push of a UI is deferred for the configured window
+ * and the changes of the following accesses are sent along with it, as one message. The pushes are sent at once after the maximum number of
+ * deferred pushes, or once the message would exceed the maximum size, so a busy UI still sends its changes regularly and in messages of a
+ * bounded size. As the changes are only serialized when sent, the size of a message is estimated by the size of the last message of the UI
+ * per push it carried. Manual pushes are never deferred.
+ * <p>
+ * The windows of all the UIs are timed by a single thread, which only hands the flushes over to the executor: a flush accesses its UI, which
+ * might run the pending tasks of the session and send the push, so a slow session or client never delays the flushes of the others.
+ *
+ * @since 1.1.0
+ */
+public final class PushCoalescing {
+
+    private static volatile PushCoalescing current;
+
+    private final long windowMillis;
+
+    private final int maxDeferredPushes;
+
+    private final long maxMessageBytes;
+
+    private final VaadinMetrics metrics;
+
+    private final Executor executor;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private PushCoalescing(final long windowMillis, final int maxDeferredPushes, final long maxMessageBytes, final VaadinMetrics metrics,
+            final Executor executor) {
+
+        this.windowMillis = windowMillis;
+        this.maxDeferredPushes = maxDeferredPushes;
+        this.maxMessageBytes = maxMessageBytes;
+        this.metrics = metrics;
+        this.executor = executor;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+
+            final Thread thread = new Thread(runnable, "vaadin-push-coalescing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Starts coalescing the automatic pushes of the UIs initialized from now on.
+     *
+     * @param windowMillis
+     *            how long the first push of a UI is deferred
+     * @param maxDeferredPushes
+     *            the maximum number of pushes of a UI deferred into one
+     * @param maxMessageBytes
+     *            the maximum estimated UTF-8 encoded length of a message of deferred pushes
+     * @param metrics
+     *            to publish the deferred and sent pushes to
+     * @param executor
+     *            to run the flushes at the end of the windows
+     */
+    public static void start(final long windowMillis, final int maxDeferredPushes, final long maxMessageBytes, final VaadinMetrics metrics,
+            final Executor executor) {
+
+        current = new PushCoalescing(windowMillis, maxDeferredPushes, maxMessageBytes, metrics, executor);
+    }
+
+    /**
+     * Stops coalescing, the deferred pushes are sent with the next change of their UIs.
+     */
+    public static void stop() {
+
+        final PushCoalescing coalescing = current;
+        if (coalescing != null) {
+            current = null;
+            coalescing.scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the started coalescing or <code>null</code>
+     */
+    static PushCoalescing current() {
+
+        return current;
+    }
+
+    /**
+     * @param ui
+     *            the pushing UI
+     * @param deferredPushes
+     *            the number of pushes of the UI deferred already
+     * @param pushBytes
+     *            the estimated length of the changes of a push of the UI, 0 if unknown
+     * @return whether the push is deferred too
+     */
+    boolean isDeferrable(final UI ui, final int deferredPushes, final long pushBytes) {
+
+        return current == this && ui.getPushConfiguration().getPushMode() == PushMode.AUTOMATIC
+                && deferredPushes + 1 < this.maxDeferredPushes && (deferredPushes + 1) * pushBytes < this.maxMessageBytes;
+    }
+
+    /**
+     * Runs the flush by the executor once the window has elapsed.
+     *
+     * @return whether the flush is scheduled, i.e. not stopped meanwhile
+     */
+    boolean schedule(final Runnable flush) {
+
+        try {
+            this.scheduler.schedule(() -> dispatch(flush), this.windowMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs on the scheduler thread, which never accesses a UI itself.
+     */
+    private void dispatch(final Runnable flush) {
+
+        try {
+            this.executor.execute(flush);
+        } catch (final RejectedExecutionException e) {
+            // shutting down, the deferred pushes are sent with the next change
+        }
+    }
+
+    VaadinMetrics getMetrics() {
+
+        return this.metrics;
+    }
+}
@@ -0,0 +1,20 @@
+package com.urosporo.quarkus.vaadin;
+
+/**
+ * How the WebSocket push connections of the UIs are served.
+ *
+ * @since 1.1.0
+ */
+public enum PushTransport {
+
+    /**
+     * Through Atmosphere and the JSR 356 endpoint of Undertow.
+     */
+    ATMOSPHERE,
+
+    /**
+     * Directly on the Vert.x WebSockets of the HTTP server, see {@link VertxPushTransport}. Clients which can't connect fall back to long polling
+     * through Atmosphere.
+     */
+    VERTX_WEBSOCKET
+}
@@ -2,41 +2,250 @@ package com.urosporo.quarkus.vaadin;
 
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
-import static java.util.stream.Collectors.toList;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import javax.enterprise.context.ApplicationScoped;
 
 import org.jboss.logging.Logger;
 
 import com.vaadin.flow.component.Component;
+import com.vaadin.flow.router.RouterLayout;
 
 @ApplicationScoped
 public class QuarkusBuildContext {
 
     private static final Logger LOGGER = Logger.getLogger(QuarkusBuildContext.class);
 
-    private final List<String> routes = new ArrayList<>();
+    private List<RouteDefinition> routes = Collections.emptyList();
 
-    public void registerRoute(final String routeAnnotatedBean) {
+    private final ComponentFactories componentFactories = new ComponentFactories();
 
-        addIfNotExist(routeAnnotatedBean, this.routes);
+    private Map<String, String> beanIdentifiers = Collections.emptyMap();
+
+    private Set<String> plainClasses = Collections.emptySet();
+
+    private Set<String> observedEventTypes = Collections.emptySet();
+
+    private Set<String> asyncObservedEventTypes = Collections.emptySet();
+
+    private int routeScopeKeepInactive;
+
+    private int broadcastParallelism = 1;
+
+    private int broadcastBatchSize = 1;
+
+    private int broadcastQueueCapacity = 1;
+
+    private int broadcastMaxPendingMessages = 1;
+
+    private String i18nBundleName;
+
+    private List<Locale> i18nLocales = Collections.singletonList(Locale.getDefault());
+
+    public void registerRoutes(final List<RouteDefinition> routeTable) {
+
+        this.routes = Collections.unmodifiableList(new ArrayList<>(routeTable));
+    }
+
+    public List<RouteDefinition> getRoutes() {
+
+        return this.routes;
+    }
+
+    public void registerComponentFactories(final ComponentFactories.Registrar registrar) {
+
+        registrar.register(this.componentFactories);
+
+        LOGGER.debug(this.componentFactories.size() + " generated component factories registered.");
+    }
+
+    public ComponentFactories getComponentFactories() {
+
+        return this.componentFactories;
+    }
+
+    /**
+     * Registers the per-class instantiation decisions made at build time.
+     *
+     * @param beanIdentifiers
+     *            the identifier of the single bean a class resolves to, keyed by the class name
+     * @param plainClasses
+     *            the names of the classes which aren't CDI beans
+     */
+    public void registerInstantiationTable(final Map<String, String> beanIdentifiers, final Set<String> plainClasses) {
+
+        this.beanIdentifiers = Collections.unmodifiableMap(new HashMap<>(beanIdentifiers));
+        this.plainClasses = Collections.unmodifiableSet(new HashSet<>(plainClasses));
+    }
+
+    /**
+     * @param className
+     *            the class to instantiate
+     * @return the identifier of the bean resolved at build time or <code>null</code> if there is none
+     */
+    public String getBeanIdentifier(final String className) {
+
+        return this.beanIdentifiers.get(className);
+    }
+
+    /**
+     * @param className
+     *            the class to instantiate
+     * @return whether the class is known not to be a CDI bean
+     */
+    public boolean isPlainClass(final String className) {
+
+        return this.plainClasses.contains(className);
+    }
+
+    /**
+     * @param eventTypes
+     *            the names of the types observed by synchronous observer methods
+     * @param asyncEventTypes
+     *            the names of the types observed by asynchronous observer methods
+     */
+    public void registerObservedEventTypes(final Set<String> eventTypes, final Set<String> asyncEventTypes) {
+
+        this.observedEventTypes = Collections.unmodifiableSet(new HashSet<>(eventTypes));
+        this.asyncObservedEventTypes = Collections.unmodifiableSet(new HashSet<>(asyncEventTypes));
+    }
+
+    /**
+     * @param eventType
+     *            the type of the event to fire
+     * @return whether there is any synchronous observer of the event type, or one of its supertypes
+     */
+    public boolean isObserved(final Class<?> eventType) {
+
+        return isObserved(eventType, this.observedEventTypes);
+    }
+
+    /**
+     * @param eventType
+     *            the type of the event to fire
+     * @return whether there is any asynchronous observer of the event type, or one of its supertypes
+     */
+    public boolean isObservedAsync(final Class<?> eventType) {
+
+        return isObserved(eventType, this.asyncObservedEventTypes);
     }
 
-    public List<Class<? extends Component>> getRoutes() {
+    private static boolean isObserved(final Class<?> eventType, final Set<String> observedTypes) {
 
-        return this.routes.stream().map(this::findComponentClass).filter(Optional::isPresent).map(Optional::get).collect(toList());
+        for (Class<?> type = eventType; type != null; type = type.getSuperclass()) {
+            if (observedTypes.contains(type.getName()) || isAnyObserved(type.getInterfaces(), observedTypes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAnyObserved(final Class<?>[] interfaces, final Set<String> observedTypes) {
+
+        for (final Class<?> type : interfaces) {
+            if (observedTypes.contains(type.getName()) || isAnyObserved(type.getInterfaces(), observedTypes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param keepInactive
+     *            the number of left owners whose route scoped beans are kept
+     */
+    public void registerRouteScope(final int keepInactive) {
+
+        this.routeScopeKeepInactive = keepInactive;
+    }
+
+    public int getRouteScopeKeepInactive() {
+
+        return this.routeScopeKeepInactive;
+    }
+
+    /**
+     * @param parallelism
+     *            the maximum number of threads scheduling the accesses of a publication
+     * @param batchSize
+     *            the maximum number of UIs a thread schedules the accesses of at once
+     * @param queueCapacity
+     *            the maximum number of batches waiting for a thread
+     * @param maxPendingMessages
+     *            the maximum number of messages waiting for the access of a subscribed UI
+     */
+    public void registerBroadcast(final int parallelism, final int batchSize, final int queueCapacity, final int maxPendingMessages) {
+
+        this.broadcastParallelism = parallelism;
+        this.broadcastBatchSize = batchSize;
+        this.broadcastQueueCapacity = queueCapacity;
+        this.broadcastMaxPendingMessages = maxPendingMessages;
+    }
+
+    public int getBroadcastParallelism() {
+
+        return this.broadcastParallelism;
+    }
+
+    public int getBroadcastBatchSize() {
+
+        return this.broadcastBatchSize;
     }
 
-    private void addIfNotExist(final String annotatedBean, final List<String> annotatedBeans) {
+    public int getBroadcastQueueCapacity() {
+
+        return this.broadcastQueueCapacity;
+    }
+
+    public int getBroadcastMaxPendingMessages() {
+
+        return this.broadcastMaxPendingMessages;
+    }
+
+    public void registerI18n(final String bundleName, final List<String> localeTags) {
+
+        this.i18nBundleName = bundleName;
+        if (!localeTags.isEmpty()) {
+            final List<Locale> locales = new ArrayList<>(localeTags.size());
+            for (final String localeTag : localeTags) {
+                locales.add(Locale.forLanguageTag(localeTag));
+            }
+            this.i18nLocales = Collections.unmodifiableList(locales);
+        }
+    }
+
+    public String getI18nBundleName() {
+
+        return this.i18nBundleName;
+    }
+
+    public List<Locale> getI18nLocales() {
+
+        return this.i18nLocales;
+    }
+
+    public Optional<Class<? extends Component>> findNavigationTarget(final RouteDefinition route) {
+
+        return findComponentClass(route.getNavigationTarget());
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Class<? extends RouterLayout>> findParentLayouts(final RouteDefinition route) {
 
-        final boolean alreadyExist = annotatedBeans.contains(annotatedBean);
-        if (!alreadyExist) {
-            annotatedBeans.add(annotatedBean);
+        final List<Class<? extends RouterLayout>> parentLayouts = new ArrayList<>(route.getParentLayouts().size());
+        for (final String parentLayout : route.getParentLayouts()) {
+            findComponentClass(parentLayout).ifPresent(layout -> parentLayouts.add((Class<? extends RouterLayout>) (Class<?>) layout));
         }
+        return parentLayouts;
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,353 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.atmosphere.cpr.AtmosphereResource;
+
+import com.vaadin.flow.component.PushConfiguration;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.server.communication.AtmospherePushConnection;
+
+/**
+ * A push connection deferring the automatic pushes of its UI, see {@link PushCoalescing}, and holding them back while too much of its data is
+ * unsent, see {@link SlowClientGuard}.
+ * <p>
+ * It's connected either by Atmosphere or, if started, by the {@link VertxPushTransport}: then the messages are written to the Vert.x WebSocket
+ * instead of being broadcast to the Atmosphere resource. Atmosphere still connects the clients falling back to long polling.
+ * <p>
+ * The pushes are called with the session locked, and only if the UI has changes. The state of the connection is only accessed with the session
+ * locked, as the scheduled flushes and drain checks are accesses of the UI too: the push at the end of their access, which still finds the
+ * deferred changes, sends them.
+ *
+ * @since 1.1.0
+ */
+public class QuarkusPushConnection extends AtmospherePushConnection {
+
+    private static final long DISCONNECT_TIMEOUT_MILLIS = 1000;
+
+    private final UI ui;
+
+    private final transient PushCoalescing coalescing;
+
+    private final transient SlowClientGuard guard;
+
+    private final transient Deque<PendingWrite> pendingWrites = new ArrayDeque<>();
+
+    private long unsentPushBytes;
+
+    private int deferredPushes;
+
+    /**
+     * The estimated length of the changes of a push, by the last message.
+     */
+    private long pushBytes;
+
+    /**
+     * The number of pushes the next message carries.
+     */
+    private int messagePushes = 1;
+
+    private boolean flushDue;
+
+    private boolean heldBack;
+
+    private transient volatile Future<Void> drainCheck;
+
+    private transient VertxPushSocket socket;
+
+    /**
+     * The push to send once the socket connects, as the super class tracks it for its resource.
+     */
+    private transient State pendingPush;
+
+    QuarkusPushConnection(final UI ui, final PushCoalescing coalescing, final SlowClientGuard guard) {
+
+        super(ui);
+        this.ui = ui;
+        this.coalescing = coalescing;
+        this.guard = guard;
+    }
+
+    /**
+     * Lets the push connection of the UI coalesce the automatic pushes, bound the unsent data and connect to Vert.x WebSockets, if started.
+     *
+     * @param ui
+     *            the UI being initialized
+     */
+    public static void install(final UI ui) {
+
+        final PushCoalescing coalescing = PushCoalescing.current();
+        final SlowClientGuard guard = SlowClientGuard.current();
+        if (coalescing == null && guard == null && VertxPushTransport.current() == null) {
+            return;
+        }
+
+        final PushConfiguration pushConfiguration = ui.getPushConfiguration();
+        pushConfiguration.setPushConnectionFactory(pushUI -> new QuarkusPushConnection(pushUI, coalescing, guard));
+        // the push mode of the @Push annotation is set before the UI init listeners, along with the default connection
+        if (pushConfiguration.getPushMode().isEnabled()) {
+            ui.getInternals().setPushConnection(new QuarkusPushConnection(ui, coalescing, guard));
+        }
+    }
+
+    @Override
+    public void push() {
+
+        if (this.guard != null && isConnected() && holdBack()) {
+            return;
+        }
+
+        if (this.flushDue || !isConnected() || this.coalescing == null
+                || !this.coalescing.isDeferrable(this.ui, this.deferredPushes, this.pushBytes)) {
+            flush();
+        } else if (this.deferredPushes > 0 || this.coalescing.schedule(this::requestFlush)) {
+            this.deferredPushes++;
+            this.coalescing.getMetrics().pushDeferred();
+        } else {
+            flush();
+        }
+    }
+
+    @Override
+    public void push(final boolean async) {
+
+        if (!isConnected()) {
+            this.pendingPush = async && this.pendingPush != State.RESPONSE_PENDING ? State.PUSH_PENDING : State.RESPONSE_PENDING;
+        }
+        super.push(async);
+    }
+
+    @Override
+    public boolean isConnected() {
+
+        return this.socket != null || super.isConnected();
+    }
+
+    @Override
+    protected void sendMessage(final String message) {
+
+        final long bytes = SlowClientGuard.getEncodedLength(message);
+        if (this.coalescing != null) {
+            this.pushBytes = bytes / this.messagePushes;
+            this.messagePushes = 1;
+        }
+        final VertxPushSocket target = this.socket;
+        if (this.guard == null) {
+            if (target == null) {
+                super.sendMessage(message);
+            } else {
+                target.send(message);
+            }
+            return;
+        }
+
+        // broadcast like the super class, keeping the future of each message
+        final Future<?> written;
+        if (target == null) {
+            final AtmosphereResource resource = getResource();
+            written = resource.getBroadcaster().broadcast(message, resource);
+        } else {
+            written = target.send(message);
+        }
+        this.pendingWrites.add(new PendingWrite(written, bytes));
+        this.unsentPushBytes += bytes;
+        this.guard.getMetrics().pushSent(bytes, this.unsentPushBytes);
+    }
+
+    @Override
+    public void disconnect() {
+
+        if (this.guard != null) {
+            // as the super class does for its last message, not to close the resource while writing
+            final PendingWrite last = this.pendingWrites.peekLast();
+            if (last != null) {
+                try {
+                    last.written.get(DISCONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (final ExecutionException | TimeoutException e) {
+                    // closed anyway
+                }
+            }
+            this.pendingWrites.clear();
+            this.unsentPushBytes = 0;
+        }
+        final VertxPushSocket target = this.socket;
+        if (target == null) {
+            super.disconnect();
+        } else {
+            this.socket = null;
+            target.close();
+        }
+    }
+
+    @Override
+    public void connect(final AtmosphereResource resource) {
+
+        if (this.socket != null) {
+            disconnect();
+        }
+        // the super class sends the pending push itself
+        this.pendingPush = null;
+        super.connect(resource);
+    }
+
+    /**
+     * Connects to the Vert.x WebSocket, sending the push requested while disconnected. Replaces the connection of the UI, if any.
+     *
+     * @param target
+     *            the open socket of the UI
+     */
+    void connect(final VertxPushSocket target) {
+
+        if (isConnected()) {
+            disconnect();
+        }
+        this.socket = target;
+        final State pending = this.pendingPush;
+        this.pendingPush = null;
+        if (pending != null) {
+            push(pending == State.PUSH_PENDING);
+        }
+    }
+
+    boolean isConnectedTo(final VertxPushSocket target) {
+
+        return this.socket == target;
+    }
+
+    /**
+     * Forgets the Vert.x WebSocket once closed, unless replaced meanwhile.
+     */
+    void socketClosed(final VertxPushSocket target) {
+
+        if (this.socket != target) {
+            return;
+        }
+
+        this.socket = null;
+        this.pendingWrites.clear();
+        this.unsentPushBytes = 0;
+    }
+
+    long getUnsentPushBytes() {
+
+        if (this.guard != null) {
+            drainWrites();
+        }
+        return this.unsentPushBytes;
+    }
+
+    private void flush() {
+
+        // not coalescing anymore once deserialized
+        if (this.deferredPushes > 0 && this.coalescing != null) {
+            this.coalescing.getMetrics().deferredPushesSent();
+        }
+        // the message sent by the push carries the changes of the deferred ones
+        this.messagePushes = this.deferredPushes + 1;
+        this.deferredPushes = 0;
+        this.flushDue = false;
+        super.push();
+    }
+
+    private void requestFlush() {
+
+        try {
+            // if the changes were sent with a response meanwhile, the next push is sent at once
+            watchFlush(SlowClientGuard.accessExempt(this.ui, () -> this.flushDue = true));
+        } catch (final UIDetachedException e) {
+            // nothing to send anymore
+        }
+    }
+
+    /**
+     * Requests the flush again if its access is cancelled before it ran, as the deferred pushes would wait for the next change of the UI.
+     */
+    private void watchFlush(final Future<Void> access) {
+
+        if (access.isCancelled()) {
+            requestFlush();
+        } else if (!access.isDone()) {
+            // checked again after a window, unless stopped meanwhile: then the deferred pushes are sent with the next change
+            this.coalescing.schedule(() -> watchFlush(access));
+        }
+    }
+
+    /**
+     * @return whether the push is held back or the UI resynchronized, as too much data is unsent
+     */
+    private boolean holdBack() {
+
+        drainWrites();
+        if (this.unsentPushBytes <= this.guard.getMaxUnsentPushBytes()) {
+            return false;
+        }
+
+        if (this.guard.getPolicy() == SlowClientPolicy.DISCONNECT_AND_RESYNC) {
+            this.guard.getMetrics().slowClientResynced();
+            SlowClientGuard.resync(this.ui);
+            return true;
+        }
+        // a drain check cancelled before it ran, through the pending access queue of the session, is scheduled again
+        final Future<Void> pendingCheck = this.drainCheck;
+        if (!this.heldBack || (pendingCheck != null && pendingCheck.isCancelled())) {
+            this.drainCheck = null;
+            if (!this.guard.scheduleDrainCheck(this::checkDrained)) {
+                this.heldBack = false;
+                return false;
+            }
+            this.heldBack = true;
+        }
+        this.guard.getMetrics().pushHeldBack();
+        return true;
+    }
+
+    private void checkDrained() {
+
+        try {
+            this.drainCheck = SlowClientGuard.accessExempt(this.ui, () -> {
+
+                this.drainCheck = null;
+                drainWrites();
+                // if drained, the push at the end of this access sends the held back changes
+                if (this.unsentPushBytes <= this.guard.getMaxUnsentPushBytes() || !this.guard.scheduleDrainCheck(this::checkDrained)) {
+                    this.heldBack = false;
+                }
+            });
+        } catch (final UIDetachedException e) {
+            // nothing to send anymore
+        }
+    }
+
+    /**
+     * Forgets the messages written, in order, as they are written to the connection in order.
+     */
+    private void drainWrites() {
+
+        PendingWrite write;
+        while ((write = this.pendingWrites.peek()) != null && write.written.isDone()) {
+            this.pendingWrites.poll();
+            this.unsentPushBytes -= write.bytes;
+        }
+    }
+
+    private static final class PendingWrite {
+
+        private final Future<?> written;
+
+        private final long bytes;
+
+        private PendingWrite(final Future<?> written, final long bytes) {
+
+            this.written = written;
+            this.bytes = bytes;
+        }
+    }
+}
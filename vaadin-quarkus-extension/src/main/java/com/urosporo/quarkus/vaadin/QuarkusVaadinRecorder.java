@@ -1,13 +1,147 @@
 package com.urosporo.quarkus.vaadin;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.logging.Logger;
+
+import com.urosporo.quarkus.vaadin.cdi.BeanIndex;
+import com.urosporo.quarkus.vaadin.cdi.ContextTeardown;
+import com.urosporo.quarkus.vaadin.cdi.PollEventThrottle;
+import com.urosporo.quarkus.vaadin.cdi.context.AbstractContextualStorageManager;
+import com.urosporo.quarkus.vaadin.cdi.context.ScopeMemorySampler;
+
+import io.quarkus.arc.Arc;
 import io.quarkus.arc.runtime.BeanContainer;
+import io.quarkus.runtime.RuntimeValue;
+import io.quarkus.runtime.ShutdownContext;
 import io.quarkus.runtime.annotations.Recorder;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
 
 @Recorder
 public class QuarkusVaadinRecorder {
 
-    public void registerRoute(final BeanContainer container, final String routeAnnotatedClassName) {
+    private static final Logger LOGGER = Logger.getLogger(QuarkusVaadinRecorder.class);
+
+    public void registerRoutes(final BeanContainer container, final List<RouteDefinition> routeTable) {
+
+        container.instance(QuarkusBuildContext.class).registerRoutes(routeTable);
+    }
+
+    public void registerComponentFactories(final BeanContainer container, final RuntimeValue<ComponentFactories.Registrar> registrar) {
+
+        container.instance(QuarkusBuildContext.class).registerComponentFactories(registrar.getValue());
+    }
+
+    public void registerInstantiationTable(final BeanContainer container, final Map<String, String> beanIdentifiers,
+            final Set<String> plainClasses) {
+
+        container.instance(QuarkusBuildContext.class).registerInstantiationTable(beanIdentifiers, plainClasses);
+    }
+
+    public void registerObservedEventTypes(final BeanContainer container, final Set<String> eventTypes, final Set<String> asyncEventTypes) {
+
+        container.instance(QuarkusBuildContext.class).registerObservedEventTypes(eventTypes, asyncEventTypes);
+    }
+
+    public void registerRouteScope(final BeanContainer container, final int keepInactive) {
+
+        container.instance(QuarkusBuildContext.class).registerRouteScope(keepInactive);
+    }
+
+    public void registerConcurrentStorages(final boolean concurrent) {
+
+        AbstractContextualStorageManager.setConcurrentMode(concurrent);
+    }
+
+    public void startContextTeardown(final ShutdownContext shutdownContext, final int parallelism, final int batchSize, final int queueCapacity,
+            final long destroyTimeoutMillis, final long shutdownTimeoutMillis) {
+
+        ContextTeardown.start(parallelism, batchSize, queueCapacity, destroyTimeoutMillis, Arc.container().instance(VaadinMetrics.class).get());
+        shutdownContext.addShutdownTask(() -> ContextTeardown.stop(shutdownTimeoutMillis));
+
+        LOGGER.debug("Asynchronous context teardown started with " + parallelism + " workers.");
+    }
+
+    public void startMemorySampler(final ShutdownContext shutdownContext, final double sampleRate, final int maxObjects,
+            final long timeBudgetMillis) {
+
+        ScopeMemorySampler.start(sampleRate, maxObjects, timeBudgetMillis, Arc.container().instance(VaadinMetrics.class).get());
+        shutdownContext.addShutdownTask(ScopeMemorySampler::stop);
+
+        LOGGER.debug("Memory sampler started with a sample rate of " + sampleRate + ".");
+    }
+
+    public void startPushCoalescing(final ShutdownContext shutdownContext, final long windowMillis, final int maxDeferredPushes,
+            final long maxMessageBytes) {
+
+        PushCoalescing.start(windowMillis, maxDeferredPushes, maxMessageBytes, Arc.container().instance(VaadinMetrics.class).get(),
+                Arc.container().getExecutorService());
+        shutdownContext.addShutdownTask(PushCoalescing::stop);
+
+        LOGGER.debug("Push coalescing started with a window of " + windowMillis + " ms.");
+    }
+
+    public void startSlowClientGuard(final ShutdownContext shutdownContext, final SlowClientPolicy policy, final int maxPendingAccessTasks,
+            final long maxUnsentPushBytes) {
+
+        SlowClientGuard.start(policy, maxPendingAccessTasks, maxUnsentPushBytes, Arc.container().instance(VaadinMetrics.class).get());
+        shutdownContext.addShutdownTask(SlowClientGuard::stop);
+
+        LOGGER.debug("Slow client guard started with the policy " + policy + ".");
+    }
+
+    public Handler<RoutingContext> startVertxPushTransport(final ShutdownContext shutdownContext, final long heartbeatIntervalMillis) {
+
+        VertxPushTransport.start(heartbeatIntervalMillis, Arc.container().getExecutorService());
+        shutdownContext.addShutdownTask(VertxPushTransport::stop);
+
+        LOGGER.debug("Vert.x push transport started with a heartbeat interval of " + heartbeatIntervalMillis + " ms.");
+
+        return VertxPushTransport::route;
+    }
+
+    public void startPollEventThrottle(final ShutdownContext shutdownContext, final PollEventMode mode, final long intervalMillis) {
+
+        PollEventThrottle.start(mode, intervalMillis, Arc.container().instance(VaadinMetrics.class).get(), Arc.container().getExecutorService());
+        shutdownContext.addShutdownTask(PollEventThrottle::stop);
+
+        LOGGER.debug("Poll event throttle started with an interval of " + intervalMillis + " ms.");
+    }
+
+    public void registerBroadcast(final BeanContainer container, final int parallelism, final int batchSize, final int queueCapacity,
+            final int maxPendingMessages) {
+
+        container.instance(QuarkusBuildContext.class).registerBroadcast(parallelism, batchSize, queueCapacity, maxPendingMessages);
+    }
+
+    public void registerI18n(final BeanContainer container, final String bundleName, final List<String> localeTags) {
+
+        container.instance(QuarkusBuildContext.class).registerI18n(bundleName, localeTags);
+    }
+
+    /**
+     * @param container
+     *            not used, but the beans have to be resolvable
+     * @param beanIdentifiers
+     *            the bean identifiers in index order, keyed by the scope of their context
+     * @param routeScopeOwners
+     *            the owner class names of the route scoped beans, keyed by the bean identifier
+     */
+    public void registerBeanIndex(final BeanContainer container, final Map<String, List<String>> beanIdentifiers,
+            final Map<String, String> routeScopeOwners) {
+
+        final int indexedBeans = BeanIndex.install(beanIdentifiers, routeScopeOwners);
+
+        LOGGER.debug(indexedBeans + " beans of the Vaadin scopes indexed.");
+    }
+
+    public void registerDomEventFactories(final RuntimeValue<DomEventFactories.Registrar> registrar) {
+
+        final int installedFactories = DomEventFactories.install(registrar.getValue());
 
-        container.instance(QuarkusBuildContext.class).registerRoute(routeAnnotatedClassName);
+        LOGGER.debug(installedFactories + " generated DOM event factories installed.");
     }
 }
@@ -44,8 +44,10 @@ public class QuarkusVaadinWorkarounds implements ServletExtension {
         }
 
         // workaround #2 for https://github.com/mvysny/vaadin-quarkus/issues/17
-        // we need to use a patched JSR356AsyncSupport
-        servletContext.setInitParameter(ApplicationConfig.PROPERTY_COMET_SUPPORT, JSR356AsyncSupportPatch.class.getName());
+        // we need to use a patched JSR356AsyncSupport, unless the WebSockets are served by Vert.x
+        if (servletContext.getInitParameter(ApplicationConfig.PROPERTY_COMET_SUPPORT) == null) {
+            servletContext.setInitParameter(ApplicationConfig.PROPERTY_COMET_SUPPORT, JSR356AsyncSupportPatch.class.getName());
+        }
         servletContext.setInitParameter(ApplicationConfig.USE_SERVLET_CONTEXT_PARAMETERS, "true");
     }
 
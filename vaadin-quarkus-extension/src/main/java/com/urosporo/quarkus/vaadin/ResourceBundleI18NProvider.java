@@ -0,0 +1,119 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+
+import com.urosporo.quarkus.vaadin.cdi.annotation.VaadinServiceEnabled;
+import com.urosporo.quarkus.vaadin.cdi.annotation.VaadinServiceScoped;
+import com.vaadin.flow.i18n.I18NProvider;
+
+/**
+ * {@link I18NProvider} backed by resource bundles, registered as {@link VaadinServiceScoped @VaadinServiceScoped} bean if
+ * {@code quarkus.vaadin.i18n.enabled} is set. It doesn't declare its scope itself, so it isn't discovered otherwise.
+ * <p>
+ * The bundles are read once per provided locale into immutable maps, eagerly. A requested locale is resolved to the best matching provided
+ * locale first, e.g. {@code de-CH} to {@code de}, so the variants sent by the browsers don't load bundles of their own. Parsed {@link MessageFormat MessageFormats} are
+ * cached per locale and key; as they aren't thread safe, a clone of the cached instance does the formatting.
+ *
+ * @since 1.1.0
+ */
+@VaadinServiceEnabled
+@SuppressWarnings("serial")
+public class ResourceBundleI18NProvider implements I18NProvider {
+
+    private static final Logger LOGGER = Logger.getLogger(ResourceBundleI18NProvider.class);
+
+    private final Map<Locale, Map<String, String>> translations = new ConcurrentHashMap<>();
+
+    private final Map<Locale, Map<String, MessageFormat>> messageFormats = new ConcurrentHashMap<>();
+
+    @Inject
+    QuarkusBuildContext vaadinQuarkusContext;
+
+    @PostConstruct
+    void preload() {
+
+        for (final Locale locale : getProvidedLocales()) {
+            getTranslations(locale);
+        }
+    }
+
+    @Override
+    public List<Locale> getProvidedLocales() {
+
+        return this.vaadinQuarkusContext.getI18nLocales();
+    }
+
+    @Override
+    public String getTranslation(final String key, final Locale locale, final Object... params) {
+
+        final Locale effectiveLocale = resolveLocale(locale);
+
+        final String translation = getTranslations(effectiveLocale).get(key);
+        if (translation == null) {
+            LOGGER.debug("Missing translation for key '" + key + "' and locale " + effectiveLocale);
+            return "!" + effectiveLocale.getLanguage() + ": " + key;
+        }
+        if (params == null || params.length == 0) {
+            return translation;
+        }
+
+        final MessageFormat messageFormat = this.messageFormats.computeIfAbsent(effectiveLocale, l -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> new MessageFormat(translation, effectiveLocale));
+        return ((MessageFormat) messageFormat.clone()).format(params);
+    }
+
+    /**
+     * @return the provided locale best matching the requested one, or else the first provided locale
+     */
+    private Locale resolveLocale(final Locale locale) {
+
+        final List<Locale> providedLocales = getProvidedLocales();
+        if (locale == null) {
+            return providedLocales.get(0);
+        }
+        if (providedLocales.contains(locale)) {
+            return locale;
+        }
+        final Locale match = Locale.lookup(Locale.LanguageRange.parse(locale.toLanguageTag()), providedLocales);
+        return match == null ? providedLocales.get(0) : match;
+    }
+
+    private Map<String, String> getTranslations(final Locale locale) {
+
+        return this.translations.computeIfAbsent(locale, this::loadTranslations);
+    }
+
+    private Map<String, String> loadTranslations(final Locale locale) {
+
+        final String bundleName = this.vaadinQuarkusContext.getI18nBundleName();
+        try {
+            final ResourceBundle bundle = ResourceBundle.getBundle(bundleName, locale, Thread.currentThread().getContextClassLoader(),
+                    ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_DEFAULT));
+
+            final Map<String, String> translations = new HashMap<>();
+            for (final String key : bundle.keySet()) {
+                translations.put(key, bundle.getString(key));
+            }
+            LOGGER.debug("Loaded " + translations.size() + " translations of bundle '" + bundleName + "' for locale " + locale);
+            return Collections.unmodifiableMap(translations);
+
+        } catch (final MissingResourceException e) {
+
+            LOGGER.warn("Missing resource bundle '" + bundleName + "' for locale " + locale);
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single entry of the route table which is computed at build time out of the {@code @Route}, {@code @RouteAlias}, {@code @ParentLayout} and
+ * {@code @RoutePrefix} annotations.
+ * <p>
+ * The path is already fully resolved (naming convention, route prefixes of the parent layouts) and the parent layouts are ordered from the
+ * innermost to the outermost one, exactly as expected by {@link com.vaadin.flow.router.RouteConfiguration#setRoute(String, Class, List)}.
+ * <p>
+ * The class is a plain bean so it can be recorded by the {@link QuarkusVaadinRecorder}.
+ *
+ * @since 1.1.0
+ */
+public class RouteDefinition {
+
+    private String path;
+
+    private String navigationTarget;
+
+    private List<String> parentLayouts = new ArrayList<>();
+
+    public RouteDefinition() {
+
+        // needed by the bytecode recorder
+    }
+
+    public RouteDefinition(final String path, final String navigationTarget, final List<String> parentLayouts) {
+
+        this.path = path;
+        this.navigationTarget = navigationTarget;
+        this.parentLayouts = new ArrayList<>(parentLayouts);
+    }
+
+    public String getPath() {
+
+        return this.path;
+    }
+
+    public void setPath(final String path) {
+
+        this.path = path;
+    }
+
+    public String getNavigationTarget() {
+
+        return this.navigationTarget;
+    }
+
+    public void setNavigationTarget(final String navigationTarget) {
+
+        this.navigationTarget = navigationTarget;
+    }
+
+    public List<String> getParentLayouts() {
+
+        return this.parentLayouts;
+    }
+
+    public void setParentLayouts(final List<String> parentLayouts) {
+
+        this.parentLayouts = parentLayouts;
+    }
+
+    @Override
+    public String toString() {
+
+        return "RouteDefinition [path=" + this.path + ", navigationTarget=" + this.navigationTarget + ", parentLayouts=" + this.parentLayouts + "]";
+    }
+}
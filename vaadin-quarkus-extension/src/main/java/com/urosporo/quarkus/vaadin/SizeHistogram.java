@@ -0,0 +1,82 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of sizes in bytes, with buckets growing by a factor of 4 from 1 KiB up to 1 GiB, and a last bucket for anything larger.
+ *
+ * @since 1.1.0
+ */
+public final class SizeHistogram {
+
+    private static final long[] UPPER_BOUNDS = new long[11];
+
+    static {
+        long bound = 1024;
+        for (int index = 0; index < UPPER_BOUNDS.length; index++) {
+            UPPER_BOUNDS[index] = bound;
+            bound *= 4;
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[UPPER_BOUNDS.length + 1];
+
+    private final LongAdder sum = new LongAdder();
+
+    public SizeHistogram() {
+
+        for (int index = 0; index < this.buckets.length; index++) {
+            this.buckets[index] = new LongAdder();
+        }
+    }
+
+    public void record(final long bytes) {
+
+        int index = 0;
+        while (index < UPPER_BOUNDS.length && bytes > UPPER_BOUNDS[index]) {
+            index++;
+        }
+        this.buckets[index].increment();
+        this.sum.add(bytes);
+    }
+
+    /**
+     * @return the inclusive upper bounds of the buckets in bytes, the last bucket has none
+     */
+    public long[] getUpperBounds() {
+
+        return UPPER_BOUNDS.clone();
+    }
+
+    /**
+     * @return the number of recorded sizes per bucket, one more than {@link #getUpperBounds()}
+     */
+    public long[] getBucketCounts() {
+
+        final long[] counts = new long[this.buckets.length];
+        for (int index = 0; index < counts.length; index++) {
+            counts[index] = this.buckets[index].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @return the number of recorded sizes
+     */
+    public long getCount() {
+
+        long count = 0;
+        for (final LongAdder bucket : this.buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return the sum of the recorded sizes in bytes
+     */
+    public long getSum() {
+
+        return this.sum.sum();
+    }
+}
@@ -0,0 +1,471 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.io.Serializable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.DefaultErrorHandler;
+import com.vaadin.flow.server.ErrorEvent;
+import com.vaadin.flow.server.ErrorHandler;
+import com.vaadin.flow.server.ErrorHandlingCommand;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.WrappedSession;
+import com.vaadin.flow.server.communication.PushConnection;
+
+/**
+ * Bounds the work pending for clients which don't keep up, e.g. on bad networks.
+ * <p>
+ * Two things pile up for such a client: the access tasks queued while its session is locked, and the push messages broadcast but not written to
+ * its connection yet. Vaadin queues the access tasks per session, so they are bounded per session: they are counted as they are queued and run,
+ * in an attribute of the wrapped session, and the count is checked right after a task is queued. The unsent push messages are tracked per UI by
+ * its {@link QuarkusPushConnection}, by their UTF-8 encoded length. Beyond either maximum the configured {@link SlowClientPolicy} applies.
+ * <p>
+ * The access tasks of the extension itself, see {@link #accessExempt(UI, Command)}, are neither counted nor cancelled, as the extension relies
+ * on them to deliver messages and send the held back or deferred pushes. As {@link UI#access(Command)} wraps its task before it's queued, they
+ * are marked by the thread queueing them rather than by their type.
+ * <p>
+ * Unless {@link #start(SlowClientPolicy, int, long, VaadinMetrics) started}, nothing is bounded.
+ *
+ * @since 1.1.0
+ */
+public final class SlowClientGuard {
+
+    private static final long DRAIN_CHECK_MILLIS = 100;
+
+    private static final String ATTRIBUTE_NAME = SlowClientGuard.class.getName();
+
+    /**
+     * Set while the extension queues an access task of its own.
+     */
+    private static final ThreadLocal<Boolean> EXEMPT_ACCESS = new ThreadLocal<>();
+
+    private static volatile SlowClientGuard current;
+
+    private final SlowClientPolicy policy;
+
+    private final int maxPendingAccessTasks;
+
+    private final long maxUnsentPushBytes;
+
+    private final VaadinMetrics metrics;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private SlowClientGuard(final SlowClientPolicy policy, final int maxPendingAccessTasks, final long maxUnsentPushBytes,
+            final VaadinMetrics metrics) {
+
+        this.policy = policy;
+        this.maxPendingAccessTasks = maxPendingAccessTasks;
+        this.maxUnsentPushBytes = maxUnsentPushBytes;
+        this.metrics = metrics;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+
+            final Thread thread = new Thread(runnable, "vaadin-slow-client-guard");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts bounding the pending work, for the UIs initialized from now on.
+     *
+     * @param policy
+     *            what happens beyond a maximum
+     * @param maxPendingAccessTasks
+     *            the maximum number of access tasks queued for a session
+     * @param maxUnsentPushBytes
+     *            the maximum UTF-8 encoded length of the push messages of a UI not written yet
+     * @param metrics
+     *            to publish the overflows to
+     */
+    public static void start(final SlowClientPolicy policy, final int maxPendingAccessTasks, final long maxUnsentPushBytes,
+            final VaadinMetrics metrics) {
+
+        current = new SlowClientGuard(policy, maxPendingAccessTasks, maxUnsentPushBytes, metrics);
+    }
+
+    /**
+     * Stops bounding the pending work, the held back pushes are sent with the next change of their UIs.
+     */
+    public static void stop() {
+
+        final SlowClientGuard guard = current;
+        if (guard != null) {
+            current = null;
+            guard.scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the started guard or <code>null</code>
+     */
+    static SlowClientGuard current() {
+
+        return current;
+    }
+
+    /**
+     * Queues an access task, counted for its session, and applies the policy if too many are queued.
+     *
+     * @param session
+     *            the session to access
+     * @param command
+     *            the access task
+     * @param queue
+     *            queues the task, e.g. {@link com.vaadin.flow.server.VaadinService#accessSession(VaadinSession, Command)}
+     * @return the future of the queued task
+     */
+    public static Future<Void> accessSession(final VaadinSession session, final Command command,
+            final BiFunction<VaadinSession, Command, Future<Void>> queue) {
+
+        final boolean exempt = EXEMPT_ACCESS.get() != null;
+        // only this access is exempt, not the ones of the tasks Vaadin might run right away
+        EXEMPT_ACCESS.remove();
+        final SlowClientGuard guard = current;
+        final PendingAccesses pending = guard == null || exempt ? null : getPendingAccesses(session);
+        if (pending == null) {
+            return queue.apply(session, command);
+        }
+
+        final TrackedCommand task = new TrackedCommand(session, pending, command);
+        pending.add(task);
+        final Future<Void> future;
+        try {
+            future = queue.apply(session, task);
+        } catch (final RuntimeException e) {
+            task.settle();
+            throw e;
+        }
+        task.future = future;
+        if (pending.count.get() > guard.maxPendingAccessTasks) {
+            guard.overflowed(session, pending);
+        }
+        return future;
+    }
+
+    /**
+     * Queues an access task of the extension to the UI, neither counted nor cancelled.
+     *
+     * @param ui
+     *            the UI to access
+     * @param command
+     *            the access task
+     * @return the future of the queued task
+     * @throws com.vaadin.flow.component.UIDetachedException
+     *             if the UI is detached
+     */
+    public static Future<Void> accessExempt(final UI ui, final Command command) {
+
+        EXEMPT_ACCESS.set(Boolean.TRUE);
+        try {
+            return ui.access(command);
+        } finally {
+            EXEMPT_ACCESS.remove();
+        }
+    }
+
+    /**
+     * Queues an access task of the extension to the session, neither counted nor cancelled.
+     *
+     * @param session
+     *            the session to access
+     * @param command
+     *            the access task
+     * @return the future of the queued task
+     */
+    public static Future<Void> accessExempt(final VaadinSession session, final Command command) {
+
+        EXEMPT_ACCESS.set(Boolean.TRUE);
+        try {
+            return session.access(command);
+        } finally {
+            EXEMPT_ACCESS.remove();
+        }
+    }
+
+    /**
+     * @param message
+     *            a push message
+     * @return the length of the message encoded in UTF-8, as written to the connection
+     */
+    static long getEncodedLength(final String message) {
+
+        long bytes = 0;
+        final int length = message.length();
+        for (int index = 0; index < length; index++) {
+            final char character = message.charAt(index);
+            if (character < 0x80) {
+                bytes++;
+            } else if (character < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(character) && index + 1 < length && Character.isLowSurrogate(message.charAt(index + 1))) {
+                bytes += 4;
+                index++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @param session
+     *            the session
+     * @return the number of access tasks counted for the session, 0 unless started
+     */
+    public static int getPendingAccessTasks(final VaadinSession session) {
+
+        final PendingAccesses pending = current == null ? null : getPendingAccesses(session);
+        return pending == null ? 0 : pending.count.get();
+    }
+
+    /**
+     * @param ui
+     *            the UI, its session locked by the current thread
+     * @return the UTF-8 encoded length of the push messages of the UI not written yet, 0 if not tracked
+     */
+    public static long getUnsentPushBytes(final UI ui) {
+
+        final PushConnection pushConnection = ui.getInternals().getPushConnection();
+        return pushConnection instanceof QuarkusPushConnection ? ((QuarkusPushConnection) pushConnection).getUnsentPushBytes() : 0;
+    }
+
+    /**
+     * Closes the UI and disconnects its push connection, so the client reloads it once it reconnects.
+     *
+     * @param ui
+     *            the UI, its session locked by the current thread
+     */
+    static void resync(final UI ui) {
+
+        ui.close();
+        final PushConnection pushConnection = ui.getInternals().getPushConnection();
+        if (pushConnection != null && pushConnection.isConnected()) {
+            pushConnection.disconnect();
+        }
+    }
+
+    /**
+     * @return the counted tasks of the session, <code>null</code> if it's invalidated
+     */
+    private static PendingAccesses getPendingAccesses(final VaadinSession session) {
+
+        final WrappedSession wrappedSession = session.getSession();
+        if (wrappedSession == null) {
+            return null;
+        }
+        try {
+            PendingAccesses pending = (PendingAccesses) wrappedSession.getAttribute(ATTRIBUTE_NAME);
+            if (pending == null) {
+                // once per session, the wrapped session sets its attributes without the session lock
+                synchronized (SlowClientGuard.class) {
+                    pending = (PendingAccesses) wrappedSession.getAttribute(ATTRIBUTE_NAME);
+                    if (pending == null) {
+                        pending = new PendingAccesses();
+                        wrappedSession.setAttribute(ATTRIBUTE_NAME, pending);
+                    }
+                }
+            }
+            return pending;
+        } catch (final IllegalStateException e) {
+            // invalidated, nothing is run anymore
+            return null;
+        }
+    }
+
+    private void overflowed(final VaadinSession session, final PendingAccesses pending) {
+
+        this.metrics.accessQueueOverflowed();
+        switch (this.policy) {
+        case DROP_OLDEST:
+            dropOldest(pending);
+            break;
+        case DISCONNECT_AND_RESYNC:
+            dropOldest(pending);
+            // once until the UIs are closed, not for every task queued meanwhile
+            if (pending.resyncing.compareAndSet(false, true)) {
+                accessExempt(session, () -> {
+
+                    pending.resyncing.set(false);
+                    session.getUIs().forEach(ui -> {
+
+                        this.metrics.slowClientResynced();
+                        resync(ui);
+                    });
+                });
+            }
+            break;
+        default:
+            // run at once when the lock is free, their changes pushed together
+        }
+    }
+
+    /**
+     * Cancels the oldest tasks beyond the maximum.
+     */
+    private void dropOldest(final PendingAccesses pending) {
+
+        TrackedCommand task;
+        while (pending.count.get() > this.maxPendingAccessTasks && (task = pending.tasks.poll()) != null) {
+            if (task.drop()) {
+                this.metrics.accessTaskDropped();
+            }
+        }
+    }
+
+    SlowClientPolicy getPolicy() {
+
+        return this.policy;
+    }
+
+    long getMaxUnsentPushBytes() {
+
+        return this.maxUnsentPushBytes;
+    }
+
+    VaadinMetrics getMetrics() {
+
+        return this.metrics;
+    }
+
+    /**
+     * @return whether the check is scheduled, i.e. not stopped meanwhile
+     */
+    boolean scheduleDrainCheck(final Runnable check) {
+
+        try {
+            this.scheduler.schedule(check, DRAIN_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The access tasks counted for a session, in the order they were queued. Not serialized, as the queue of the session isn't.
+     */
+    private static final class PendingAccesses implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient AtomicInteger count = new AtomicInteger();
+
+        private final transient Queue<TrackedCommand> tasks = new ConcurrentLinkedQueue<>();
+
+        private final transient AtomicBoolean resyncing = new AtomicBoolean();
+
+        /**
+         * Counts the task and forgets the oldest ones run or cancelled meanwhile, as Vaadin runs the tasks in order.
+         */
+        private void add(final TrackedCommand task) {
+
+            this.count.incrementAndGet();
+            TrackedCommand oldest;
+            while ((oldest = this.tasks.peek()) != null && oldest.isSettled()) {
+                this.tasks.remove(oldest);
+            }
+            this.tasks.add(task);
+        }
+
+        private Object readResolve() {
+
+            return new PendingAccesses();
+        }
+    }
+
+    /**
+     * A counted access task, no longer counted once run, cancelled through its future or dropped by the guard. Its errors are handled as Vaadin
+     * handles the ones of the task it wraps.
+     */
+    private static final class TrackedCommand implements ErrorHandlingCommand {
+
+        private static final long serialVersionUID = 1L;
+
+        private final VaadinSession session;
+
+        private final PendingAccesses pending;
+
+        private final Command command;
+
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private transient volatile Future<Void> future;
+
+        private TrackedCommand(final VaadinSession session, final PendingAccesses pending, final Command command) {
+
+            this.session = session;
+            this.pending = pending;
+            this.command = command;
+        }
+
+        @Override
+        public void execute() {
+
+            // skipped if dropped before its future was known
+            if (settle()) {
+                this.command.execute();
+            }
+        }
+
+        @Override
+        public void handleError(final Exception exception) {
+
+            if (this.command instanceof ErrorHandlingCommand) {
+                ((ErrorHandlingCommand) this.command).handleError(exception);
+                return;
+            }
+            // as FutureAccess does for a plain task
+            ErrorHandler errorHandler = ErrorEvent.findErrorHandler(this.session);
+            if (errorHandler == null) {
+                errorHandler = new DefaultErrorHandler();
+            }
+            errorHandler.error(new ErrorEvent(exception));
+        }
+
+        /**
+         * @return whether the task was counted until now
+         */
+        private boolean settle() {
+
+            if (this.settled.compareAndSet(false, true)) {
+                this.pending.count.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean isSettled() {
+
+            final Future<Void> queued = this.future;
+            if (queued != null && queued.isCancelled()) {
+                // never run by Vaadin
+                settle();
+            }
+            return this.settled.get();
+        }
+
+        /**
+         * @return whether the task is dropped, i.e. wasn't run nor cancelled before
+         */
+        private boolean drop() {
+
+            if (!settle()) {
+                return false;
+            }
+            final Future<Void> queued = this.future;
+            if (queued != null) {
+                queued.cancel(false);
+            }
+            return true;
+        }
+    }
+}
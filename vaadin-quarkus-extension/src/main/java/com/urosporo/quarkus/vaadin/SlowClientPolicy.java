@@ -0,0 +1,26 @@
+package com.urosporo.quarkus.vaadin;
+
+/**
+ * What happens to the pending work of a client which doesn't keep up, see {@link SlowClientGuard}.
+ *
+ * @since 1.1.0
+ */
+public enum SlowClientPolicy {
+
+    /**
+     * The changes of a UI with too much unsent push data are held back and merged into one push, sent once the data is written. The pending
+     * access tasks of a session are kept, they are run at once when the session lock is free and their changes pushed together.
+     */
+    MERGE,
+
+    /**
+     * Like {@link #MERGE} for the pushes, but the oldest pending access tasks of a session beyond the maximum are cancelled.
+     */
+    DROP_OLDEST,
+
+    /**
+     * A UI with too much unsent push data is closed and its push connection disconnected, so the client reloads it. The oldest pending access
+     * tasks of a session beyond the maximum are cancelled, like {@link #DROP_OLDEST}, and all its UIs closed.
+     */
+    DISCONNECT_AND_RESYNC
+}
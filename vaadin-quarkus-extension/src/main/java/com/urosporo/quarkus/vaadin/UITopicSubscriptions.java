@@ -0,0 +1,39 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.PreDestroy;
+
+import com.urosporo.quarkus.vaadin.cdi.annotation.UIScoped;
+import com.vaadin.flow.shared.Registration;
+
+/**
+ * The topic subscriptions of a UI, removed with the UI scoped beans, i.e. when the UI is detached.
+ *
+ * @since 1.1.0
+ */
+@UIScoped
+class UITopicSubscriptions {
+
+    // removed by the broadcaster threads too, if the UI is detached already
+    private final List<Registration> subscriptions = new CopyOnWriteArrayList<>();
+
+    void add(final Registration subscription) {
+
+        this.subscriptions.add(subscription);
+    }
+
+    void remove(final Registration subscription) {
+
+        this.subscriptions.remove(subscription);
+    }
+
+    @PreDestroy
+    void removeAll() {
+
+        for (final Registration subscription : this.subscriptions) {
+            subscription.remove();
+        }
+    }
+}
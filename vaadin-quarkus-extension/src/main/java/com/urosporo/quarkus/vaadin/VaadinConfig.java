@@ -0,0 +1,307 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import io.quarkus.runtime.annotations.ConfigGroup;
+import io.quarkus.runtime.annotations.ConfigItem;
+import io.quarkus.runtime.annotations.ConfigPhase;
+import io.quarkus.runtime.annotations.ConfigRoot;
+
+/**
+ * Configuration of the Vaadin extension.
+ *
+ * @since 1.1.0
+ */
+@ConfigRoot(name = "vaadin", phase = ConfigPhase.BUILD_AND_RUN_TIME_FIXED)
+public class VaadinConfig {
+
+    /**
+     * Translation configuration.
+     */
+    @ConfigItem
+    public I18nConfig i18n;
+
+    /**
+     * Whether the storages of the UI, route and session scoped beans are concurrent, so background threads, e.g. with a propagated context,
+     * resolve the instances without the session lock. The lock is then only taken to create the storage of a session or UI.
+     */
+    @ConfigItem(defaultValue = "false")
+    public boolean concurrentStorages;
+
+    /**
+     * Lifecycle of the route scoped beans.
+     */
+    @ConfigItem
+    public RouteScopeConfig routeScope;
+
+    /**
+     * Destruction of the beans of torn down sessions, UIs and routes.
+     */
+    @ConfigItem
+    public TeardownConfig teardown;
+
+    /**
+     * Sampling of the heap retained by the scoped beans.
+     */
+    @ConfigItem
+    public MemoryAccountingConfig memoryAccounting;
+
+    /**
+     * Delivery of the poll events to CDI observers.
+     */
+    @ConfigItem
+    public PollEventsConfig pollEvents;
+
+    /**
+     * Publication of messages to the UIs subscribed to a topic of the {@code PushBroadcaster}.
+     */
+    @ConfigItem
+    public BroadcastConfig broadcast;
+
+    /**
+     * Coalescing of the automatic pushes of the UIs.
+     */
+    @ConfigItem
+    public PushCoalescingConfig pushCoalescing;
+
+    /**
+     * Bounds of the work pending for clients which don't keep up.
+     */
+    @ConfigItem
+    public SlowClientsConfig slowClients;
+
+    /**
+     * Transport of the push connections.
+     */
+    @ConfigItem
+    public PushConfig push;
+
+    @ConfigGroup
+    public static class I18nConfig {
+
+        /**
+         * Whether the resource bundle based I18NProvider of the extension is registered. Leave it disabled if the application provides its own
+         * {@code @VaadinServiceEnabled} I18NProvider bean.
+         */
+        @ConfigItem(defaultValue = "false")
+        public boolean enabled;
+
+        /**
+         * The base name of the resource bundles holding the translations.
+         */
+        @ConfigItem(defaultValue = "translations")
+        public String bundleName;
+
+        /**
+         * The locales the application provides translations for, as language tags. Their bundles are loaded eagerly. If not set, the default
+         * locale of the JVM is used.
+         */
+        @ConfigItem
+        public Optional<List<String>> locales;
+    }
+
+    @ConfigGroup
+    public static class RouteScopeConfig {
+
+        /**
+         * The number of owners left by navigation whose route scoped beans are kept, e.g. for a back navigation. The beans of the least recently
+         * left owners beyond that are destroyed after a navigation.
+         */
+        @ConfigItem(defaultValue = "0")
+        public int keepInactive;
+    }
+
+    @ConfigGroup
+    public static class TeardownConfig {
+
+        /**
+         * Whether the beans are destroyed by worker threads instead of the thread tearing down the session or UI, e.g. the one expiring the
+         * sessions.
+         */
+        @ConfigItem(defaultValue = "false")
+        public boolean async;
+
+        /**
+         * The maximum number of worker threads.
+         */
+        @ConfigItem(defaultValue = "2")
+        public int parallelism;
+
+        /**
+         * The maximum number of storages a worker destroys at once.
+         */
+        @ConfigItem(defaultValue = "64")
+        public int batchSize;
+
+        /**
+         * The maximum number of storages waiting for their destruction. Beyond that, the tearing down thread destroys the beans itself.
+         */
+        @ConfigItem(defaultValue = "10000")
+        public int queueCapacity;
+
+        /**
+         * How long a worker destroys the storages of a batch. Beyond that, the remaining storages of the batch are abandoned and logged: their
+         * beans are dropped without being destroyed.
+         */
+        @ConfigItem(defaultValue = "30S")
+        public Duration destroyTimeout;
+
+        /**
+         * How long the shutdown waits for the queued storages to be destroyed, before destroying the rest itself.
+         */
+        @ConfigItem(defaultValue = "10S")
+        public Duration shutdownTimeout;
+    }
+
+    @ConfigGroup
+    public static class MemoryAccountingConfig {
+
+        /**
+         * Whether the retained sizes of the session, UI and route scoped beans are sampled and published by {@code VaadinMetrics}.
+         */
+        @ConfigItem(defaultValue = "false")
+        public boolean enabled;
+
+        /**
+         * The probability a request samples its session, between 0 and 1.
+         */
+        @ConfigItem(defaultValue = "0.01")
+        public double sampleRate;
+
+        /**
+         * The maximum number of objects walked per bean instance. The estimate of a larger instance is cut.
+         */
+        @ConfigItem(defaultValue = "10000")
+        public int maxObjects;
+
+        /**
+         * The maximum time a sample holds the session lock. A sample taking longer is abandoned.
+         */
+        @ConfigItem(defaultValue = "0.010S")
+        public Duration timeBudget;
+    }
+
+    @ConfigGroup
+    public static class PollEventsConfig {
+
+        /**
+         * Whether every poll is delivered, or the polls are throttled or batched per UI or per session. Throttled polls are delivered at most
+         * once per interval, the last poll within the interval at its end. Batched polls are delivered as one {@link PollEventBatch} at the end
+         * of the interval.
+         */
+        @ConfigItem(defaultValue = "all")
+        public PollEventMode mode;
+
+        /**
+         * The minimum interval between two delivered polls of the same UI or session if throttled, the interval of a batch if batched.
+         */
+        @ConfigItem(defaultValue = "1S")
+        public Duration interval;
+    }
+
+    @ConfigGroup
+    public static class BroadcastConfig {
+
+        /**
+         * The maximum number of threads scheduling the UI accesses of the publications.
+         */
+        @ConfigItem(defaultValue = "4")
+        public int parallelism;
+
+        /**
+         * The maximum number of subscribed UIs a thread schedules the accesses of at once.
+         */
+        @ConfigItem(defaultValue = "128")
+        public int batchSize;
+
+        /**
+         * The maximum number of batches waiting for a thread. Beyond that, the publishing thread schedules the accesses itself.
+         */
+        @ConfigItem(defaultValue = "1024")
+        public int queueCapacity;
+
+        /**
+         * The maximum number of messages waiting for the access of a subscribed UI. Beyond that, the oldest ones are dropped.
+         */
+        @ConfigItem(defaultValue = "16")
+        public int maxPendingMessages;
+    }
+
+    @ConfigGroup
+    public static class PushCoalescingConfig {
+
+        /**
+         * Whether the automatic pushes of a UI are deferred, so the changes of several accesses are sent as one message.
+         */
+        @ConfigItem(defaultValue = "false")
+        public boolean enabled;
+
+        /**
+         * How long the first push of a UI is deferred. The deferred pushes are sent once it has elapsed, as soon as the session lock is free.
+         */
+        @ConfigItem(defaultValue = "0.05S")
+        public Duration window;
+
+        /**
+         * The maximum number of pushes of a UI deferred into one. The push reaching it is sent at once, along with the deferred ones: a message
+         * carries the changes of at most this many accesses of the UI, made within the window.
+         */
+        @ConfigItem(defaultValue = "8")
+        public int maxDeferredPushes;
+
+        /**
+         * The maximum UTF-8 encoded length of a message of deferred pushes. The changes are only serialized when sent, so the length of a push
+         * of a UI is estimated by its last message. A push which would let the message exceed the maximum is sent at once, along with the
+         * deferred ones, and a UI whose pushes exceed it on their own isn't coalesced.
+         */
+        @ConfigItem(defaultValue = "65536")
+        public long maxMessageBytes;
+    }
+
+    @ConfigGroup
+    public static class SlowClientsConfig {
+
+        /**
+         * Whether the access tasks queued for a session and the unsent push messages of a UI are bounded.
+         */
+        @ConfigItem(defaultValue = "false")
+        public boolean enabled;
+
+        /**
+         * What happens beyond a maximum: the pushes are merged, the oldest access tasks dropped too, or the UIs disconnected and reloaded.
+         */
+        @ConfigItem(defaultValue = "merge")
+        public SlowClientPolicy policy;
+
+        /**
+         * The maximum number of access tasks queued for a session.
+         */
+        @ConfigItem(defaultValue = "1000")
+        public int maxPendingAccessTasks;
+
+        /**
+         * The maximum UTF-8 encoded length of the push messages of a UI not written to its connection yet.
+         */
+        @ConfigItem(defaultValue = "1048576")
+        public long maxUnsentPushBytes;
+    }
+
+    @ConfigGroup
+    public static class PushConfig {
+
+        /**
+         * Whether the WebSocket push connections are served by Atmosphere or directly on the Vert.x WebSockets of the HTTP server. With Vert.x,
+         * Atmosphere only serves the clients falling back to long polling.
+         */
+        @ConfigItem(defaultValue = "atmosphere")
+        public PushTransport transport;
+
+        /**
+         * The interval of the pings sent on the Vert.x WebSockets, keeping idle connections open through proxies. Zero disables them.
+         */
+        @ConfigItem(defaultValue = "60S")
+        public Duration heartbeatInterval;
+    }
+}
@@ -0,0 +1,375 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import io.quarkus.arc.Unremovable;
+
+/**
+ * Counters of the extension, to be bound to the metrics system of the application.
+ *
+ * @since 1.1.0
+ */
+@ApplicationScoped
+@Unremovable
+public class VaadinMetrics {
+
+    private final LongAdder deliveredPollEvents = new LongAdder();
+
+    private final LongAdder droppedPollEvents = new LongAdder();
+
+    private final LongAdder deliveredPollEventBatches = new LongAdder();
+
+    private final LongAdder queuedTeardowns = new LongAdder();
+
+    private final LongAdder destroyedStorages = new LongAdder();
+
+    private final LongAdder storageDestructionNanos = new LongAdder();
+
+    private final LongAccumulator maxStorageDestructionNanos = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder timedOutTeardowns = new LongAdder();
+
+    private final LongAdder memorySamples = new LongAdder();
+
+    private final LongAdder memorySamplesOverBudget = new LongAdder();
+
+    private final SizeHistogram sessionBytes = new SizeHistogram();
+
+    private final SizeHistogram uiBytes = new SizeHistogram();
+
+    private final Map<String, LongAdder> sampledBeanClassBytes = new ConcurrentHashMap<>();
+
+    private final LongAdder publishedMessages = new LongAdder();
+
+    private final LongAdder deliveredMessages = new LongAdder();
+
+    private final LongAdder droppedMessages = new LongAdder();
+
+    private final LongAdder deferredPushes = new LongAdder();
+
+    private final LongAdder sentDeferredPushes = new LongAdder();
+
+    private final LongAdder sentPushBytes = new LongAdder();
+
+    private final LongAccumulator maxUnsentPushBytes = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder heldBackPushes = new LongAdder();
+
+    private final LongAdder resyncedClients = new LongAdder();
+
+    private final LongAdder accessQueueOverflows = new LongAdder();
+
+    private final LongAdder droppedAccessTasks = new LongAdder();
+
+    public void pollEventDelivered() {
+
+        this.deliveredPollEvents.increment();
+    }
+
+    public void pollEventDropped() {
+
+        this.droppedPollEvents.increment();
+    }
+
+    public void pollEventBatchDelivered(final int polls) {
+
+        this.deliveredPollEventBatches.increment();
+        this.deliveredPollEvents.add(polls);
+    }
+
+    /**
+     * @return the number of poll events delivered to CDI observers, on their own or in a {@link PollEventBatch}
+     */
+    public long getDeliveredPollEvents() {
+
+        return this.deliveredPollEvents.sum();
+    }
+
+    /**
+     * @return the number of poll events dropped by the configured {@link PollEventMode}
+     */
+    public long getDroppedPollEvents() {
+
+        return this.droppedPollEvents.sum();
+    }
+
+    /**
+     * @return the number of {@link PollEventBatch}es delivered to CDI observers
+     */
+    public long getDeliveredPollEventBatches() {
+
+        return this.deliveredPollEventBatches.sum();
+    }
+
+    public void teardownQueued() {
+
+        this.queuedTeardowns.increment();
+    }
+
+    public void teardownDequeued() {
+
+        this.queuedTeardowns.decrement();
+    }
+
+    public void storageDestroyed(final long nanos) {
+
+        this.destroyedStorages.increment();
+        this.storageDestructionNanos.add(nanos);
+        this.maxStorageDestructionNanos.accumulate(nanos);
+    }
+
+    public void teardownTimedOut() {
+
+        this.timedOutTeardowns.increment();
+    }
+
+    /**
+     * @return the number of storages waiting for their asynchronous destruction
+     */
+    public long getQueuedTeardowns() {
+
+        return this.queuedTeardowns.sum();
+    }
+
+    /**
+     * @return the number of storages destroyed by the context teardown
+     */
+    public long getDestroyedStorages() {
+
+        return this.destroyedStorages.sum();
+    }
+
+    /**
+     * @return the total time spent destroying storages, in nanoseconds
+     */
+    public long getStorageDestructionNanos() {
+
+        return this.storageDestructionNanos.sum();
+    }
+
+    /**
+     * @return the longest destruction of a single storage, in nanoseconds
+     */
+    public long getMaxStorageDestructionNanos() {
+
+        return this.maxStorageDestructionNanos.get();
+    }
+
+    /**
+     * @return the number of storages the context teardown abandoned without destroying their beans, as their batch exceeded the timeout
+     */
+    public long getTimedOutTeardowns() {
+
+        return this.timedOutTeardowns.sum();
+    }
+
+    public void memorySampled(final long sessionBytes, final long[] uiBytes, final Map<String, Long> beanClassBytes) {
+
+        this.memorySamples.increment();
+        this.sessionBytes.record(sessionBytes);
+        for (final long bytes : uiBytes) {
+            this.uiBytes.record(bytes);
+        }
+        beanClassBytes.forEach((beanClass, bytes) -> this.sampledBeanClassBytes.computeIfAbsent(beanClass, key -> new LongAdder()).add(bytes));
+    }
+
+    public void memorySampleOverBudget() {
+
+        this.memorySamplesOverBudget.increment();
+    }
+
+    /**
+     * @return the number of sessions whose memory was sampled
+     */
+    public long getMemorySamples() {
+
+        return this.memorySamples.sum();
+    }
+
+    /**
+     * @return the number of memory samples abandoned, as they exceeded their time budget
+     */
+    public long getMemorySamplesOverBudget() {
+
+        return this.memorySamplesOverBudget.sum();
+    }
+
+    /**
+     * @return the estimated retained sizes of the scoped beans of the sampled sessions, UI and route scoped beans excluded
+     */
+    public SizeHistogram getSessionBytes() {
+
+        return this.sessionBytes;
+    }
+
+    /**
+     * @return the estimated retained sizes of the UI and route scoped beans of the UIs of the sampled sessions
+     */
+    public SizeHistogram getUIBytes() {
+
+        return this.uiBytes;
+    }
+
+    /**
+     * The bean classes by their estimated retained size, summed over all the samples. As the sessions are sampled by their requests, the sums
+     * are proportional to the footprint of the classes, weighted by the activity of the sessions.
+     *
+     * @param limit
+     *            the maximum number of bean classes
+     * @return the sums in bytes keyed by the bean class name, largest first
+     */
+    public Map<String, Long> getTopBeanClassBytes(final int limit) {
+
+        final Map<String, Long> top = new LinkedHashMap<>();
+        this.sampledBeanClassBytes.entrySet().stream().map(entry -> new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<String, Long> comparingByValue().reversed()).limit(limit)
+                .forEachOrdered(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    public void messagePublished() {
+
+        this.publishedMessages.increment();
+    }
+
+    public void messageDelivered() {
+
+        this.deliveredMessages.increment();
+    }
+
+    public void messageDropped() {
+
+        this.droppedMessages.increment();
+    }
+
+    /**
+     * @return the number of messages published by the {@link PushBroadcaster}
+     */
+    public long getPublishedMessages() {
+
+        return this.publishedMessages.sum();
+    }
+
+    /**
+     * @return the number of messages delivered to the listeners of the subscribed UIs
+     */
+    public long getDeliveredMessages() {
+
+        return this.deliveredMessages.sum();
+    }
+
+    /**
+     * @return the number of messages dropped as too many were waiting for the access of a subscribed UI
+     */
+    public long getDroppedMessages() {
+
+        return this.droppedMessages.sum();
+    }
+
+    public void pushDeferred() {
+
+        this.deferredPushes.increment();
+    }
+
+    public void deferredPushesSent() {
+
+        this.sentDeferredPushes.increment();
+    }
+
+    /**
+     * @return the number of automatic pushes deferred by the {@link PushCoalescing}, i.e. merged into a later push
+     */
+    public long getDeferredPushes() {
+
+        return this.deferredPushes.sum();
+    }
+
+    /**
+     * @return the number of pushes sending the changes of deferred pushes
+     */
+    public long getSentDeferredPushes() {
+
+        return this.sentDeferredPushes.sum();
+    }
+
+    public void pushSent(final long bytes, final long unsentBytes) {
+
+        this.sentPushBytes.add(bytes);
+        this.maxUnsentPushBytes.accumulate(unsentBytes);
+    }
+
+    public void pushHeldBack() {
+
+        this.heldBackPushes.increment();
+    }
+
+    public void slowClientResynced() {
+
+        this.resyncedClients.increment();
+    }
+
+    public void accessQueueOverflowed() {
+
+        this.accessQueueOverflows.increment();
+    }
+
+    public void accessTaskDropped() {
+
+        this.droppedAccessTasks.increment();
+    }
+
+    /**
+     * @return the length of the push messages sent to the connections tracked by the {@link SlowClientGuard}
+     */
+    public long getSentPushBytes() {
+
+        return this.sentPushBytes.sum();
+    }
+
+    /**
+     * @return the largest length of the push messages of a UI not written yet
+     */
+    public long getMaxUnsentPushBytes() {
+
+        return this.maxUnsentPushBytes.get();
+    }
+
+    /**
+     * @return the number of pushes held back as too much data of their UI was unsent
+     */
+    public long getHeldBackPushes() {
+
+        return this.heldBackPushes.sum();
+    }
+
+    /**
+     * @return the number of UIs closed for their client to reload them, by {@link SlowClientPolicy#DISCONNECT_AND_RESYNC}
+     */
+    public long getResyncedClients() {
+
+        return this.resyncedClients.sum();
+    }
+
+    /**
+     * @return the number of times an access task was queued beyond the maximum of its session
+     */
+    public long getAccessQueueOverflows() {
+
+        return this.accessQueueOverflows.sum();
+    }
+
+    /**
+     * @return the number of access tasks cancelled as too many were queued for their session
+     */
+    public long getDroppedAccessTasks() {
+
+        return this.droppedAccessTasks.sum();
+    }
+}
@@ -0,0 +1,329 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.security.Principal;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpSession;
+
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinServletService;
+import com.vaadin.flow.server.WrappedHttpSession;
+import com.vaadin.flow.server.WrappedSession;
+
+import io.undertow.servlet.spec.ServletContextImpl;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpServerRequest;
+
+/**
+ * The upgrade request of a push connection served by the {@link VertxPushTransport}, the request of every message of the connection.
+ * <p>
+ * It's a copy of the upgrade request, which is gone once upgraded, without a body. The session is the one of the Vaadin servlet identified by
+ * the session cookie of the upgrade request, looked up in Undertow on every call, so an invalidated session is never resolved. The request is
+ * only used by one thread at a time, the attributes are cleared before each message.
+ *
+ * @since 1.1.0
+ */
+final class VertxPushRequest implements VaadinRequest {
+
+    private final VaadinServletService service;
+
+    private final Map<String, String[]> parameters;
+
+    private final MultiMap headers;
+
+    private final Map<String, String> cookies;
+
+    private final String method;
+
+    private final String remoteAddress;
+
+    private final int remotePort;
+
+    private final boolean secure;
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    VertxPushRequest(final HttpServerRequest request, final VaadinServletService service) {
+
+        this.service = service;
+        final Map<String, String[]> parameterMap = new LinkedHashMap<>();
+        for (final String name : request.params().names()) {
+            parameterMap.put(name, request.params().getAll(name).toArray(new String[0]));
+        }
+        this.parameters = Collections.unmodifiableMap(parameterMap);
+        this.headers = MultiMap.caseInsensitiveMultiMap().addAll(request.headers());
+        final Map<String, String> cookieValues = new HashMap<>();
+        request.cookieMap().forEach((name, cookie) -> cookieValues.put(name, cookie.getValue()));
+        this.cookies = Collections.unmodifiableMap(cookieValues);
+        this.method = request.rawMethod();
+        this.remoteAddress = request.remoteAddress() == null ? null : request.remoteAddress().host();
+        this.remotePort = request.remoteAddress() == null ? -1 : request.remoteAddress().port();
+        this.secure = request.isSSL();
+    }
+
+    /**
+     * Clears the attributes set while handling the previous message.
+     */
+    void reset() {
+
+        this.attributes.clear();
+    }
+
+    @Override
+    public String getParameter(final String parameter) {
+
+        final String[] values = this.parameters.get(parameter);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+
+        return this.parameters;
+    }
+
+    @Override
+    public int getContentLength() {
+
+        return 0;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public Object getAttribute(final String name) {
+
+        return this.attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(final String name, final Object value) {
+
+        if (value == null) {
+            this.attributes.remove(name);
+        } else {
+            this.attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(final String name) {
+
+        this.attributes.remove(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+
+        return Collections.enumeration(new ArrayList<>(this.attributes.keySet()));
+    }
+
+    @Override
+    public String getPathInfo() {
+
+        // the push connections are served by the servlet mapped to the root
+        return null;
+    }
+
+    @Override
+    public String getContextPath() {
+
+        return this.service.getServlet().getServletContext().getContextPath();
+    }
+
+    @Override
+    public WrappedSession getWrappedSession() {
+
+        return getWrappedSession(true);
+    }
+
+    /**
+     * @return the existing session identified by the session cookie, never a new one: the upgrade request can't set a cookie anymore
+     */
+    @Override
+    public WrappedSession getWrappedSession(final boolean allowSessionCreation) {
+
+        final ServletContext servletContext = this.service.getServlet().getServletContext();
+        final String sessionId = this.cookies.get(servletContext.getSessionCookieConfig().getName());
+        if (sessionId == null) {
+            return null;
+        }
+        final HttpSession session = ((ServletContextImpl) servletContext).getSession(sessionId);
+        return session == null ? null : new WrappedHttpSession(session);
+    }
+
+    @Override
+    public String getContentType() {
+
+        return null;
+    }
+
+    @Override
+    public Locale getLocale() {
+
+        final List<Locale> locales = getAcceptedLocales();
+        return locales.isEmpty() ? Locale.getDefault() : locales.get(0);
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+
+        final List<Locale> locales = getAcceptedLocales();
+        return Collections.enumeration(locales.isEmpty() ? Collections.singletonList(Locale.getDefault()) : locales);
+    }
+
+    private List<Locale> getAcceptedLocales() {
+
+        final String acceptLanguage = getHeader("Accept-Language");
+        final List<Locale> locales = new ArrayList<>();
+        if (acceptLanguage != null) {
+            try {
+                for (final Locale.LanguageRange range : Locale.LanguageRange.parse(acceptLanguage)) {
+                    if (!"*".equals(range.getRange())) {
+                        locales.add(Locale.forLanguageTag(range.getRange()));
+                    }
+                }
+            } catch (final IllegalArgumentException e) {
+                // as if not sent
+            }
+        }
+        return locales;
+    }
+
+    @Override
+    public String getRemoteAddr() {
+
+        return this.remoteAddress;
+    }
+
+    /**
+     * @return the address, the name isn't resolved
+     */
+    @Override
+    public String getRemoteHost() {
+
+        return this.remoteAddress;
+    }
+
+    @Override
+    public int getRemotePort() {
+
+        return this.remotePort;
+    }
+
+    @Override
+    public boolean isSecure() {
+
+        return this.secure;
+    }
+
+    @Override
+    public String getHeader(final String headerName) {
+
+        return this.headers.get(headerName);
+    }
+
+    @Override
+    public long getDateHeader(final String name) {
+
+        final String value = getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (final DateTimeParseException e) {
+            throw new IllegalArgumentException("The header " + name + " isn't a date: " + value, e);
+        }
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+
+        return Collections.enumeration(new ArrayList<>(this.headers.names()));
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(final String name) {
+
+        return Collections.enumeration(this.headers.getAll(name));
+    }
+
+    @Override
+    public VaadinService getService() {
+
+        return this.service;
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+
+        return this.cookies.entrySet().stream().map(cookie -> new Cookie(cookie.getKey(), cookie.getValue())).toArray(Cookie[]::new);
+    }
+
+    /**
+     * @return <code>null</code>, the security identity of the upgrade request isn't kept
+     */
+    @Override
+    public String getAuthType() {
+
+        return null;
+    }
+
+    @Override
+    public String getRemoteUser() {
+
+        return null;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+
+        return null;
+    }
+
+    @Override
+    public boolean isUserInRole(final String role) {
+
+        return false;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+
+        return "UTF-8";
+    }
+
+    @Override
+    public BufferedReader getReader() {
+
+        return new BufferedReader(new StringReader(""));
+    }
+
+    @Override
+    public String getMethod() {
+
+        return this.method;
+    }
+}
@@ -0,0 +1,383 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.ErrorEvent;
+import com.vaadin.flow.server.ErrorHandler;
+import com.vaadin.flow.server.HandlerHelper;
+import com.vaadin.flow.server.SessionExpiredException;
+import com.vaadin.flow.server.SystemMessages;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinServletService;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.communication.PushConnection;
+import com.vaadin.flow.server.communication.ServerRpcHandler;
+import com.vaadin.flow.server.communication.ServerRpcHandler.InvalidUIDLSecurityKeyException;
+import com.vaadin.flow.shared.ApplicationConstants;
+
+import elemental.json.JsonException;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ServerWebSocket;
+
+/**
+ * A push connection served by the {@link VertxPushTransport}, speaking the protocol of the Atmosphere client bundled with Flow: a handshake
+ * with the identifier of the connection, then every message of either side prefixed by its length.
+ * <p>
+ * The frames are read and written on the event loop, everything else is done by the executor, one task of the connection at a time and in the
+ * order of the frames: connecting to the UI once open, handling the messages of the client, and disconnecting the UI once closed. The tasks
+ * are handled like the push requests of Atmosphere, with the session locked.
+ *
+ * @since 1.1.0
+ */
+final class VertxPushSocket {
+
+    /**
+     * The message of the heartbeats, which the client ignores and sends too if asked for by the handshake.
+     */
+    private static final String HEARTBEAT_PADDING = "X";
+
+    private static final String MESSAGE_DELIMITER = "|";
+
+    private final ServerWebSocket webSocket;
+
+    private final VertxPushRequest request;
+
+    private final VaadinServletService service;
+
+    private final Executor executor;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * The message of the client being received in fragments and its length, only accessed by the tasks.
+     */
+    private final StringBuilder incomingMessage = new StringBuilder();
+
+    private int incomingLength = -1;
+
+    /**
+     * The session and connection of the UI once connected, only accessed by the tasks.
+     */
+    private VaadinSession session;
+
+    private QuarkusPushConnection connection;
+
+    VertxPushSocket(final ServerWebSocket webSocket, final VertxPushRequest request, final Executor executor) {
+
+        this.webSocket = webSocket;
+        this.request = request;
+        this.service = (VaadinServletService) request.getService();
+        this.executor = executor;
+    }
+
+    /**
+     * Sends the handshake and connects to the UI, called on the event loop of the upgrade request.
+     */
+    void open(final Vertx vertx, final long heartbeatIntervalMillis) {
+
+        final long heartbeatTimer = heartbeatIntervalMillis > 0
+                ? vertx.setPeriodic(heartbeatIntervalMillis, timer -> this.webSocket.writePing(Buffer.buffer()))
+                : -1;
+        this.webSocket.textMessageHandler(message -> execute(() -> receive(message)));
+        this.webSocket.exceptionHandler(e -> getLogger().debug("Push connection failed, it's closed.", e));
+        this.webSocket.closeHandler(closed -> {
+
+            if (heartbeatTimer >= 0) {
+                vertx.cancelTimer(heartbeatTimer);
+            }
+            execute(this::disconnect);
+        });
+
+        // the client doesn't send heartbeats, the pings keep the connection open
+        writeFrame(UUID.randomUUID() + MESSAGE_DELIMITER + 0 + MESSAGE_DELIMITER + HEARTBEAT_PADDING + MESSAGE_DELIMITER);
+        execute(this::connect);
+    }
+
+    /**
+     * Writes the message to the client.
+     *
+     * @param message
+     *            the message to write, without the length
+     * @return completed once written, exceptionally if the connection is closed
+     */
+    Future<Void> send(final String message) {
+
+        return writeFrame(message);
+    }
+
+    /**
+     * Closes the connection after the messages sent before.
+     */
+    void close() {
+
+        if (!this.webSocket.isClosed()) {
+            this.webSocket.close();
+        }
+    }
+
+    private CompletableFuture<Void> writeFrame(final String message) {
+
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+        try {
+            this.webSocket.writeTextMessage(message.length() + MESSAGE_DELIMITER + message, result -> {
+
+                if (result.succeeded()) {
+                    written.complete(null);
+                } else {
+                    written.completeExceptionally(result.cause());
+                }
+            });
+        } catch (final IllegalStateException e) {
+            // closed meanwhile, the close handler disconnects the UI
+            written.completeExceptionally(e);
+        }
+        return written;
+    }
+
+    private void connect() {
+
+        callWithUi((uiSession, ui) -> {
+
+            final PushConnection pushConnection = ui.getInternals().getPushConnection();
+            if (!isPushIdValid(uiSession, this.request.getParameter(ApplicationConstants.PUSH_ID_PARAMETER))) {
+                getLogger().warn("Invalid identifier in new connection received from {}", this.request.getRemoteHost());
+                sendRefreshAndClose();
+            } else if (!(pushConnection instanceof QuarkusPushConnection)) {
+                // push isn't enabled for the UI
+                sendRefreshAndClose();
+            } else {
+                this.session = uiSession;
+                this.connection = (QuarkusPushConnection) pushConnection;
+                this.connection.connect(this);
+            }
+        });
+    }
+
+    private void receive(final String message) {
+
+        if (HEARTBEAT_PADDING.equals(message)) {
+            return;
+        }
+
+        callWithUi((uiSession, ui) -> {
+
+            final PushConnection pushConnection = ui.getInternals().getPushConnection();
+            if (!(pushConnection instanceof QuarkusPushConnection) || !((QuarkusPushConnection) pushConnection).isConnectedTo(this)) {
+                getLogger().debug("Got push from the client even though the connection is not the one of the UI, it's closed.");
+                sendRefreshAndClose();
+                return;
+            }
+
+            final Reader reader = receiveFragment(message);
+            if (reader == null) {
+                return;
+            }
+            try {
+                new ServerRpcHandler().handleRpc(ui, reader, this.request);
+                ((QuarkusPushConnection) pushConnection).push(false);
+            } catch (final JsonException e) {
+                getLogger().error("Error writing JSON to response", e);
+                sendRefreshAndClose();
+            } catch (final InvalidUIDLSecurityKeyException e) {
+                getLogger().warn("Invalid security key received from {}", this.request.getRemoteHost());
+                sendRefreshAndClose();
+            }
+        });
+    }
+
+    /**
+     * @return the complete message, <code>null</code> while receiving its fragments
+     */
+    private Reader receiveFragment(final String message) throws IOException {
+
+        String fragment = message;
+        if (this.incomingLength < 0) {
+            final int delimiter = fragment.indexOf(MESSAGE_DELIMITER);
+            try {
+                this.incomingLength = delimiter < 0 ? -1 : Integer.parseInt(fragment.substring(0, delimiter));
+            } catch (final NumberFormatException e) {
+                this.incomingLength = -1;
+            }
+            if (this.incomingLength < 0) {
+                throw new IOException("Invalid message length in " + fragment);
+            }
+            fragment = fragment.substring(delimiter + 1);
+        }
+        this.incomingMessage.append(fragment);
+        if (this.incomingMessage.length() < this.incomingLength) {
+            return null;
+        }
+        final String complete = this.incomingMessage.toString();
+        final int length = this.incomingLength;
+        this.incomingMessage.setLength(0);
+        this.incomingLength = -1;
+        if (complete.length() > length) {
+            throw new IOException("Message longer than its length " + length);
+        }
+        return new StringReader(complete);
+    }
+
+    private void disconnect() {
+
+        final QuarkusPushConnection connected = this.connection;
+        if (connected == null) {
+            return;
+        }
+
+        this.connection = null;
+        try {
+            this.session.accessSynchronously(() -> connected.socketClosed(this));
+        } catch (final RuntimeException e) {
+            getLogger().debug("Failed to disconnect a closed push connection.", e);
+        }
+    }
+
+    /**
+     * Calls back with the session locked and the UI of the connection current, within a request of the service, like the push handler does for
+     * the requests of Atmosphere.
+     */
+    private void callWithUi(final PushEventCallback callback) {
+
+        this.request.reset();
+        VaadinSession requestSession = null;
+        this.service.requestStart(this.request, null);
+        try {
+            try {
+                requestSession = this.service.findVaadinSession(this.request);
+            } catch (final SessionExpiredException e) {
+                sendNotificationAndClose(VaadinService.createSessionExpiredJSON(true));
+                return;
+            }
+
+            requestSession.lock();
+            try {
+                final UI ui = this.service.findUI(this.request);
+                if (ui == null) {
+                    sendNotificationAndClose(VaadinService.createUINotFoundJSON(true));
+                } else {
+                    callback.run(requestSession, ui);
+                }
+            } catch (final IOException e) {
+                callErrorHandler(requestSession, e);
+            } catch (final Exception e) {
+                final SystemMessages messages = this.service.getSystemMessages(HandlerHelper.findLocale(null, this.request), this.request);
+                sendNotificationAndClose(VaadinService.createCriticalNotificationJSON(messages.getInternalErrorCaption(),
+                        messages.getInternalErrorMessage(), null, messages.getInternalErrorURL()));
+                callErrorHandler(requestSession, e);
+            } finally {
+                try {
+                    requestSession.unlock();
+                } catch (final Exception e) {
+                    getLogger().warn("Error while unlocking session", e);
+                }
+            }
+        } finally {
+            try {
+                this.service.requestEnd(this.request, null, requestSession);
+            } catch (final Exception e) {
+                getLogger().warn("Error while ending request", e);
+            }
+        }
+    }
+
+    private void sendRefreshAndClose() {
+
+        sendNotificationAndClose(VaadinService.createCriticalNotificationJSON(null, null, null, null));
+    }
+
+    private void sendNotificationAndClose(final String notification) {
+
+        writeFrame(notification).whenComplete((written, failure) -> close());
+    }
+
+    private static void callErrorHandler(final VaadinSession session, final Exception e) {
+
+        try {
+            final ErrorHandler errorHandler = ErrorEvent.findErrorHandler(session);
+            if (errorHandler != null) {
+                errorHandler.error(new ErrorEvent(e));
+            }
+        } catch (final Exception ex) {
+            // Let's not allow error handling to cause trouble; log fails
+            getLogger().warn("ErrorHandler call failed", ex);
+        }
+    }
+
+    private static boolean isPushIdValid(final VaadinSession session, final String requestPushId) {
+
+        final String sessionPushId = session.getPushId();
+        return requestPushId != null
+                && MessageDigest.isEqual(requestPushId.getBytes(StandardCharsets.UTF_8), sessionPushId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Runs the task after the ones of the connection executed before, by the executor.
+     */
+    private void execute(final Runnable task) {
+
+        this.tasks.add(task);
+        schedule();
+    }
+
+    private void schedule() {
+
+        if (!this.tasks.isEmpty() && this.running.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this::runTasks);
+            } catch (final RejectedExecutionException e) {
+                // shutting down
+                this.tasks.clear();
+                this.running.set(false);
+                close();
+            }
+        }
+    }
+
+    private void runTasks() {
+
+        try {
+            Runnable task;
+            while ((task = this.tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (final RuntimeException e) {
+                    getLogger().error("Push connection task failed.", e);
+                }
+            }
+        } finally {
+            this.running.set(false);
+            // a task added after the last poll, but before the flag was reset
+            schedule();
+        }
+    }
+
+    private static Logger getLogger() {
+
+        return LoggerFactory.getLogger(VertxPushSocket.class);
+    }
+
+    @FunctionalInterface
+    private interface PushEventCallback {
+
+        void run(VaadinSession session, UI ui) throws IOException;
+    }
+}
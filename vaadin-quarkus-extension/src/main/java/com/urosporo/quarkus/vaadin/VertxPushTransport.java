@@ -0,0 +1,116 @@
+package com.urosporo.quarkus.vaadin;
+
+import java.util.concurrent.Executor;
+
+import com.vaadin.flow.server.VaadinServletService;
+import com.vaadin.flow.shared.ApplicationConstants;
+
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Serves the WebSocket push connections of the UIs directly on the Vert.x WebSockets of the HTTP server.
+ * <p>
+ * Unless {@link #start(long, Executor) started}, the push connections are served by Atmosphere. Once started, the WebSocket upgrade requests of
+ * the push connections are taken by a filter of the HTTP server ahead of the Undertow route, so neither Atmosphere nor the JSR 356 endpoint is
+ * in the path of a message: it's written to the WebSocket by the thread pushing it, and a message of the client is handled by a worker thread
+ * right away. The connections speak the protocol of the Atmosphere client bundled with Flow, and Atmosphere still serves the clients falling
+ * back to long polling, so the push connections of the UIs are {@link QuarkusPushConnection}s serving either.
+ * <p>
+ * The messages of the client are handled like the requests of Atmosphere, within {@code requestStart} and {@code requestEnd} of the service,
+ * with a {@link com.vaadin.flow.server.VaadinRequest} of the upgrade request: there is no servlet request, so it's not a
+ * {@link com.vaadin.flow.server.VaadinServletRequest}.
+ *
+ * @since 1.1.0
+ */
+public final class VertxPushTransport {
+
+    private static volatile VertxPushTransport current;
+
+    /**
+     * The service of the Vaadin servlet, once initialized, whether started before or after.
+     */
+    private static volatile VaadinServletService service;
+
+    private final long heartbeatIntervalMillis;
+
+    private final Executor executor;
+
+    private VertxPushTransport(final long heartbeatIntervalMillis, final Executor executor) {
+
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts serving the WebSocket push connections of the service registered from now on.
+     *
+     * @param heartbeatIntervalMillis
+     *            the interval of the pings sent on the WebSockets, 0 to send none
+     * @param executor
+     *            to handle the messages of the clients
+     */
+    public static void start(final long heartbeatIntervalMillis, final Executor executor) {
+
+        current = new VertxPushTransport(heartbeatIntervalMillis, executor);
+    }
+
+    /**
+     * Stops serving new push connections, the open ones are left to close with the HTTP server.
+     */
+    public static void stop() {
+
+        current = null;
+    }
+
+    /**
+     * @return the transport if started, else <code>null</code>
+     */
+    public static VertxPushTransport current() {
+
+        return current;
+    }
+
+    /**
+     * Serves the push connections of the service, once started.
+     *
+     * @param vaadinService
+     *            the service of the Vaadin servlet being initialized
+     */
+    public static void register(final VaadinServletService vaadinService) {
+
+        service = vaadinService;
+        vaadinService.addServiceDestroyListener(event -> {
+
+            if (service == vaadinService) {
+                service = null;
+            }
+        });
+    }
+
+    /**
+     * Upgrades the request to a push connection if it's the WebSocket upgrade request of one, else passes it on.
+     *
+     * @param routingContext
+     *            the request routed by the HTTP server
+     */
+    public static void route(final RoutingContext routingContext) {
+
+        final VertxPushTransport transport = current;
+        final VaadinServletService vaadinService = transport == null ? null : service;
+        final HttpServerRequest request = routingContext.request();
+        // until the servlet is initialized, the connections are left to Atmosphere, which lets them fall back to long polling
+        if (vaadinService == null || request.method() != HttpMethod.GET
+                || !ApplicationConstants.REQUEST_TYPE_PUSH.equals(request.getParam(ApplicationConstants.REQUEST_TYPE_PARAMETER))
+                || !HttpHeaders.WEBSOCKET.toString().equalsIgnoreCase(request.getHeader(HttpHeaders.UPGRADE))) {
+            routingContext.next();
+            return;
+        }
+
+        // the request is captured before the upgrade, the socket only keeps that copy
+        final VertxPushRequest pushRequest = new VertxPushRequest(request, vaadinService);
+        new VertxPushSocket(request.upgrade(), pushRequest, transport.executor).open(routingContext.vertx(), transport.heartbeatIntervalMillis);
+    }
+}
@@ -1,6 +1,8 @@
 package com.urosporo.quarkus.vaadin.cdi;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,6 +11,7 @@ import javax.enterprise.context.ContextNotActiveException;
 import javax.enterprise.context.spi.Contextual;
 import javax.enterprise.context.spi.CreationalContext;
 
+import io.quarkus.arc.InjectableBean;
 import io.quarkus.arc.InjectableContext;
 
 public abstract class AbstractContext implements InjectableContext {
@@ -31,9 +34,21 @@ public abstract class AbstractContext implements InjectableContext {
         return result;
     }
 
+    /**
+     * Within a Vaadin request, the resolved instances are memoized by {@link ResolvedInstances}.
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T get(final Contextual<T> bean) {
 
+        final ResolvedInstances resolvedInstances = ResolvedInstances.current();
+        if (resolvedInstances != null) {
+            final Object instance = resolvedInstances.get(bean);
+            if (instance != null) {
+                return (T) instance;
+            }
+        }
+
         checkActive();
 
         final ContextualStorage storage = getContextualStorage(bean, false);
@@ -41,39 +56,40 @@ public abstract class AbstractContext implements InjectableContext {
             return null;
         }
 
-        final Map<Object, ContextualInstanceInfo<?>> contextMap = storage.getStorage();
-        final ContextualInstanceInfo<?> contextualInstanceInfo = contextMap.get(storage.getBeanKey(bean));
-        if (contextualInstanceInfo == null) {
-            return null;
+        final long epoch = storage.getEpoch();
+        final T instance = storage.getContextualInstance(bean);
+        if (resolvedInstances != null) {
+            resolvedInstances.put(bean, instance, storage, epoch);
         }
-
-        return (T) contextualInstanceInfo.getContextualInstance();
+        return instance;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T get(final Contextual<T> bean, final CreationalContext<T> creationalContext) {
 
         if (creationalContext == null) {
             return get(bean);
         }
 
+        final ResolvedInstances resolvedInstances = ResolvedInstances.current();
+        if (resolvedInstances != null) {
+            final Object instance = resolvedInstances.get(bean);
+            if (instance != null) {
+                return (T) instance;
+            }
+        }
+
         checkActive();
 
         final ContextualStorage storage = getContextualStorage(bean, true);
 
-        final Map<Object, ContextualInstanceInfo<?>> contextMap = storage.getStorage();
-        final ContextualInstanceInfo<?> contextualInstanceInfo = contextMap.get(storage.getBeanKey(bean));
-
-        if (contextualInstanceInfo != null) {
-            @SuppressWarnings("unchecked")
-            final T instance = (T) contextualInstanceInfo.getContextualInstance();
-
-            if (instance != null) {
-                return instance;
-            }
+        final long epoch = storage.getEpoch();
+        final T instance = storage.createContextualInstance(bean, creationalContext);
+        if (resolvedInstances != null) {
+            resolvedInstances.put(bean, instance, storage, epoch);
         }
-
-        return storage.createContextualInstance(bean, creationalContext);
+        return instance;
     }
 
     /**
@@ -90,7 +106,7 @@ public abstract class AbstractContext implements InjectableContext {
             return;
         }
 
-        final ContextualInstanceInfo<?> contextualInstanceInfo = storage.getStorage().remove(storage.getBeanKey(bean));
+        final ContextualInstanceInfo<?> contextualInstanceInfo = storage.removeContextualInstance(bean);
 
         if (contextualInstanceInfo == null) {
             return;
@@ -128,8 +144,7 @@ public abstract class AbstractContext implements InjectableContext {
     public static Map<Object, ContextualInstanceInfo<?>> destroyAllActive(final ContextualStorage storage) {
 
         // drop all entries in the storage before starting with destroying the original entries
-        final Map<Object, ContextualInstanceInfo<?>> contextMap = new HashMap<>(storage.getStorage());
-        storage.getStorage().clear();
+        final Map<Object, ContextualInstanceInfo<?>> contextMap = storage.removeAll();
 
         for (final Map.Entry<Object, ContextualInstanceInfo<?>> entry : contextMap.entrySet()) {
             final Contextual bean = storage.getBean(entry.getKey());
@@ -142,9 +157,37 @@ public abstract class AbstractContext implements InjectableContext {
 
     public static void destroyBean(final Contextual bean, final ContextualInstanceInfo<?> contextualInstanceInfo) {
 
+        if (contextualInstanceInfo.getContextualInstance() == null) {
+            // its creation failed
+            return;
+        }
         bean.destroy(contextualInstanceInfo.getContextualInstance(), contextualInstanceInfo.getCreationalContext());
     }
 
+    /**
+     * A state of the given storages. Taking it only keeps the references, the instances are collected when they are asked for.
+     *
+     * @param storages
+     *            the storages of the context which are current, <code>null</code> elements are skipped
+     * @return the state of the context
+     */
+    protected static ContextState newContextState(final Collection<ContextualStorage> storages) {
+
+        if (storages.isEmpty()) {
+            return Collections::emptyMap;
+        }
+        return () -> {
+
+            final Map<InjectableBean<?>, Object> instances = new HashMap<>();
+            for (final ContextualStorage storage : storages) {
+                if (storage != null) {
+                    instances.putAll(storage.getContextualInstances());
+                }
+            }
+            return instances;
+        };
+    }
+
     /**
      * Make sure that the Context is really active.
      *
@@ -154,9 +197,14 @@ public abstract class AbstractContext implements InjectableContext {
     protected void checkActive() {
 
         if (!isActive()) {
-            throw new ContextNotActiveException(
-                    "CDI context with scope annotation @" + getScope().getName() + " is not active with respect to the current thread");
+            throw newContextNotActiveException();
         }
     }
 
+    protected ContextNotActiveException newContextNotActiveException() {
+
+        return new ContextNotActiveException(
+                "CDI context with scope annotation @" + getScope().getName() + " is not active with respect to the current thread");
+    }
+
 }
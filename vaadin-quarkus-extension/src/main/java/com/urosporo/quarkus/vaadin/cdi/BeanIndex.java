@@ -0,0 +1,221 @@
+package com.urosporo.quarkus.vaadin.cdi;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.enterprise.context.spi.Contextual;
+
+import org.jboss.logging.Logger;
+
+import com.urosporo.quarkus.vaadin.cdi.annotation.RouteScoped;
+
+import io.quarkus.arc.Arc;
+
+/**
+ * Dense indices of the beans of the Vaadin scopes, assigned at build time.
+ * <p>
+ * The beans of a context are numbered from 0, so a {@link ContextualStorage} holds their instances in an array of the size of the context. The
+ * normal scopes share the indices of the pseudo scopes they are bound to, e.g. {@code @NormalUIScoped} beans are numbered together with the
+ * {@code @UIScoped} ones. The route scoped beans are numbered per owner, as the route context has a storage per owner, which only holds the beans
+ * of its owner.
+ *
+ * @since 1.1.0
+ */
+public final class BeanIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(BeanIndex.class);
+
+    private static final Contextual<?>[] NO_BEANS = new Contextual<?>[0];
+
+    private static volatile BeanIndex current = new BeanIndex(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<Contextual<?>, Slot> slots;
+
+    private final Map<String, Contextual<?>[]> beansByScope;
+
+    private final Map<Class<?>, Contextual<?>[]> routeScopedBeansByOwner;
+
+    private BeanIndex(final Map<Contextual<?>, Slot> slots, final Map<String, Contextual<?>[]> beansByScope,
+            final Map<Class<?>, Contextual<?>[]> routeScopedBeansByOwner) {
+
+        this.slots = slots;
+        this.beansByScope = beansByScope;
+        this.routeScopedBeansByOwner = routeScopedBeansByOwner;
+    }
+
+    /**
+     * Replaces the current index, e.g. after a live reload.
+     *
+     * @param beanIdentifiers
+     *            the identifiers of the beans in a stable order, keyed by the name of the scope of their context
+     * @param routeScopeOwners
+     *            the names of the owner classes of the route scoped beans, keyed by the bean identifier
+     * @return the number of indexed beans
+     */
+    public static int install(final Map<String, List<String>> beanIdentifiers, final Map<String, String> routeScopeOwners) {
+
+        final Map<String, Contextual<?>[]> beansByScope = new HashMap<>();
+        for (final Map.Entry<String, List<String>> scope : beanIdentifiers.entrySet()) {
+            final List<String> identifiers = scope.getValue();
+            final Contextual<?>[] beans = new Contextual<?>[identifiers.size()];
+            for (int index = 0; index < beans.length; index++) {
+                beans[index] = Arc.container().bean(identifiers.get(index));
+            }
+            beansByScope.put(scope.getKey(), beans);
+        }
+
+        final List<String> routeScopedBeans = beanIdentifiers.getOrDefault(RouteScoped.class.getName(), Collections.emptyList());
+        final Class<?>[] owners = new Class<?>[routeScopedBeans.size()];
+        for (int index = 0; index < owners.length; index++) {
+            owners[index] = loadClass(routeScopeOwners.get(routeScopedBeans.get(index)));
+        }
+
+        return install(beansByScope, owners);
+    }
+
+    /**
+     * Replaces the current index with the given beans, without a container, e.g. for the benchmarks.
+     *
+     * @param beansByScope
+     *            the beans in a stable order, keyed by the name of the scope of their context, <code>null</code> elements are skipped
+     * @param routeScopeOwners
+     *            the owner classes of the route scoped beans, in their order, the beans without an owner aren't indexed
+     * @return the number of indexed beans
+     */
+    static int install(final Map<String, Contextual<?>[]> beansByScope, final Class<?>[] routeScopeOwners) {
+
+        final Map<Contextual<?>, Slot> slots = new IdentityHashMap<>();
+        final Map<String, Contextual<?>[]> indexedBeansByScope = new HashMap<>();
+        final Map<Class<?>, List<Contextual<?>>> routeScopedBeans = new HashMap<>();
+
+        for (final Map.Entry<String, Contextual<?>[]> scope : beansByScope.entrySet()) {
+            final Contextual<?>[] beans = scope.getValue();
+            if (RouteScoped.class.getName().equals(scope.getKey())) {
+                for (int position = 0; position < beans.length && position < routeScopeOwners.length; position++) {
+                    final Class<?> owner = routeScopeOwners[position];
+                    if (beans[position] != null && owner != null) {
+                        final List<Contextual<?>> ownerBeans = routeScopedBeans.computeIfAbsent(owner, key -> new ArrayList<>());
+                        slots.put(beans[position], new Slot(ownerBeans.size(), owner));
+                        ownerBeans.add(beans[position]);
+                    }
+                }
+            } else {
+                for (int index = 0; index < beans.length; index++) {
+                    if (beans[index] != null) {
+                        slots.put(beans[index], new Slot(index, null));
+                    }
+                }
+                indexedBeansByScope.put(scope.getKey(), beans);
+            }
+        }
+
+        final Map<Class<?>, Contextual<?>[]> routeScopedBeansByOwner = new HashMap<>();
+        for (final Map.Entry<Class<?>, List<Contextual<?>>> owner : routeScopedBeans.entrySet()) {
+            routeScopedBeansByOwner.put(owner.getKey(), owner.getValue().toArray(NO_BEANS));
+        }
+
+        current = new BeanIndex(slots, indexedBeansByScope, routeScopedBeansByOwner);
+        return slots.size();
+    }
+
+    private static Class<?> loadClass(final String className) {
+
+        if (className == null) {
+            return null;
+        }
+        try {
+            return Thread.currentThread().getContextClassLoader().loadClass(className);
+        } catch (final ClassNotFoundException e) {
+            LOGGER.warn("Couldn't load the route scope owner " + className + ", it is resolved at runtime.", e);
+            return null;
+        }
+    }
+
+    /**
+     * @param bean
+     *            the bean to look up
+     * @param routeScopeOwner
+     *            the owner of the storage, <code>null</code> unless it's one of the route context
+     * @return the index of the bean within the storages of the owner or -1 if it has none there
+     */
+    static int indexOf(final Contextual<?> bean, final Class<?> routeScopeOwner) {
+
+        final Slot slot = current.slots.get(bean);
+        return slot == null || slot.routeScopeOwner != routeScopeOwner ? -1 : slot.index;
+    }
+
+    /**
+     * @return the beans of the context of the scope, at their indices, empty for the route context
+     */
+    static Contextual<?>[] getBeans(final Class<? extends Annotation> scope) {
+
+        return getBeans(scope.getName());
+    }
+
+    static Contextual<?>[] getBeans(final String scopeName) {
+
+        final Contextual<?>[] beans = current.beansByScope.get(scopeName);
+        return beans == null ? NO_BEANS : beans;
+    }
+
+    /**
+     * @param routeScopeOwner
+     *            the owner of a storage of the route context
+     * @return the route scoped beans of the owner, at their indices
+     */
+    static Contextual<?>[] getRouteScopedBeans(final Class<?> routeScopeOwner) {
+
+        final Contextual<?>[] beans = current.routeScopedBeansByOwner.get(routeScopeOwner);
+        return beans == null ? NO_BEANS : beans;
+    }
+
+    /**
+     * @return the owners of the route scoped beans
+     */
+    public static Set<Class<?>> getRouteScopeOwners() {
+
+        return current.routeScopedBeansByOwner.keySet();
+    }
+
+    /**
+     * @return whether there is any route scoped bean
+     */
+    public static boolean hasRouteScopedBeans() {
+
+        return !current.routeScopedBeansByOwner.isEmpty();
+    }
+
+    /**
+     * @param bean
+     *            a {@link RouteScoped @RouteScoped} or {@link com.urosporo.quarkus.vaadin.cdi.annotation.NormalRouteScoped @NormalRouteScoped} bean
+     * @return the owner of the bean, as resolved at build time from its {@link com.urosporo.quarkus.vaadin.cdi.annotation.RouteScopeOwner
+     *         RouteScopeOwner} qualifier or its bean class, or <code>null</code> if it is unknown
+     */
+    public static Class<?> getRouteScopeOwner(final Contextual<?> bean) {
+
+        final Slot slot = current.slots.get(bean);
+        return slot == null ? null : slot.routeScopeOwner;
+    }
+
+    /**
+     * Where the instance of a bean is held: the index within the storages of its context, or of its owner for the route context.
+     */
+    private static final class Slot {
+
+        private final int index;
+
+        private final Class<?> routeScopeOwner;
+
+        private Slot(final int index, final Class<?> routeScopeOwner) {
+
+            this.index = index;
+            this.routeScopeOwner = routeScopeOwner;
+        }
+    }
+}
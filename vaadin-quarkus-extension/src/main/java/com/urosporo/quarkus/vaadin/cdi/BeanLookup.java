@@ -90,18 +90,28 @@ class BeanLookup<T> {
         return this;
     }
 
-    T lookupOrElseGet(final Supplier<T> fallback) {
+    /**
+     * @return the resolved bean or <code>null</code> if there is none or it's ambiguous, after the respective handler is called.
+     */
+    Bean<?> lookupBean() {
 
         final Set<Bean<?>> beans = this.beanManager.getBeans(this.type, this.qualifiers);
         if (beans == null || beans.isEmpty()) {
             this.unsatisfiedHandler.handle();
-            return fallback.get();
+            return null;
         }
-        final Bean<?> bean;
         try {
-            bean = this.beanManager.resolve(beans);
+            return this.beanManager.resolve(beans);
         } catch (final AmbiguousResolutionException e) {
             this.ambiguousHandler.accept(e);
+            return null;
+        }
+    }
+
+    T lookupOrElseGet(final Supplier<T> fallback) {
+
+        final Bean<?> bean = lookupBean();
+        if (bean == null) {
             return fallback.get();
         }
         final CreationalContext<?> ctx = this.beanManager.createCreationalContext(bean);
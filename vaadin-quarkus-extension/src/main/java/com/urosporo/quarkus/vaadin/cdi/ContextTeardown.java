@@ -0,0 +1,265 @@
+package com.urosporo.quarkus.vaadin.cdi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.urosporo.quarkus.vaadin.VaadinMetrics;
+import com.vaadin.flow.internal.CurrentInstance;
+import com.vaadin.flow.server.VaadinSession;
+
+import io.quarkus.arc.InjectableBean;
+
+/**
+ * Destroys the storages of the expired sessions, along with the storages of their UIs and routes.
+ * <p>
+ * Unless {@link #start(int, int, int, long, VaadinMetrics) started}, the storages are destroyed in the calling thread. Once started, they are
+ * queued and destroyed in batches by a limited number of worker threads, with the session of the storage as current instance. A full queue makes
+ * the caller destroy the storage itself, so the queue is a bound and never drops a storage.
+ * <p>
+ * Only the storages of expired sessions are destroyed by the workers, as nothing accesses them anymore. The storages of a detached UI or a left
+ * route belong to an open session, they are destroyed by the thread holding its lock, see {@code AbstractContextualStorageManager}.
+ * <p>
+ * The workers destroy the storages themselves, so the destruction never takes more threads than the configured parallelism. A batch is given
+ * the configured timeout: once it's elapsed, the remaining storages of the batch are abandoned, i.e. their instances are dropped without being
+ * destroyed, and logged. A hanging {@link javax.annotation.PreDestroy @PreDestroy} method holds its worker, at worst all of them, then the
+ * queue fills up and the callers destroy the storages themselves, as if not started.
+ *
+ * @since 1.1.0
+ */
+public final class ContextTeardown {
+
+    private static volatile ContextTeardown current;
+
+    private final BlockingQueue<Teardown> pending;
+
+    private final ExecutorService executor;
+
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    private final int parallelism;
+
+    private final int batchSize;
+
+    private final long destroyTimeoutMillis;
+
+    private final VaadinMetrics metrics;
+
+    private ContextTeardown(final int parallelism, final int batchSize, final int queueCapacity, final long destroyTimeoutMillis,
+            final VaadinMetrics metrics) {
+
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.destroyTimeoutMillis = destroyTimeoutMillis;
+        this.metrics = metrics;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+
+            final Thread thread = new Thread(runnable, "vaadin-context-teardown-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts destroying the storages asynchronously.
+     *
+     * @param parallelism
+     *            the maximum number of worker threads
+     * @param batchSize
+     *            the maximum number of storages a worker takes from the queue at once
+     * @param queueCapacity
+     *            the maximum number of queued storages
+     * @param destroyTimeoutMillis
+     *            how long a worker destroys the storages of a batch, before it abandons the remaining ones
+     * @param metrics
+     *            to publish the queue depth, destruction latency and abandoned storages to
+     */
+    public static void start(final int parallelism, final int batchSize, final int queueCapacity, final long destroyTimeoutMillis,
+            final VaadinMetrics metrics) {
+
+        current = new ContextTeardown(parallelism, batchSize, queueCapacity, destroyTimeoutMillis, metrics);
+    }
+
+    /**
+     * Stops the asynchronous destruction. The storages queued after the timeout are destroyed in the calling thread.
+     *
+     * @param timeoutMillis
+     *            how long to wait for the workers to finish
+     */
+    public static void stop(final long timeoutMillis) {
+
+        final ContextTeardown teardown = current;
+        if (teardown == null) {
+            return;
+        }
+        current = null;
+
+        teardown.executor.shutdown();
+        try {
+            if (!teardown.executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                getLogger().warn("Context teardown didn't finish within {} ms.", timeoutMillis);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        teardown.destroyPending();
+    }
+
+    /**
+     * Destroys all the instances of the storage of an expired session, now or asynchronously.
+     *
+     * @param storage
+     *            the storage to destroy
+     * @param session
+     *            the expired session the storage belongs to
+     */
+    public static void destroy(final ContextualStorage storage, final VaadinSession session) {
+
+        // the storage is detached from its owner already, even if its instances are destroyed later
+        storage.invalidate();
+        final ContextTeardown teardown = current;
+        if (teardown == null) {
+            AbstractContext.destroyAllActive(storage);
+        } else {
+            teardown.submit(new Teardown(storage, session));
+        }
+    }
+
+    private void submit(final Teardown teardown) {
+
+        if (!this.pending.offer(teardown)) {
+            destroyInCurrentThread(teardown);
+            return;
+        }
+        this.metrics.teardownQueued();
+
+        if (tryAddWorker()) {
+            try {
+                this.executor.execute(this::work);
+            } catch (final RejectedExecutionException e) {
+                // stopped meanwhile
+                this.activeWorkers.decrementAndGet();
+                destroyPending();
+            }
+        }
+    }
+
+    private void destroyPending() {
+
+        final List<Teardown> remaining = new ArrayList<>();
+        this.pending.drainTo(remaining);
+        for (final Teardown teardown : remaining) {
+            this.metrics.teardownDequeued();
+            destroyInCurrentThread(teardown);
+        }
+    }
+
+    private boolean tryAddWorker() {
+
+        int workers;
+        while ((workers = this.activeWorkers.get()) < this.parallelism) {
+            if (this.activeWorkers.compareAndSet(workers, workers + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void work() {
+
+        final List<Teardown> batch = new ArrayList<>(this.batchSize);
+        do {
+            try {
+                while (this.pending.drainTo(batch, this.batchSize) > 0) {
+                    destroyBatch(batch);
+                    batch.clear();
+                }
+            } finally {
+                this.activeWorkers.decrementAndGet();
+            }
+            // a storage might have been queued while this worker still counted as active
+        } while (!this.pending.isEmpty() && tryAddWorker());
+    }
+
+    private void destroyBatch(final List<Teardown> batch) {
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.destroyTimeoutMillis);
+        int index = 0;
+        for (; index < batch.size() && System.nanoTime() - deadline < 0; index++) {
+            this.metrics.teardownDequeued();
+            destroyInCurrentThread(batch.get(index));
+        }
+        if (index < batch.size()) {
+            abandon(batch.subList(index, batch.size()));
+        }
+    }
+
+    /**
+     * Drops the instances of the storages without destroying them, so they are garbage collected at least.
+     */
+    private void abandon(final List<Teardown> teardowns) {
+
+        final Set<String> beanClasses = new TreeSet<>();
+        for (final Teardown teardown : teardowns) {
+            this.metrics.teardownDequeued();
+            this.metrics.teardownTimedOut();
+            for (final InjectableBean<?> bean : teardown.storage.getContextualInstances().keySet()) {
+                beanClasses.add(bean.getBeanClass().getName());
+            }
+            teardown.storage.removeAll();
+        }
+        getLogger().warn("{} storages of expired sessions weren't destroyed within {} ms and were abandoned, their beans: {}", teardowns.size(),
+                this.destroyTimeoutMillis, beanClasses);
+    }
+
+    private void destroyInCurrentThread(final Teardown teardown) {
+
+        final long start = System.nanoTime();
+        final Map<Class<?>, CurrentInstance> previous = teardown.session == null ? null : CurrentInstance.setCurrent(teardown.session);
+        try {
+            AbstractContext.destroyAllActive(teardown.storage);
+        } catch (final RuntimeException e) {
+            getLogger().warn("Error while destroying the contextual instances of a torn down context.", e);
+        } finally {
+            if (previous != null) {
+                CurrentInstance.clearAll();
+                CurrentInstance.restoreInstances(previous);
+            }
+            this.metrics.storageDestroyed(System.nanoTime() - start);
+        }
+    }
+
+    private static Logger getLogger() {
+
+        return LoggerFactory.getLogger(ContextTeardown.class);
+    }
+
+    private static final class Teardown {
+
+        private final ContextualStorage storage;
+
+        private final VaadinSession session;
+
+        private Teardown(final ContextualStorage storage, final VaadinSession session) {
+
+            this.storage = storage;
+            this.session = session;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.urosporo.quarkus.vaadin.cdi;
 
 import java.io.Serializable;
 
+import javax.enterprise.context.spi.Contextual;
 import javax.enterprise.context.spi.CreationalContext;
 
 public class ContextualInstanceInfo<T> implements Serializable {
@@ -9,9 +10,9 @@ public class ContextualInstanceInfo<T> implements Serializable {
     private static final long serialVersionUID = 6384932199958645324L;
 
     /**
-     * The actual Contextual Instance in the context
+     * The actual Contextual Instance in the context. Volatile, so it can be read without a lock once created.
      */
-    private T contextualInstance;
+    private volatile T contextualInstance;
 
     /**
      * We need to store the CreationalContext as we need it for properly destroying the contextual instance via
@@ -44,6 +45,33 @@ public class ContextualInstanceInfo<T> implements Serializable {
         return this.contextualInstance;
     }
 
+    /**
+     * Returns the contextual instance, creating it exactly once. Only the creation takes the monitor of this info, reading an already created
+     * instance is a single volatile read.
+     *
+     * @param bean
+     *            the bean to create the instance of
+     * @param creationalContext
+     *            the CreationalContext of the bean
+     * @return the contextual instance itself
+     */
+    T getOrCreateContextualInstance(final Contextual<T> bean, final CreationalContext<T> creationalContext) {
+
+        T instance = this.contextualInstance;
+        if (instance == null) {
+            synchronized (this) {
+                instance = this.contextualInstance;
+                if (instance == null) {
+                    instance = bean.create(creationalContext);
+                    this.creationalContext = creationalContext;
+                    // publishes the creational context as well
+                    this.contextualInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
     /**
      * @param contextualInstance
      *            the contextual instance itself
@@ -1,45 +1,82 @@
 package com.urosporo.quarkus.vaadin.cdi;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.annotation.Annotation;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.enterprise.context.spi.Contextual;
 import javax.enterprise.context.spi.CreationalContext;
 import javax.enterprise.inject.spi.BeanManager;
 
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.InjectableBean;
+
+/**
+ * Holds the contextual instances of a single UI, session, route or service.
+ * <p>
+ * The instances of the beans indexed at build time by {@link BeanIndex} are kept in an array slot of their index. A storage of the route context
+ * only has slots for the beans of its owner. Beans without an index, which aren't expected but supported, are kept in a map created on demand.
+ * <p>
+ * The indices aren't serialized, as they may differ in the instance deserializing the storage. The indexed instances are written with the
+ * identifiers of their beans and put into the slots of the current index when read, the ones of beans which don't exist anymore are dropped.
+ */
 public class ContextualStorage implements Serializable {
 
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 3L;
+
+    private final String scopeName;
+
+    private final Class<?> routeScopeOwner;
+
+    private transient AtomicReferenceArray<ContextualInstanceInfo<?>> indexedInstances;
 
-    private final Map<Object, ContextualInstanceInfo<?>> contextualInstances;
+    private volatile Map<Object, ContextualInstanceInfo<?>> contextualInstances;
 
     private final boolean concurrent;
 
+    /**
+     * Advanced after each removal, for the instances memoized by {@link ResolvedInstances}.
+     */
+    private final AtomicLong epoch = new AtomicLong();
+
     /**
      * @param beanManager
      *            is needed for serialisation
      * @param concurrent
      *            whether the ContextualStorage might get accessed concurrently by different threads
+     * @param scope
+     *            the scope of the context, its beans determine the size of the storage
      */
-    public ContextualStorage(final BeanManager beanManager, final boolean concurrent) {
+    public ContextualStorage(final BeanManager beanManager, final boolean concurrent, final Class<? extends Annotation> scope) {
 
-        this.concurrent = concurrent;
-        if (concurrent) {
-            this.contextualInstances = new ConcurrentHashMap<>();
-        } else {
-            this.contextualInstances = new HashMap<>();
-        }
+        this(beanManager, concurrent, scope, null);
     }
 
     /**
-     * @return the underlying storage map.
+     * @param beanManager
+     *            is needed for serialisation
+     * @param concurrent
+     *            whether the ContextualStorage might get accessed concurrently by different threads
+     * @param scope
+     *            the scope of the context
+     * @param routeScopeOwner
+     *            the owner of a storage of the route context, its beans determine the size of the storage, else <code>null</code>
      */
-    public Map<Object, ContextualInstanceInfo<?>> getStorage() {
+    public ContextualStorage(final BeanManager beanManager, final boolean concurrent, final Class<? extends Annotation> scope,
+            final Class<?> routeScopeOwner) {
 
-        return this.contextualInstances;
+        this.concurrent = concurrent;
+        this.scopeName = scope.getName();
+        this.routeScopeOwner = routeScopeOwner;
+        this.indexedInstances = new AtomicReferenceArray<>(getIndexedBeans().length);
     }
 
     /**
@@ -52,48 +89,234 @@ public class ContextualStorage implements Serializable {
 
     /**
      * @param <T>
-     *            dummy 4 deploy (TODO fix it)
+     *            the type of the contextual instance
      * @param bean
-     *            dummy 4 deploy (TODO fix it)
+     *            the bean to look up the instance of
+     *
+     * @return the contextual instance or <code>null</code> if there is none yet
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getContextualInstance(final Contextual<T> bean) {
+
+        final ContextualInstanceInfo<?> instanceInfo;
+        final int index = indexOf(bean);
+        if (index >= 0) {
+            instanceInfo = this.indexedInstances.get(index);
+        } else {
+            final Map<Object, ContextualInstanceInfo<?>> instances = this.contextualInstances;
+            instanceInfo = instances == null ? null : instances.get(getBeanKey(bean));
+        }
+        return instanceInfo == null ? null : (T) instanceInfo.getContextualInstance();
+    }
+
+    /**
+     * Returns the contextual instance of the bean, creating it if there is none yet. Each instance is created exactly once, even if the storage
+     * is accessed concurrently.
+     * <p>
+     * An existing instance costs the identity hash lookup of the index of the bean and a volatile array read, without taking any lock. On a
+     * miss, the {@link ContextualInstanceInfo} is only allocated if the slot is still empty, and the instance is created under its monitor.
+     *
+     * @param <T>
+     *            the type of the contextual instance
+     * @param bean
+     *            the bean to create the instance of
      * @param creationalContext
-     *            dummy 4 deploy (TODO fix it)
+     *            the CreationalContext to create the instance with
      *
-     * @return dummy 4 deploy (TODO fix it)
+     * @return the contextual instance
      */
+    @SuppressWarnings("unchecked")
     public <T> T createContextualInstance(final Contextual<T> bean, final CreationalContext<T> creationalContext) {
 
+        final int index = indexOf(bean);
+        if (index < 0) {
+            return createUnindexedContextualInstance(bean, creationalContext);
+        }
+
+        ContextualInstanceInfo<T> instanceInfo = (ContextualInstanceInfo<T>) this.indexedInstances.get(index);
+        while (instanceInfo == null) {
+            final ContextualInstanceInfo<T> newInstanceInfo = new ContextualInstanceInfo<>();
+            if (this.indexedInstances.compareAndSet(index, null, newInstanceInfo)) {
+                instanceInfo = newInstanceInfo;
+            } else {
+                instanceInfo = (ContextualInstanceInfo<T>) this.indexedInstances.get(index);
+            }
+        }
+        return instanceInfo.getOrCreateContextualInstance(bean, creationalContext);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T createUnindexedContextualInstance(final Contextual<T> bean, final CreationalContext<T> creationalContext) {
+
+        final Map<Object, ContextualInstanceInfo<?>> instances = getUnindexedInstances();
         final Object beanKey = getBeanKey(bean);
-        if (isConcurrent()) {
-            // locked approach
-            ContextualInstanceInfo<T> instanceInfo = new ContextualInstanceInfo<>();
+        ContextualInstanceInfo<T> instanceInfo = (ContextualInstanceInfo<T>) instances.get(beanKey);
+        if (instanceInfo == null) {
+            // the bean isn't created within computeIfAbsent, it may access the same storage
+            instanceInfo = (ContextualInstanceInfo<T>) instances.computeIfAbsent(beanKey, key -> new ContextualInstanceInfo<>());
+        }
+        return instanceInfo.getOrCreateContextualInstance(bean, creationalContext);
+    }
+
+    private Map<Object, ContextualInstanceInfo<?>> getUnindexedInstances() {
+
+        Map<Object, ContextualInstanceInfo<?>> instances = this.contextualInstances;
+        if (instances == null) {
+            synchronized (this) {
+                instances = this.contextualInstances;
+                if (instances == null) {
+                    // rare, so always concurrent: a snapshot task may create instances without the session lock
+                    instances = new ConcurrentHashMap<>();
+                    this.contextualInstances = instances;
+                }
+            }
+        }
+        return instances;
+    }
+
+    /**
+     * @param bean
+     *            the bean to remove the instance of
+     * @return the removed instance info or <code>null</code> if there was none
+     */
+    public ContextualInstanceInfo<?> removeContextualInstance(final Contextual<?> bean) {
+
+        final int index = indexOf(bean);
+        final ContextualInstanceInfo<?> removed;
+        if (index >= 0) {
+            removed = this.indexedInstances.getAndSet(index, null);
+        } else {
+            final Map<Object, ContextualInstanceInfo<?>> instances = this.contextualInstances;
+            removed = instances == null ? null : instances.remove(getBeanKey(bean));
+        }
+        invalidate();
+        return removed;
+    }
 
-            final ConcurrentMap<Object, ContextualInstanceInfo<?>> concurrentMap = (ConcurrentHashMap<Object, ContextualInstanceInfo<?>>) this.contextualInstances;
+    /**
+     * Removes all the instances of the storage.
+     *
+     * @return the removed instance infos, keyed by their bean key
+     */
+    public Map<Object, ContextualInstanceInfo<?>> removeAll() {
 
-            final ContextualInstanceInfo<T> oldInstanceInfo = (ContextualInstanceInfo<T>) concurrentMap.putIfAbsent(beanKey, instanceInfo);
+        final Map<Object, ContextualInstanceInfo<?>> removed = new HashMap<>();
 
-            if (oldInstanceInfo != null) {
-                instanceInfo = oldInstanceInfo;
+        final Contextual<?>[] beans = getIndexedBeans();
+        final int length = Math.min(beans.length, this.indexedInstances.length());
+        for (int index = 0; index < length; index++) {
+            final ContextualInstanceInfo<?> instanceInfo = this.indexedInstances.getAndSet(index, null);
+            if (instanceInfo != null) {
+                removed.put(getBeanKey(beans[index]), instanceInfo);
             }
-            synchronized (instanceInfo) {
-                T instance = instanceInfo.getContextualInstance();
-                if (instance == null) {
-                    instance = bean.create(creationalContext);
-                    instanceInfo.setContextualInstance(instance);
-                    instanceInfo.setCreationalContext(creationalContext);
-                }
+        }
 
-                return instance;
+        final Map<Object, ContextualInstanceInfo<?>> instances = this.contextualInstances;
+        if (instances != null) {
+            for (final Iterator<Map.Entry<Object, ContextualInstanceInfo<?>>> entries = instances.entrySet().iterator(); entries.hasNext();) {
+                final Map.Entry<Object, ContextualInstanceInfo<?>> entry = entries.next();
+                removed.put(entry.getKey(), entry.getValue());
+                entries.remove();
             }
+        }
+        invalidate();
+        return removed;
+    }
 
-        } else {
-            // simply create the contextual instance
-            final ContextualInstanceInfo<T> instanceInfo = new ContextualInstanceInfo<>();
-            instanceInfo.setCreationalContext(creationalContext);
-            instanceInfo.setContextualInstance(bean.create(creationalContext));
+    /**
+     * @return the epoch of the storage, advanced whenever an instance is removed
+     */
+    long getEpoch() {
 
-            this.contextualInstances.put(beanKey, instanceInfo);
+        return this.epoch.get();
+    }
+
+    /**
+     * Starts a new epoch, so no memoized instance of the storage is used anymore, e.g. as the storage is detached from its owner.
+     */
+    void invalidate() {
+
+        this.epoch.incrementAndGet();
+    }
+
+    /**
+     * @return a copy of the created instances of the storage, keyed by their bean
+     */
+    public Map<InjectableBean<?>, Object> getContextualInstances() {
+
+        final Map<InjectableBean<?>, Object> instances = new HashMap<>();
+
+        final Contextual<?>[] beans = getIndexedBeans();
+        final int length = Math.min(beans.length, this.indexedInstances.length());
+        for (int index = 0; index < length; index++) {
+            putContextualInstance(instances, beans[index], this.indexedInstances.get(index));
+        }
 
-            return instanceInfo.getContextualInstance();
+        final Map<Object, ContextualInstanceInfo<?>> unindexedInstances = this.contextualInstances;
+        if (unindexedInstances != null) {
+            for (final Map.Entry<Object, ContextualInstanceInfo<?>> entry : unindexedInstances.entrySet()) {
+                putContextualInstance(instances, getBean(entry.getKey()), entry.getValue());
+            }
+        }
+        return instances;
+    }
+
+    private static void putContextualInstance(final Map<InjectableBean<?>, Object> instances, final Contextual<?> bean,
+            final ContextualInstanceInfo<?> instanceInfo) {
+
+        final Object instance = instanceInfo == null ? null : instanceInfo.getContextualInstance();
+        if (instance != null && bean instanceof InjectableBean) {
+            instances.put((InjectableBean<?>) bean, instance);
+        }
+    }
+
+    private int indexOf(final Contextual<?> bean) {
+
+        final int index = BeanIndex.indexOf(bean, this.routeScopeOwner);
+        // the storage might have been created before a live reload added beans
+        return index < this.indexedInstances.length() ? index : -1;
+    }
+
+    private Contextual<?>[] getIndexedBeans() {
+
+        return this.routeScopeOwner == null ? BeanIndex.getBeans(this.scopeName) : BeanIndex.getRouteScopedBeans(this.routeScopeOwner);
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+
+        out.defaultWriteObject();
+
+        final Map<String, ContextualInstanceInfo<?>> instances = new HashMap<>();
+        final Contextual<?>[] beans = getIndexedBeans();
+        final int length = Math.min(beans.length, this.indexedInstances.length());
+        for (int index = 0; index < length; index++) {
+            final ContextualInstanceInfo<?> instanceInfo = this.indexedInstances.get(index);
+            if (instanceInfo != null && beans[index] instanceof InjectableBean) {
+                instances.put(((InjectableBean<?>) beans[index]).getIdentifier(), instanceInfo);
+            }
+        }
+        out.writeObject(instances);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+
+        in.defaultReadObject();
+
+        this.indexedInstances = new AtomicReferenceArray<>(getIndexedBeans().length);
+        final Map<String, ContextualInstanceInfo<?>> instances = (Map<String, ContextualInstanceInfo<?>>) in.readObject();
+        for (final Map.Entry<String, ContextualInstanceInfo<?>> entry : instances.entrySet()) {
+            final InjectableBean<?> bean = Arc.container().bean(entry.getKey());
+            if (bean == null) {
+                // not part of this deployment
+                continue;
+            }
+            final int index = indexOf(bean);
+            if (index >= 0) {
+                this.indexedInstances.set(index, entry.getValue());
+            } else {
+                getUnindexedInstances().put(getBeanKey(bean), entry.getValue());
+            }
         }
     }
 
@@ -0,0 +1,109 @@
+package com.urosporo.quarkus.vaadin.cdi;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import javax.enterprise.event.Event;
+import javax.enterprise.event.NotificationOptions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.urosporo.quarkus.vaadin.QuarkusBuildContext;
+import com.urosporo.quarkus.vaadin.cdi.context.VaadinContextSnapshot;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.internal.CurrentInstance;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinSession;
+
+import io.quarkus.arc.Arc;
+
+/**
+ * A Vaadin event type bridged to CDI, with the {@link Event} selected once and the kind of its observers known at build time.
+ * <p>
+ * Synchronous observers are notified in the calling thread, while the session is locked. {@code @ObservesAsync} observers are notified on the
+ * executor of the container, with a {@link VaadinContextSnapshot} of the UI, session and service of the event, so the Vaadin scopes are active.
+ * The session isn't locked there: observers have to apply their changes to the UI by {@link UI#access(com.vaadin.flow.server.Command)}.
+ *
+ * @param <T>
+ *            the event type
+ * @since 1.1.0
+ */
+final class ObservedEvent<T> {
+
+    private final Event<T> event;
+
+    private final boolean observed;
+
+    private final boolean observedAsync;
+
+    ObservedEvent(final Event<Object> events, final Class<T> type, final QuarkusBuildContext vaadinQuarkusContext) {
+
+        this.event = events.select(type);
+        this.observed = vaadinQuarkusContext.isObserved(type);
+        this.observedAsync = vaadinQuarkusContext.isObservedAsync(type);
+    }
+
+    /**
+     * @return whether there is any observer, synchronous or asynchronous
+     */
+    boolean isObserved() {
+
+        return this.observed || this.observedAsync;
+    }
+
+    void fire(final T payload, final UI ui) {
+
+        fire(payload, () -> CurrentInstance.setCurrent(ui));
+    }
+
+    void fire(final T payload, final VaadinSession session) {
+
+        fire(payload, () -> CurrentInstance.setCurrent(session));
+    }
+
+    void fire(final T payload, final VaadinService service) {
+
+        fire(payload, () -> {
+
+            final Map<Class<?>, CurrentInstance> previous = CurrentInstance.getInstances();
+            CurrentInstance.set(VaadinService.class, service);
+            return previous;
+        });
+    }
+
+    private void fire(final T payload, final Supplier<Map<Class<?>, CurrentInstance>> currentInstances) {
+
+        if (this.observed) {
+            this.event.fire(payload);
+        }
+        if (this.observedAsync) {
+            final Executor executor = snapshot(currentInstances).wrap(Arc.container().getExecutorService());
+            this.event.fireAsync(payload, NotificationOptions.ofExecutor(executor)).exceptionally(e -> {
+
+                getLogger().warn("Asynchronous observer of " + payload.getClass().getName() + " failed.", e);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Takes the snapshot of the contexts with the instances of the event as current ones, in the firing thread which holds the session lock.
+     */
+    private static VaadinContextSnapshot snapshot(final Supplier<Map<Class<?>, CurrentInstance>> currentInstances) {
+
+        final Map<Class<?>, CurrentInstance> previous = currentInstances.get();
+        try {
+            return VaadinContextSnapshot.capture();
+        } finally {
+            CurrentInstance.clearAll();
+            CurrentInstance.restoreInstances(previous);
+        }
+    }
+
+    private static Logger getLogger() {
+
+        return LoggerFactory.getLogger(ObservedEvent.class);
+    }
+}
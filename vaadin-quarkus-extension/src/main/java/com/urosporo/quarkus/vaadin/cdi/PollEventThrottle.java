@@ -0,0 +1,288 @@
+package com.urosporo.quarkus.vaadin.cdi;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.urosporo.quarkus.vaadin.PollEventBatch;
+import com.urosporo.quarkus.vaadin.PollEventMode;
+import com.urosporo.quarkus.vaadin.SlowClientGuard;
+import com.urosporo.quarkus.vaadin.VaadinMetrics;
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.PollEvent;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.internal.CurrentInstance;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * Throttles or batches the delivery of the {@link PollEvent}s to CDI observers, according to the configured {@link PollEventMode}.
+ * <p>
+ * Unless {@link #start(PollEventMode, long, VaadinMetrics, Executor) started}, every poll is delivered. Once started, the polls of a UI or
+ * session are collected in a window kept on the UI or in the session. Poll events are fired while the session is locked, so the window needs
+ * no further synchronization. The trailing delivery at the end of an interval is scheduled on a single thread, which only hands it over to the
+ * executor: the executor queues it by {@link VaadinSession#access(com.vaadin.flow.server.Command)}, so a busy session never delays the
+ * deliveries of the others.
+ *
+ * @since 1.1.0
+ */
+public final class PollEventThrottle {
+
+    private static volatile PollEventThrottle current;
+
+    private final PollEventMode mode;
+
+    private final long intervalNanos;
+
+    private final VaadinMetrics metrics;
+
+    private final Executor executor;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private PollEventThrottle(final PollEventMode mode, final long intervalMillis, final VaadinMetrics metrics, final Executor executor) {
+
+        this.mode = mode;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.metrics = metrics;
+        this.executor = executor;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+
+            final Thread thread = new Thread(runnable, "vaadin-poll-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Starts throttling or batching the poll events.
+     *
+     * @param mode
+     *            the delivery mode of the poll events, not {@link PollEventMode#ALL}
+     * @param intervalMillis
+     *            the interval of the throttled or batched polls
+     * @param metrics
+     *            to count the delivered and dropped polls
+     * @param executor
+     *            to queue the deliveries at the end of the intervals
+     */
+    public static void start(final PollEventMode mode, final long intervalMillis, final VaadinMetrics metrics, final Executor executor) {
+
+        current = new PollEventThrottle(mode, intervalMillis, metrics, executor);
+    }
+
+    /**
+     * Stops throttling the poll events, the polls waiting for the end of their interval are dropped.
+     */
+    public static void stop() {
+
+        final PollEventThrottle throttle = current;
+        if (throttle != null) {
+            current = null;
+            throttle.scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the started throttle, <code>null</code> if every poll is delivered
+     */
+    static PollEventThrottle current() {
+
+        return current;
+    }
+
+    /**
+     * Delivers the poll, or collects it for the delivery at the end of the interval of its UI or session.
+     *
+     * @param event
+     *            the poll, its session is locked by the current thread
+     * @param poll
+     *            to deliver the polls to, if throttled
+     * @param batch
+     *            to deliver the batches to, if batched
+     */
+    void onPoll(final PollEvent event, final ObservedEvent<PollEvent> poll, final ObservedEvent<PollEventBatch> batch) {
+
+        final UI ui = event.getSource();
+        final VaadinSession session = ui.getSession();
+        final PollWindow window = getWindow(ui, session);
+        final long now = System.nanoTime();
+        if (isBatched()) {
+            window.getUIs().add(ui);
+            window.polls++;
+        } else if (!window.delivered || now - window.deliveryNanoTime >= this.intervalNanos) {
+            if (window.pending != null) {
+                // its delivery is late, this poll replaces it
+                window.pending = null;
+                this.metrics.pollEventDropped();
+            }
+            window.delivered = true;
+            window.deliveryNanoTime = now;
+            this.metrics.pollEventDelivered();
+            poll.fire(event, ui);
+            return;
+        } else {
+            if (window.pending != null) {
+                this.metrics.pollEventDropped();
+            }
+            window.pending = event;
+        }
+        scheduleFlush(session, window, now, poll, batch);
+    }
+
+    private boolean isBatched() {
+
+        return this.mode == PollEventMode.BATCH_PER_UI || this.mode == PollEventMode.BATCH_PER_SESSION;
+    }
+
+    private PollWindow getWindow(final UI ui, final VaadinSession session) {
+
+        if (this.mode == PollEventMode.THROTTLE_PER_SESSION || this.mode == PollEventMode.BATCH_PER_SESSION) {
+            PollWindow window = session.getAttribute(PollWindow.class);
+            if (window == null) {
+                window = new PollWindow();
+                session.setAttribute(PollWindow.class, window);
+            }
+            return window;
+        }
+
+        PollWindow window = ComponentUtil.getData(ui, PollWindow.class);
+        if (window == null) {
+            window = new PollWindow();
+            ComponentUtil.setData(ui, PollWindow.class, window);
+        }
+        return window;
+    }
+
+    /**
+     * Schedules the delivery at the end of the interval, unless scheduled already. A delivery overdue by a whole interval is considered lost,
+     * e.g. its access was cancelled, and scheduled again.
+     */
+    private void scheduleFlush(final VaadinSession session, final PollWindow window, final long now, final ObservedEvent<PollEvent> poll,
+            final ObservedEvent<PollEventBatch> batch) {
+
+        if (window.flushScheduled && now - window.flushNanoTime < this.intervalNanos) {
+            return;
+        }
+
+        final long flushNanoTime = isBatched() ? now + this.intervalNanos : window.deliveryNanoTime + this.intervalNanos;
+        try {
+            this.scheduler.schedule(() -> dispatchFlush(session, window, poll, batch), Math.max(0, flushNanoTime - now), TimeUnit.NANOSECONDS);
+            window.flushScheduled = true;
+            window.flushNanoTime = flushNanoTime;
+        } catch (final RejectedExecutionException e) {
+            // stopped meanwhile
+        }
+    }
+
+    /**
+     * Runs on the scheduler thread, which never accesses a session itself.
+     */
+    private void dispatchFlush(final VaadinSession session, final PollWindow window, final ObservedEvent<PollEvent> poll,
+            final ObservedEvent<PollEventBatch> batch) {
+
+        try {
+            this.executor.execute(() -> SlowClientGuard.accessExempt(session, () -> flush(session, window, poll, batch)));
+        } catch (final RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    private void flush(final VaadinSession session, final PollWindow window, final ObservedEvent<PollEvent> poll,
+            final ObservedEvent<PollEventBatch> batch) {
+
+        window.flushScheduled = false;
+        if (isBatched()) {
+            final int polls = window.polls;
+            final List<UI> uis = new ArrayList<>();
+            for (final UI ui : window.getUIs()) {
+                if (ui.getSession() == session && !ui.isClosing()) {
+                    uis.add(ui);
+                }
+            }
+            window.getUIs().clear();
+            window.polls = 0;
+            if (polls == 0) {
+                return;
+            }
+            this.metrics.pollEventBatchDelivered(polls);
+            if (this.mode == PollEventMode.BATCH_PER_UI && !uis.isEmpty()) {
+                fireWithCurrentUI(uis.get(0), () -> batch.fire(new PollEventBatch(session, uis, polls), uis.get(0)));
+            } else {
+                batch.fire(new PollEventBatch(session, uis, polls), session);
+            }
+            return;
+        }
+
+        final PollEvent pending = window.pending;
+        window.pending = null;
+        if (pending == null) {
+            return;
+        }
+        final UI ui = pending.getSource();
+        if (ui.getSession() != session || ui.isClosing()) {
+            this.metrics.pollEventDropped();
+            return;
+        }
+        window.delivered = true;
+        window.deliveryNanoTime = System.nanoTime();
+        this.metrics.pollEventDelivered();
+        fireWithCurrentUI(ui, () -> poll.fire(pending, ui));
+    }
+
+    /**
+     * The session access only sets the session as the current one, the synchronous observers of a UI's event also get the UI.
+     */
+    private static void fireWithCurrentUI(final UI ui, final Runnable fire) {
+
+        final Map<Class<?>, CurrentInstance> previous = CurrentInstance.setCurrent(ui);
+        try {
+            fire.run();
+        } finally {
+            CurrentInstance.clearAll();
+            CurrentInstance.restoreInstances(previous);
+        }
+    }
+
+    /**
+     * The polls of a UI or session within the current interval. After a deserialization the next poll starts a new interval.
+     */
+    @SuppressWarnings("serial")
+    private static final class PollWindow implements Serializable {
+
+        private transient boolean delivered;
+
+        private transient long deliveryNanoTime;
+
+        /**
+         * The last poll within the interval, if throttled.
+         */
+        private transient PollEvent pending;
+
+        /**
+         * The polling UIs and the number of polls within the interval, if batched.
+         */
+        private transient Set<UI> uis;
+
+        private transient int polls;
+
+        private transient boolean flushScheduled;
+
+        private transient long flushNanoTime;
+
+        private Set<UI> getUIs() {
+
+            if (this.uis == null) {
+                this.uis = new LinkedHashSet<>();
+            }
+            return this.uis;
+        }
+    }
+}
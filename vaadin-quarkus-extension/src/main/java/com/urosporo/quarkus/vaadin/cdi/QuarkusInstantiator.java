@@ -1,15 +1,18 @@
 package com.urosporo.quarkus.vaadin.cdi;
 
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.inject.Inject;
 
-import io.quarkus.arc.Unremovable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.urosporo.quarkus.vaadin.QuarkusBuildContext;
 import com.urosporo.quarkus.vaadin.QuarkusNpmTemplateParser;
 import com.urosporo.quarkus.vaadin.cdi.annotation.VaadinServiceEnabled;
 import com.urosporo.quarkus.vaadin.cdi.annotation.VaadinServiceScoped;
@@ -21,6 +24,10 @@ import com.vaadin.flow.i18n.I18NProvider;
 import com.vaadin.flow.server.VaadinService;
 import com.vaadin.flow.server.VaadinServiceInitListener;
 
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.InjectableBean;
+import io.quarkus.arc.Unremovable;
+
 @VaadinServiceScoped
 @VaadinServiceEnabled
 @SuppressWarnings("serial")
@@ -31,11 +38,32 @@ public class QuarkusInstantiator implements Instantiator {
     private static final String FALLING_BACK_TO_DEFAULT_INSTANTIATION = "Falling back to default instantiation.";
 
     private final AtomicBoolean i18NLoggingEnabled = new AtomicBoolean(true);
+
+    /**
+     * Resolved once per VaadinService, reset when the service is destroyed (e.g. on a live reload). The reference is a proxy, so it stays
+     * valid.
+     */
+    private transient volatile Optional<I18NProvider> i18NProvider;
     private DefaultInstantiator delegate;
 
     @Inject
     BeanManager beanManager;
 
+    @Inject
+    QuarkusBuildContext vaadinQuarkusContext;
+
+    /**
+     * The bean resolution is done once per class, mostly at build time, so {@link #getOrCreate(Class)} does no resolution work.
+     */
+    private final transient ClassValue<Resolution> resolutions = new ClassValue<Resolution>() {
+
+        @Override
+        protected Resolution computeValue(final Class<?> type) {
+
+            return resolve(type);
+        }
+    };
+
     public Class<? extends VaadinService> getServiceClass() {
 
         return QuarkusVaadinServletService.class;
@@ -50,6 +78,7 @@ public class QuarkusInstantiator implements Instantiator {
     public boolean init(final VaadinService service) {
 
         this.delegate = new DefaultInstantiator(service);
+        service.addServiceDestroyListener(event -> this.i18NProvider = null);
         return this.delegate.init(service) && getServiceClass().isAssignableFrom(service.getClass());
     }
 
@@ -62,20 +91,33 @@ public class QuarkusInstantiator implements Instantiator {
     @Override
     public <T> T getOrCreate(final Class<T> type) {
 
-        return new BeanLookup<>(getBeanManager(), type)
-                .setUnsatisfiedHandler(() -> getLogger().debug("'{}' is not a CDI bean. " + FALLING_BACK_TO_DEFAULT_INSTANTIATION, type.getName()))
-                .setAmbiguousHandler(e -> getLogger().debug("Multiple CDI beans found. " + FALLING_BACK_TO_DEFAULT_INSTANTIATION, e))
-                .lookupOrElseGet(() -> {
-                    final T instance = this.delegate.getOrCreate(type);
-                    // BeanProvider.injectFields(instance); // TODO maybe it could be fixed after Quarkus-Arc ticket
-                    // https://github.com/quarkusio/quarkus/issues/2378 is done
-                    return instance;
-                });
+        final Resolution resolution = this.resolutions.get(type);
+        if (resolution.bean == null) {
+            final T instance = create(type);
+            // BeanProvider.injectFields(instance); // TODO maybe it could be fixed after Quarkus-Arc ticket
+            // https://github.com/quarkusio/quarkus/issues/2378 is done
+            return instance;
+        }
+        if (resolution.reference != null) {
+            return type.cast(resolution.reference);
+        }
+        final CreationalContext<?> ctx = getBeanManager().createCreationalContext(resolution.bean);
+        return type.cast(getBeanManager().getReference(resolution.bean, type, ctx));
     }
 
     @Override
     public I18NProvider getI18NProvider() {
 
+        Optional<I18NProvider> provider = this.i18NProvider;
+        if (provider == null) {
+            provider = Optional.ofNullable(lookupI18NProvider());
+            this.i18NProvider = provider;
+        }
+        return provider.orElse(null);
+    }
+
+    private I18NProvider lookupI18NProvider() {
+
         final BeanLookup<I18NProvider> lookup = new BeanLookup<>(getBeanManager(), I18NProvider.class, BeanLookup.SERVICE);
         if (this.i18NLoggingEnabled.compareAndSet(true, false)) {
             lookup.setUnsatisfiedHandler(
@@ -92,9 +134,57 @@ public class QuarkusInstantiator implements Instantiator {
     @Override
     public <T extends Component> T createComponent(final Class<T> componentClass) {
 
+        final T component = this.vaadinQuarkusContext.getComponentFactories().create(componentClass);
+        if (component != null) {
+            return component;
+        }
         return this.delegate.createComponent(componentClass);
     }
 
+    private Resolution resolve(final Class<?> type) {
+
+        final String beanIdentifier = this.vaadinQuarkusContext.getBeanIdentifier(type.getName());
+        if (beanIdentifier != null) {
+            final InjectableBean<?> bean = Arc.container().bean(beanIdentifier);
+            if (bean != null) {
+                return newResolution(bean, type);
+            }
+        }
+
+        if (this.vaadinQuarkusContext.isPlainClass(type.getName())) {
+            return Resolution.PLAIN;
+        }
+
+        // not known at build time, e.g. a type which isn't part of the index
+        final Bean<?> bean = new BeanLookup<>(getBeanManager(), type)
+                .setUnsatisfiedHandler(() -> getLogger().debug("'{}' is not a CDI bean. " + FALLING_BACK_TO_DEFAULT_INSTANTIATION, type.getName()))
+                .setAmbiguousHandler(e -> getLogger().debug("Multiple CDI beans found. " + FALLING_BACK_TO_DEFAULT_INSTANTIATION, e))
+                .lookupBean();
+        return bean == null ? Resolution.PLAIN : newResolution(bean, type);
+    }
+
+    private Resolution newResolution(final Bean<?> bean, final Class<?> type) {
+
+        if (!getBeanManager().isNormalScope(bean.getScope())) {
+            return new Resolution(bean, null);
+        }
+        // the client proxy of a normal scoped bean can be shared
+        final CreationalContext<?> ctx = getBeanManager().createCreationalContext(bean);
+        return new Resolution(bean, getBeanManager().getReference(bean, type, ctx));
+    }
+
+    /**
+     * Creates the instance by its generated factory if there is one, else by the reflection based {@link DefaultInstantiator}.
+     */
+    private <T> T create(final Class<T> type) {
+
+        final T instance = this.vaadinQuarkusContext.getComponentFactories().create(type);
+        if (instance != null) {
+            return instance;
+        }
+        return this.delegate.getOrCreate(type);
+    }
+
     @Override
     public TemplateParser getTemplateParser() {
 
@@ -105,4 +195,22 @@ public class QuarkusInstantiator implements Instantiator {
 
         return LoggerFactory.getLogger(QuarkusInstantiator.class);
     }
+
+    /**
+     * The instantiation decision for a single class: either a CDI bean or a plain class.
+     */
+    private static final class Resolution {
+
+        private static final Resolution PLAIN = new Resolution(null, null);
+
+        private final Bean<?> bean;
+
+        private final Object reference;
+
+        private Resolution(final Bean<?> bean, final Object reference) {
+
+            this.bean = bean;
+            this.reference = reference;
+        }
+    }
 }
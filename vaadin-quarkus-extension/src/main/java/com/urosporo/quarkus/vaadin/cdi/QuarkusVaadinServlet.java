@@ -4,6 +4,7 @@ import static java.util.Optional.empty;
 import static java.util.Optional.of;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 import javax.enterprise.inject.spi.BeanManager;
@@ -16,6 +17,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.jboss.logging.Logger;
 
 import com.urosporo.quarkus.vaadin.QuarkusBuildContext;
+import com.urosporo.quarkus.vaadin.RouteDefinition;
 import com.vaadin.flow.function.DeploymentConfiguration;
 import com.vaadin.flow.router.RouteConfiguration;
 import com.vaadin.flow.server.ServiceException;
@@ -96,7 +98,8 @@ public class QuarkusVaadinServlet extends VaadinServlet {
     @Override
     protected VaadinServletService createServletService(final DeploymentConfiguration configuration) throws ServiceException {
 
-        final QuarkusVaadinServletService service = new QuarkusVaadinServletService(this, configuration, this.beanManager);
+        final QuarkusVaadinServletService service = new QuarkusVaadinServletService(this, configuration, this.beanManager,
+                this.vaadinQuarkusContext);
         service.init();
         return service;
     }
@@ -107,15 +110,27 @@ public class QuarkusVaadinServlet extends VaadinServlet {
 
         final RouteConfiguration routeConfiguration = RouteConfiguration.forRegistry(routeRegistry);
 
-        LOGGER.info(this.vaadinQuarkusContext.getRoutes().size() + " routes are there to register.");
+        final List<RouteDefinition> routes = this.vaadinQuarkusContext.getRoutes();
 
-        this.vaadinQuarkusContext.getRoutes().forEach(route -> {
+        LOGGER.info(routes.size() + " routes are there to register.");
 
-            if (!routeConfiguration.isRouteRegistered(route)) {
-                LOGGER.info("Register route for " + route.getClass());
-                routeConfiguration.setAnnotatedRoute(route);
-            }
+        // the route table is fully resolved at build time, install it as one batch so the registry
+        // gets locked and fires its change event only once
+        routeConfiguration.update(() -> routes.forEach(route -> registerRoute(routeConfiguration, route)));
+    }
+
+    private void registerRoute(final RouteConfiguration routeConfiguration, final RouteDefinition route) {
+
+        if (routeConfiguration.getRoute(route.getPath()).isPresent()) {
+            LOGGER.debug("Route for path '" + route.getPath() + "' is already registered.");
+            return;
+        }
+
+        this.vaadinQuarkusContext.findNavigationTarget(route).ifPresent(navigationTarget -> {
+
+            LOGGER.debug("Register route '" + route.getPath() + "' for " + navigationTarget.getName());
+            routeConfiguration.setRoute(route.getPath(), navigationTarget, this.vaadinQuarkusContext.findParentLayouts(route));
         });
     }
 
-}
\ No newline at end of file
+}
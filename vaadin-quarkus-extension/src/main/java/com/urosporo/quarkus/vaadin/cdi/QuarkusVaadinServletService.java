@@ -5,9 +5,11 @@ import static com.urosporo.quarkus.vaadin.cdi.BeanLookup.SERVICE;
 import java.io.Serializable;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import javax.enterprise.context.spi.Context;
 import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.event.Event;
 import javax.enterprise.inject.AmbiguousResolutionException;
 import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
@@ -15,7 +17,15 @@ import javax.enterprise.inject.spi.BeanManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.urosporo.quarkus.vaadin.PollEventBatch;
+import com.urosporo.quarkus.vaadin.QuarkusBuildContext;
+import com.urosporo.quarkus.vaadin.QuarkusPushConnection;
+import com.urosporo.quarkus.vaadin.SlowClientGuard;
+import com.urosporo.quarkus.vaadin.VaadinMetrics;
+import com.urosporo.quarkus.vaadin.VertxPushTransport;
 import com.urosporo.quarkus.vaadin.cdi.annotation.VaadinServiceScoped;
+import com.urosporo.quarkus.vaadin.cdi.context.RouteScopedContext;
+import com.urosporo.quarkus.vaadin.cdi.context.ScopeMemorySampler;
 import com.urosporo.quarkus.vaadin.cdi.context.VaadinSessionScopedContext;
 import com.vaadin.flow.component.ComponentEventListener;
 import com.vaadin.flow.component.PollEvent;
@@ -29,12 +39,16 @@ import com.vaadin.flow.router.BeforeEnterListener;
 import com.vaadin.flow.router.BeforeLeaveEvent;
 import com.vaadin.flow.router.BeforeLeaveListener;
 import com.vaadin.flow.router.ListenerPriority;
+import com.vaadin.flow.server.Command;
 import com.vaadin.flow.server.ErrorHandler;
 import com.vaadin.flow.server.ServiceDestroyEvent;
 import com.vaadin.flow.server.ServiceException;
 import com.vaadin.flow.server.SessionDestroyEvent;
 import com.vaadin.flow.server.SessionInitEvent;
 import com.vaadin.flow.server.SystemMessagesProvider;
+import com.vaadin.flow.server.UIInitEvent;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinResponse;
 import com.vaadin.flow.server.VaadinService;
 import com.vaadin.flow.server.VaadinServletService;
 import com.vaadin.flow.server.VaadinSession;
@@ -46,10 +60,10 @@ public class QuarkusVaadinServletService extends VaadinServletService {
     private final QuarkusVaadinServiceDelegate delegate;
 
     public QuarkusVaadinServletService(final QuarkusVaadinServlet servlet, final DeploymentConfiguration configuration,
-            final BeanManager beanManager) {
+            final BeanManager beanManager, final QuarkusBuildContext vaadinQuarkusContext) {
 
         super(servlet, configuration);
-        this.delegate = new QuarkusVaadinServiceDelegate(this, beanManager);
+        this.delegate = new QuarkusVaadinServiceDelegate(this, beanManager, vaadinQuarkusContext);
     }
 
     @Override
@@ -57,15 +71,24 @@ public class QuarkusVaadinServletService extends VaadinServletService {
 
         this.delegate.init();
         super.init();
+        VertxPushTransport.register(this);
     }
 
     @Override
     public void fireUIInitListeners(final UI ui) {
 
+        QuarkusPushConnection.install(ui);
+        RouteScopedContext.init(ui);
         this.delegate.addUIListeners(ui);
         super.fireUIInitListeners(ui);
     }
 
+    @Override
+    public Future<Void> accessSession(final VaadinSession session, final Command command) {
+
+        return SlowClientGuard.accessSession(session, command, super::accessSession);
+    }
+
     @Override
     public Optional<Instantiator> loadInstantiators() throws ServiceException {
 
@@ -98,6 +121,21 @@ public class QuarkusVaadinServletService extends VaadinServletService {
         return Optional.of(instantiator);
     }
 
+    @Override
+    public void requestStart(final VaadinRequest request, final VaadinResponse response) {
+
+        super.requestStart(request, response);
+        ResolvedInstances.begin();
+    }
+
+    @Override
+    public void requestEnd(final VaadinRequest request, final VaadinResponse response, final VaadinSession session) {
+
+        ResolvedInstances.end();
+        ScopeMemorySampler.sample(session);
+        super.requestEnd(request, response, session);
+    }
+
     @Override
     public QuarkusVaadinServlet getServlet() {
 
@@ -106,6 +144,10 @@ public class QuarkusVaadinServletService extends VaadinServletService {
 
     /**
      * This class implements the actual instantiation and event brokering functionality of {@link QuarkusVaadinServletService}.
+     * <p>
+     * The observed event types are known at build time: listeners are only registered for events with observers, and the events are fired
+     * through {@link Event} instances selected once, instead of resolving the observers on every {@code BeanManager#fireEvent}. Asynchronous
+     * observers are supported, see {@link ObservedEvent}.
      */
     public static class QuarkusVaadinServiceDelegate implements Serializable {
 
@@ -113,12 +155,16 @@ public class QuarkusVaadinServletService extends VaadinServletService {
 
         private transient BeanManager beanManager;
 
+        private transient ObservedEvents events;
+
         private final UIEventListener uiEventListener;
 
-        public QuarkusVaadinServiceDelegate(final VaadinService vaadinService, final BeanManager beanManager) {
+        public QuarkusVaadinServiceDelegate(final VaadinService vaadinService, final BeanManager beanManager,
+                final QuarkusBuildContext vaadinQuarkusContext) {
 
             this.beanManager = beanManager;
             this.vaadinService = vaadinService;
+            this.events = new ObservedEvents(beanManager, vaadinQuarkusContext);
 
             this.uiEventListener = new UIEventListener(this);
         }
@@ -126,18 +172,31 @@ public class QuarkusVaadinServletService extends VaadinServletService {
         public void init() throws ServiceException {
 
             lookup(SystemMessagesProvider.class).ifPresent(this.vaadinService::setSystemMessagesProvider);
-            this.vaadinService.addUIInitListener(e -> getBeanManager().fireEvent(e));
+            if (getEvents().uiInit.isObserved()) {
+                this.vaadinService.addUIInitListener(e -> getEvents().uiInit.fire(e, e.getUI()));
+            }
             this.vaadinService.addSessionInitListener(this::sessionInit);
             this.vaadinService.addSessionDestroyListener(this::sessionDestroy);
-            this.vaadinService.addServiceDestroyListener(this::fireCdiDestroyEvent);
+            if (getEvents().serviceDestroy.isObserved()) {
+                this.vaadinService.addServiceDestroyListener(this::fireCdiDestroyEvent);
+            }
         }
 
         public void addUIListeners(final UI ui) {
 
-            ui.addAfterNavigationListener(this.uiEventListener);
-            ui.addBeforeLeaveListener(this.uiEventListener);
-            ui.addBeforeEnterListener(this.uiEventListener);
-            ui.addPollListener(this.uiEventListener);
+            final ObservedEvents observedEvents = getEvents();
+            if (observedEvents.afterNavigation.isObserved()) {
+                ui.addAfterNavigationListener(this.uiEventListener);
+            }
+            if (observedEvents.beforeLeave.isObserved()) {
+                ui.addBeforeLeaveListener(this.uiEventListener);
+            }
+            if (observedEvents.beforeEnter.isObserved()) {
+                ui.addBeforeEnterListener(this.uiEventListener);
+            }
+            if (observedEvents.poll.isObserved() || observedEvents.pollBatch.isObserved()) {
+                ui.addPollListener(this.uiEventListener);
+            }
         }
 
         public <T> Optional<T> lookup(final Class<T> type) throws ServiceException {
@@ -158,16 +217,28 @@ public class QuarkusVaadinServletService extends VaadinServletService {
             return this.beanManager;
         }
 
+        private ObservedEvents getEvents() {
+
+            if (this.events == null) {
+                this.events = new ObservedEvents(getBeanManager(), Arc.container().instance(QuarkusBuildContext.class).get());
+            }
+            return this.events;
+        }
+
         private void sessionInit(final SessionInitEvent sessionInitEvent) throws ServiceException {
 
             final VaadinSession session = sessionInitEvent.getSession();
             lookup(ErrorHandler.class).ifPresent(session::setErrorHandler);
-            getBeanManager().fireEvent(sessionInitEvent);
+            if (getEvents().sessionInit.isObserved()) {
+                getEvents().sessionInit.fire(sessionInitEvent, session);
+            }
         }
 
         private void sessionDestroy(final SessionDestroyEvent sessionDestroyEvent) {
 
-            getBeanManager().fireEvent(sessionDestroyEvent);
+            if (getEvents().sessionDestroy.isObserved()) {
+                getEvents().sessionDestroy.fire(sessionDestroyEvent, sessionDestroyEvent.getSession());
+            }
             if (VaadinSessionScopedContext.guessContextIsUndeployed()) {
                 // Happens on tomcat when it expires sessions upon undeploy.
                 // beanManager.getPassivationCapableBean returns null for
@@ -185,7 +256,7 @@ public class QuarkusVaadinServletService extends VaadinServletService {
         private void fireCdiDestroyEvent(final ServiceDestroyEvent event) {
 
             try {
-                getBeanManager().fireEvent(event);
+                getEvents().serviceDestroy.fire(event, event.getSource());
             } catch (final Exception e) {
                 // During application shutdown on TomEE 7,
                 // beans are lost at this point.
@@ -217,25 +288,74 @@ public class QuarkusVaadinServletService extends VaadinServletService {
         @Override
         public void afterNavigation(final AfterNavigationEvent event) {
 
-            this.delegate.getBeanManager().fireEvent(event);
+            // shared by all the UIs, the navigated one is the current one
+            this.delegate.getEvents().afterNavigation.fire(event, UI.getCurrent());
         }
 
         @Override
         public void beforeEnter(final BeforeEnterEvent event) {
 
-            this.delegate.getBeanManager().fireEvent(event);
+            this.delegate.getEvents().beforeEnter.fire(event, event.getUI());
         }
 
         @Override
         public void beforeLeave(final BeforeLeaveEvent event) {
 
-            this.delegate.getBeanManager().fireEvent(event);
+            this.delegate.getEvents().beforeLeave.fire(event, event.getUI());
         }
 
         @Override
         public void onComponentEvent(final PollEvent event) {
 
-            this.delegate.getBeanManager().fireEvent(event);
+            final ObservedEvents events = this.delegate.getEvents();
+            final PollEventThrottle throttle = PollEventThrottle.current();
+            if (throttle == null) {
+                events.metrics.pollEventDelivered();
+                events.poll.fire(event, event.getSource());
+            } else {
+                throttle.onPoll(event, events.poll, events.pollBatch);
+            }
+        }
+    }
+
+    /**
+     * The Vaadin events bridged to CDI, selected once per service, and the metrics of the poll events.
+     */
+    private static final class ObservedEvents {
+
+        private final ObservedEvent<UIInitEvent> uiInit;
+
+        private final ObservedEvent<AfterNavigationEvent> afterNavigation;
+
+        private final ObservedEvent<BeforeEnterEvent> beforeEnter;
+
+        private final ObservedEvent<BeforeLeaveEvent> beforeLeave;
+
+        private final ObservedEvent<PollEvent> poll;
+
+        private final ObservedEvent<PollEventBatch> pollBatch;
+
+        private final VaadinMetrics metrics;
+
+        private final ObservedEvent<SessionInitEvent> sessionInit;
+
+        private final ObservedEvent<SessionDestroyEvent> sessionDestroy;
+
+        private final ObservedEvent<ServiceDestroyEvent> serviceDestroy;
+
+        private ObservedEvents(final BeanManager beanManager, final QuarkusBuildContext vaadinQuarkusContext) {
+
+            final Event<Object> event = beanManager.getEvent();
+            this.uiInit = new ObservedEvent<>(event, UIInitEvent.class, vaadinQuarkusContext);
+            this.afterNavigation = new ObservedEvent<>(event, AfterNavigationEvent.class, vaadinQuarkusContext);
+            this.beforeEnter = new ObservedEvent<>(event, BeforeEnterEvent.class, vaadinQuarkusContext);
+            this.beforeLeave = new ObservedEvent<>(event, BeforeLeaveEvent.class, vaadinQuarkusContext);
+            this.poll = new ObservedEvent<>(event, PollEvent.class, vaadinQuarkusContext);
+            this.pollBatch = new ObservedEvent<>(event, PollEventBatch.class, vaadinQuarkusContext);
+            this.metrics = Arc.container().instance(VaadinMetrics.class).get();
+            this.sessionInit = new ObservedEvent<>(event, SessionInitEvent.class, vaadinQuarkusContext);
+            this.sessionDestroy = new ObservedEvent<>(event, SessionDestroyEvent.class, vaadinQuarkusContext);
+            this.serviceDestroy = new ObservedEvent<>(event, ServiceDestroyEvent.class, vaadinQuarkusContext);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,141 @@
+package com.urosporo.quarkus.vaadin.cdi;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.enterprise.context.spi.Contextual;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * The contextual instances resolved during the current Vaadin request, so the repeated calls of client proxies skip the lookup of the storage,
+ * e.g. the session attribute or the route scope owner.
+ * <p>
+ * The memo is bound to the request thread, from {@link #begin()} to {@link #end()}, and reused by the following requests of the thread. It's
+ * cleared whenever the current UI, session or service differs from the one it was filled for, e.g. while the pending access tasks of several UIs
+ * run. Each memoized instance keeps the epoch its storage had when the instance was resolved. Removing any instance from the storage, in any
+ * thread, starts a new epoch, so a memo never hands out a destroyed instance.
+ *
+ * @since 1.1.0
+ */
+final class ResolvedInstances {
+
+    private static final ThreadLocal<ResolvedInstances> CURRENT = ThreadLocal.withInitial(ResolvedInstances::new);
+
+    private final Map<Contextual<?>, Resolved> instances = new IdentityHashMap<>();
+
+    private boolean active;
+
+    private Object owner;
+
+    private ResolvedInstances() {
+
+    }
+
+    /**
+     * Starts memoizing the resolved instances in the current thread.
+     */
+    static void begin() {
+
+        CURRENT.get().reset(true);
+    }
+
+    /**
+     * Stops memoizing the resolved instances in the current thread.
+     */
+    static void end() {
+
+        CURRENT.get().reset(false);
+    }
+
+    /**
+     * @return the memo of the current thread or <code>null</code> if it isn't serving a request
+     */
+    static ResolvedInstances current() {
+
+        final ResolvedInstances resolvedInstances = CURRENT.get();
+        return resolvedInstances.active ? resolvedInstances : null;
+    }
+
+    /**
+     * @param bean
+     *            the bean to look up the instance of
+     * @return the memoized instance or <code>null</code> if the bean wasn't resolved yet for the current UI, session or service, or its storage
+     *         removed any instance since
+     */
+    Object get(final Contextual<?> bean) {
+
+        final Object currentOwner = getCurrentOwner();
+        if (currentOwner != this.owner) {
+            clear();
+            this.owner = currentOwner;
+            return null;
+        }
+        final Resolved resolved = this.instances.get(bean);
+        return resolved == null || resolved.storage.getEpoch() != resolved.epoch ? null : resolved.instance;
+    }
+
+    /**
+     * Memoizes an instance resolved after {@link #get(Contextual)} missed it.
+     *
+     * @param bean
+     *            the resolved bean
+     * @param instance
+     *            the resolved instance, might be <code>null</code>
+     * @param storage
+     *            the storage the instance was resolved from
+     * @param epoch
+     *            the epoch of the storage, taken before the instance was resolved
+     */
+    void put(final Contextual<?> bean, final Object instance, final ContextualStorage storage, final long epoch) {
+
+        if (instance != null) {
+            this.instances.put(bean, new Resolved(instance, storage, epoch));
+        }
+    }
+
+    private void reset(final boolean active) {
+
+        this.active = active;
+        this.owner = null;
+        clear();
+    }
+
+    private void clear() {
+
+        if (!this.instances.isEmpty()) {
+            this.instances.clear();
+        }
+    }
+
+    /**
+     * The UI determines the session, and the session the service.
+     */
+    private static Object getCurrentOwner() {
+
+        final UI ui = UI.getCurrent();
+        if (ui != null) {
+            return ui;
+        }
+        final VaadinSession session = VaadinSession.getCurrent();
+        return session != null ? session : VaadinService.getCurrent();
+    }
+
+    private static final class Resolved {
+
+        private final Object instance;
+
+        private final ContextualStorage storage;
+
+        private final long epoch;
+
+        private Resolved(final Object instance, final ContextualStorage storage, final long epoch) {
+
+            this.instance = instance;
+            this.storage = storage;
+            this.epoch = epoch;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.urosporo.quarkus.vaadin.cdi.context;
 
 import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -17,12 +19,15 @@ import com.urosporo.quarkus.vaadin.cdi.ContextualStorage;
 
 public abstract class AbstractContextualStorageManager<K> implements Serializable {
 
+    private static volatile boolean concurrentMode;
+
     @Inject
     BeanManager beanManager;
     private final boolean concurrent;
+    private final Class<? extends Annotation> scope;
     private final Map<K, ContextualStorage> storageMap;
 
-    protected AbstractContextualStorageManager(final boolean concurrent) {
+    protected AbstractContextualStorageManager(final boolean concurrent, final Class<? extends Annotation> scope) {
 
         if (concurrent) {
             this.storageMap = new ConcurrentHashMap<>();
@@ -30,6 +35,35 @@ public abstract class AbstractContextualStorageManager<K> implements Serializabl
             this.storageMap = new HashMap<>();
         }
         this.concurrent = concurrent;
+        this.scope = scope;
+    }
+
+    /**
+     * Enables the concurrent mode of the UI, route and session contexts. Their storages are then concurrent, so background threads resolve the
+     * instances without the session lock. The lock is only taken to create the storage of a session or UI.
+     *
+     * @param concurrent
+     *            whether the storages are accessed without the session lock
+     */
+    public static void setConcurrentMode(final boolean concurrent) {
+
+        concurrentMode = concurrent;
+    }
+
+    /**
+     * @return whether the storages of the UI, route and session contexts are accessed without the session lock
+     */
+    public static boolean isConcurrentMode() {
+
+        return concurrentMode;
+    }
+
+    /**
+     * @return whether the storages might get accessed concurrently by different threads
+     */
+    protected boolean isConcurrent() {
+
+        return this.concurrent;
     }
 
     protected ContextualStorage getContextualStorage(final K key, final boolean createIfNotExist) {
@@ -48,9 +82,13 @@ public abstract class AbstractContextualStorageManager<K> implements Serializabl
         // CDI implementations use PassivationCapable beans,
         // because injecting non serializable proxies might block serialization of
         // bean instances in a passivation capable context.
-        return new ContextualStorage(this.beanManager, this.concurrent);
+        return new ContextualStorage(this.beanManager, this.concurrent, this.scope);
     }
 
+    /**
+     * Destroys the storages in the calling thread, along with the manager. That's the thread holding the session lock, or the one destroying the
+     * storage of an expired session, see {@link com.urosporo.quarkus.vaadin.cdi.ContextTeardown}.
+     */
     @PreDestroy
     protected void destroyAll() {
 
@@ -61,6 +99,13 @@ public abstract class AbstractContextualStorageManager<K> implements Serializabl
         this.storageMap.clear();
     }
 
+    /**
+     * Destroys a storage in the calling thread, e.g. of a detached UI or a left route. The session is still open, so the storage is destroyed
+     * with its lock held, as the beans might access the session or its UIs.
+     *
+     * @param key
+     *            the key of the storage
+     */
     protected void destroy(final K key) {
 
         final ContextualStorage storage = this.storageMap.remove(key);
@@ -69,6 +114,14 @@ public abstract class AbstractContextualStorageManager<K> implements Serializabl
         }
     }
 
+    /**
+     * @return a copy of the storages
+     */
+    protected Collection<ContextualStorage> getContextualStorages() {
+
+        return new ArrayList<>(this.storageMap.values());
+    }
+
     protected Set<K> getKeySet() {
 
         return Collections.unmodifiableSet(this.storageMap.keySet());
@@ -0,0 +1,45 @@
+package com.urosporo.quarkus.vaadin.cdi.context;
+
+import java.util.function.Supplier;
+
+/**
+ * Resolves a container object, like a client proxy or the bean manager, on its first use and without any lock.
+ * <p>
+ * Concurrent first uses may resolve it more than once, which is harmless as the resolution always yields an equivalent object. The value is
+ * published through the final field of its holder, so a plain field is enough and the steady state is a single non-volatile read.
+ *
+ * @param <T>
+ *            the type of the value
+ * @since 1.1.0
+ */
+final class LazyReference<T> {
+
+    private final Supplier<T> supplier;
+
+    private Holder<T> holder;
+
+    LazyReference(final Supplier<T> supplier) {
+
+        this.supplier = supplier;
+    }
+
+    T get() {
+
+        Holder<T> current = this.holder;
+        if (current == null) {
+            current = new Holder<>(this.supplier.get());
+            this.holder = current;
+        }
+        return current.value;
+    }
+
+    private static final class Holder<T> {
+
+        private final T value;
+
+        private Holder(final T value) {
+
+            this.value = value;
+        }
+    }
+}
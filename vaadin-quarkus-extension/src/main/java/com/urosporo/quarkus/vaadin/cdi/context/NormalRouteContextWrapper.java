@@ -23,9 +23,7 @@ import javax.enterprise.context.spi.Contextual;
 import javax.enterprise.context.spi.CreationalContext;
 
 import com.urosporo.quarkus.vaadin.cdi.annotation.NormalRouteScoped;
-import com.urosporo.quarkus.vaadin.cdi.annotation.RouteScoped;
 
-import io.quarkus.arc.Arc;
 import io.quarkus.arc.InjectableContext;
 
 /**
@@ -34,14 +32,11 @@ import io.quarkus.arc.InjectableContext;
  *
  */
 public class NormalRouteContextWrapper implements AlterableContext, InjectableContext {
-    // guarded-by: this
-    private InjectableContext context;
+    // the state is held by the storages, so an own instance behaves like the one of the container
+    private final InjectableContext context = new RouteScopedContext();
 
-    private synchronized InjectableContext getContext() {
-        if (this.context == null) {
-            this.context = Arc.container().getActiveContext(RouteScoped.class);
-        }
-        return context;
+    private InjectableContext getContext() {
+        return this.context;
     }
 
     @Override
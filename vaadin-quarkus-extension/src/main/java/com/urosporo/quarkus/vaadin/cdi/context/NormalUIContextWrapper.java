@@ -23,9 +23,7 @@ import javax.enterprise.context.spi.Contextual;
 import javax.enterprise.context.spi.CreationalContext;
 
 import com.urosporo.quarkus.vaadin.cdi.annotation.NormalUIScoped;
-import com.urosporo.quarkus.vaadin.cdi.annotation.UIScoped;
 
-import io.quarkus.arc.Arc;
 import io.quarkus.arc.InjectableContext;
 
 /**
@@ -35,14 +33,11 @@ import io.quarkus.arc.InjectableContext;
  */
 public class NormalUIContextWrapper implements AlterableContext, InjectableContext {
 
-    // guarded-by: this
-    private InjectableContext context;
+    // the state is held by the storages, so an own instance behaves like the one of the container
+    private final InjectableContext context = new UIScopedContext();
 
-    private synchronized InjectableContext getContext() {
-        if (context == null) {
-            this.context = Arc.container().getActiveContext(UIScoped.class);
-        }
-        return context;
+    private InjectableContext getContext() {
+        return this.context;
     }
 
     @Override
@@ -0,0 +1,306 @@
+package com.urosporo.quarkus.vaadin.cdi.context;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.spi.Contextual;
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Singleton;
+
+import com.urosporo.quarkus.vaadin.cdi.ContextualStorage;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinSession;
+
+import io.quarkus.arc.ClientProxy;
+
+/**
+ * Estimates the heap retained by contextual instances, by walking their object graphs with reflection.
+ * <p>
+ * The sizes assume a 64 bit JVM with compressed references. The walk stops at objects owned by something else than the bean: components, which
+ * belong to the UI, instances of {@link Singleton @Singleton} and {@link ApplicationScoped @ApplicationScoped} beans, sessions, services,
+ * client proxies, beans, storages, classes and threads. The estimated instance itself is always walked, e.g. a {@code @UIScoped} component. An
+ * object reachable from several instances is only counted for the first one, and the walk of an instance is cut after a maximum number of
+ * objects. Once its deadline has passed, the estimator stops walking and is {@link #isOverBudget() over budget}.
+ * <p>
+ * The objects are walked by the thread holding the session lock, as the collections of the beans aren't thread safe. The fields of JDK
+ * classes aren't made accessible: collections and maps are followed through their public API, with an estimate of their
+ * internal structure, strings are sized by their length and the other JDK objects by their fields, without following them.
+ */
+final class RetainedSizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+
+    private static final int ARRAY_HEADER = 16;
+
+    private static final int REFERENCE = 4;
+
+    private static final int ALIGNMENT = 8;
+
+    /**
+     * A node of a hash map: header, hash and three references.
+     */
+    private static final int MAP_ENTRY = 32;
+
+    /**
+     * The number of objects walked between two checks of the deadline.
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+    /**
+     * The packages of the JDK starting with {@code javax.}, the others are application or library types, e.g. {@code javax.enterprise}.
+     */
+    private static final String[] JDK_JAVAX_PACKAGES = { "javax.accessibility.", "javax.annotation.processing.", "javax.crypto.",
+            "javax.imageio.", "javax.lang.model.", "javax.management.", "javax.naming.", "javax.net.", "javax.print.", "javax.rmi.",
+            "javax.script.", "javax.security.", "javax.smartcardio.", "javax.sound.", "javax.sql.", "javax.swing.", "javax.tools.",
+            "javax.transaction.xa.", "javax.xml." };
+
+    private static final Class<?>[] BOUNDARIES = { Component.class, VaadinSession.class, VaadinService.class, ClientProxy.class, Contextual.class,
+            CreationalContext.class, BeanManager.class, ContextualStorage.class, AbstractContextualStorageManager.class, Class.class,
+            ClassLoader.class, Thread.class, Enum.class };
+
+    private static final ClassValue<Boolean> BOUNDARY_TYPES = new ClassValue<Boolean>() {
+
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+
+            for (final Class<?> boundary : BOUNDARIES) {
+                if (boundary.isAssignableFrom(type)) {
+                    return true;
+                }
+            }
+            // the subclasses generated for intercepted beans don't inherit @Singleton
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                if (current.isAnnotationPresent(Singleton.class) || current.isAnnotationPresent(ApplicationScoped.class)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    private static final ClassValue<Layout> LAYOUTS = new ClassValue<Layout>() {
+
+        @Override
+        protected Layout computeValue(final Class<?> type) {
+
+            return new Layout(type);
+        }
+    };
+
+    private final int maxObjects;
+
+    private final long deadlineNanos;
+
+    private int walkedObjects;
+
+    private boolean overBudget;
+
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final Deque<Object> pending = new ArrayDeque<>();
+
+    /**
+     * @param maxObjects
+     *            the maximum number of objects walked per instance
+     * @param deadlineNanos
+     *            the {@link System#nanoTime()} the walks stop at
+     */
+    RetainedSizeEstimator(final int maxObjects, final long deadlineNanos) {
+
+        this.maxObjects = maxObjects;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @return whether the deadline has passed, so the estimates are cut
+     */
+    boolean isOverBudget() {
+
+        return this.overBudget;
+    }
+
+    /**
+     * @param instance
+     *            the contextual instance
+     * @return the estimated bytes retained by the instance and not by any instance estimated before with this estimator
+     */
+    long estimate(final Object instance) {
+
+        long bytes = 0;
+        int objects = 0;
+        // not checked against the boundaries, it's owned by its bean
+        if (this.visited.add(instance)) {
+            this.pending.add(instance);
+        }
+        Object object;
+        while ((object = this.pending.poll()) != null) {
+            if (objects++ == this.maxObjects || isDeadlinePassed()) {
+                this.pending.clear();
+                break;
+            }
+            bytes += walk(object);
+        }
+        return bytes;
+    }
+
+    private boolean isDeadlinePassed() {
+
+        if (!this.overBudget && ++this.walkedObjects % DEADLINE_CHECK_INTERVAL == 0) {
+            this.overBudget = System.nanoTime() - this.deadlineNanos > 0;
+        }
+        return this.overBudget;
+    }
+
+    private long walk(final Object object) {
+
+        final Class<?> type = object.getClass();
+        if (type.isArray()) {
+            final Class<?> componentType = type.getComponentType();
+            final int length = Array.getLength(object);
+            if (!componentType.isPrimitive()) {
+                for (final Object element : (Object[]) object) {
+                    enqueue(element);
+                }
+            }
+            return align(ARRAY_HEADER + (long) length * sizeOf(componentType));
+        }
+
+        final Layout layout = LAYOUTS.get(type);
+        if (layout.jdk) {
+            return layout.size + walkJdkObject(object);
+        }
+        for (final Field field : layout.references) {
+            try {
+                enqueue(field.get(object));
+            } catch (final IllegalAccessException e) {
+                // counted, not followed
+            }
+        }
+        return layout.size;
+    }
+
+    /**
+     * @return the estimated bytes of the internal structure of the object, beyond its fields
+     */
+    private long walkJdkObject(final Object object) {
+
+        if (object instanceof String) {
+            // UTF-16, as of Java 8
+            return align(ARRAY_HEADER + (long) ((String) object).length() * 2);
+        } else if (object instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) object;
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                enqueue(entry.getKey());
+                enqueue(entry.getValue());
+            }
+            return align(ARRAY_HEADER + (long) map.size() * (REFERENCE * 2)) + (long) map.size() * MAP_ENTRY;
+        } else if (object instanceof Collection) {
+            final Collection<?> collection = (Collection<?>) object;
+            for (final Object element : collection) {
+                enqueue(element);
+            }
+            return align(ARRAY_HEADER + (long) collection.size() * REFERENCE);
+        }
+        return 0;
+    }
+
+    private void enqueue(final Object object) {
+
+        if (object != null && !BOUNDARY_TYPES.get(object.getClass()) && this.visited.add(object)) {
+            this.pending.add(object);
+        }
+    }
+
+    private static int sizeOf(final Class<?> type) {
+
+        if (!type.isPrimitive()) {
+            return REFERENCE;
+        } else if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(final long size) {
+
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * The shallow size of the instances of a class and their accessible reference fields, none for JDK classes.
+     */
+    private static final class Layout {
+
+        private final long size;
+
+        private final boolean jdk;
+
+        private final Field[] references;
+
+        private Layout(final Class<?> type) {
+
+            this.jdk = isJdkClass(type);
+            long fieldsSize = 0;
+            final List<Field> referenceFields = new ArrayList<>();
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                // the fields of JDK classes are only sized, even in subclasses
+                final boolean followed = !isJdkClass(current);
+                for (final Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    fieldsSize += sizeOf(field.getType());
+                    if (followed && !this.jdk && !field.getType().isPrimitive() && makeAccessible(field)) {
+                        referenceFields.add(field);
+                    }
+                }
+            }
+            this.size = align(OBJECT_HEADER + fieldsSize);
+            this.references = referenceFields.toArray(new Field[0]);
+        }
+
+        private static boolean isJdkClass(final Class<?> type) {
+
+            final String name = type.getName();
+            if (name.startsWith("java.") || name.startsWith("jdk.") || name.startsWith("sun.")) {
+                return true;
+            }
+            if (name.startsWith("javax.")) {
+                for (final String jdkPackage : JDK_JAVAX_PACKAGES) {
+                    if (name.startsWith(jdkPackage)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static boolean makeAccessible(final Field field) {
+
+            try {
+                field.setAccessible(true);
+                return true;
+            } catch (final RuntimeException e) {
+                // e.g. not opened by its module
+                return false;
+            }
+        }
+    }
+}
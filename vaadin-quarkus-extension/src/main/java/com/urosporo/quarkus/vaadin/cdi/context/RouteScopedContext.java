@@ -18,20 +18,33 @@ package com.urosporo.quarkus.vaadin.cdi.context;
 
 import java.lang.annotation.Annotation;
 import java.util.Collections;
-import java.util.function.Supplier;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.spi.Contextual;
 import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.PassivationCapable;
+import javax.inject.Inject;
 
+import com.urosporo.quarkus.vaadin.QuarkusBuildContext;
 import com.urosporo.quarkus.vaadin.cdi.AbstractContext;
+import com.urosporo.quarkus.vaadin.cdi.BeanIndex;
 import com.urosporo.quarkus.vaadin.cdi.BeanProvider;
 import com.urosporo.quarkus.vaadin.cdi.ContextualStorage;
 import com.urosporo.quarkus.vaadin.cdi.annotation.NormalUIScoped;
 import com.urosporo.quarkus.vaadin.cdi.annotation.RouteScopeOwner;
 import com.urosporo.quarkus.vaadin.cdi.annotation.RouteScoped;
-import com.urosporo.quarkus.vaadin.cdi.annotation.UIScoped;
+import com.vaadin.flow.component.HasElement;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.router.AfterNavigationEvent;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.flow.server.VaadinSession;
 
 import io.quarkus.arc.Arc;
 import io.quarkus.arc.Unremovable;
@@ -41,31 +54,149 @@ import io.quarkus.arc.Unremovable;
  */
 public class RouteScopedContext extends AbstractContext {
 
+    /**
+     * The storages of a UI, one per owner. After each navigation, the storages of the owners which aren't part of the active route chain any
+     * more are destroyed, except for the most recently left ones, up to the configured number.
+     */
     @NormalUIScoped
     @Unremovable
     public static class ContextualStorageManager extends AbstractContextualStorageManager<Class> {
 
+        @Inject
+        QuarkusBuildContext vaadinQuarkusContext;
+
+        // least recently left first
+        private final Set<Class> inactiveOwners = new LinkedHashSet<>();
+
+        /**
+         * The registration of the navigation listener on the UI of the manager, removed once the manager is destroyed.
+         */
+        private Registration navigationRegistration;
+
         public ContextualStorageManager() {
 
             // Session lock checked in VaadinSessionScopedContext while
-            // getting the session attribute.
-            super(false);
+            // getting the session attribute, unless in the concurrent mode.
+            super(isConcurrentMode(), RouteScoped.class);
+        }
+
+        /**
+         * Registers the navigation listener, once the manager is created for a new UI, see {@link RouteScopedContext#init(UI)}.
+         */
+        void registerNavigationListener(final UI ui) {
+
+            if (this.navigationRegistration == null) {
+                this.navigationRegistration = ui.addAfterNavigationListener(this::afterNavigation);
+            }
+        }
+
+        /**
+         * @return the storages of the owners in the active route chain of the UI, created if missing, along with the storages kept for the
+         *         inactive owners
+         */
+        private Map<Class<?>, ContextualStorage> getActiveContextualStorages(final UI ui) {
+
+            final List<HasElement> activeChain = ui.getInternals().getActiveRouterTargetsChain();
+            for (final Class<?> owner : BeanIndex.getRouteScopeOwners()) {
+                if (isActive(owner, activeChain)) {
+                    getContextualStorage(owner, true);
+                }
+            }
+            final Map<Class<?>, ContextualStorage> storages = new HashMap<>();
+            for (final Class owner : getKeySet()) {
+                storages.put(owner, getContextualStorage(owner, false));
+            }
+            return storages;
+        }
+
+        /**
+         * Called before the storages are destroyed, so the UI doesn't keep the destroyed manager.
+         */
+        @PreDestroy
+        void removeNavigationListener() {
+
+            if (this.navigationRegistration != null) {
+                this.navigationRegistration.remove();
+                this.navigationRegistration = null;
+            }
+        }
+
+        @Override
+        protected ContextualStorage newContextualStorage(final Class owner) {
+
+            // with the slots of the beans of the owner only
+            return new ContextualStorage(this.beanManager, isConcurrent(), RouteScoped.class, owner);
+        }
+
+        private void afterNavigation(final AfterNavigationEvent event) {
+
+            final List<HasElement> activeChain = event.getActiveChain();
+            final Set<Class> owners = getKeySet();
+
+            this.inactiveOwners.retainAll(owners);
+            for (final Class owner : owners) {
+                if (isActive(owner, activeChain)) {
+                    this.inactiveOwners.remove(owner);
+                } else {
+                    this.inactiveOwners.add(owner);
+                }
+            }
+
+            final int keepInactive = this.vaadinQuarkusContext.getRouteScopeKeepInactive();
+            for (final Iterator<Class> iterator = this.inactiveOwners.iterator(); this.inactiveOwners.size() > keepInactive;) {
+                final Class owner = iterator.next();
+                iterator.remove();
+                destroy(owner);
+            }
+        }
+
+        private static boolean isActive(final Class owner, final List<HasElement> activeChain) {
+
+            for (final HasElement element : activeChain) {
+                // the instance might be a subclass generated by the container
+                if (owner.isInstance(element)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final LazyReference<BeanManager> beanManager = new LazyReference<>(() -> Arc.container().beanManager());
+
+    private final LazyReference<ContextualStorageManager> contextManager = new LazyReference<>(
+            () -> BeanProvider.getContextualReference(this.beanManager.get(), ContextualStorageManager.class, false));
+
+    /**
+     * Creates the storage manager of a UI as it is initialized, so the manager listens to all its navigations, even if its first route scoped
+     * bean is created later by a background thread.
+     *
+     * @param ui
+     *            the initialized UI, the current one, with its session locked
+     */
+    public static void init(final UI ui) {
+
+        if (BeanIndex.hasRouteScopedBeans() && UIScopedContext.isUIActive()) {
+            BeanProvider.getContextualReference(ContextualStorageManager.class, false).registerNavigationListener(ui);
         }
     }
 
-    // guarded-by: this
-    private ContextualStorageManager contextManager;
-    // guarded-by: this
-    private Supplier<Boolean> isUIContextActive;
-    // guarded-by: this
-    private BeanManager beanManager;
-
-    private synchronized void init() {
-        if (this.beanManager == null) {
-            this.beanManager = Arc.container().beanManager();
-            this.contextManager = BeanProvider.getContextualReference(this.beanManager, ContextualStorageManager.class, false);
-            this.isUIContextActive = () -> Arc.container().getActiveContext(UIScoped.class).isActive();
+    /**
+     * @param ui
+     *            the current UI, its session has to be locked
+     * @param uiStorage
+     *            the storage of the UI, holding its storage manager
+     * @return the storages of the UI for a {@link VaadinContextSnapshot}, keyed by owner
+     */
+    static Map<Class<?>, ContextualStorage> getActiveContextualStorages(final UI ui, final ContextualStorage uiStorage) {
+
+        for (final Object instance : uiStorage.getContextualInstances().values()) {
+            if (instance instanceof ContextualStorageManager) {
+                return ((ContextualStorageManager) instance).getActiveContextualStorages(ui);
+            }
         }
+        // no route scoped beans
+        return Collections.emptyMap();
     }
 
     @Override
@@ -75,23 +206,50 @@ public class RouteScopedContext extends AbstractContext {
 
     @Override
     public boolean isActive() {
-        init();
-        return this.isUIContextActive.get();
+        // bound to the UI context
+        return UIScopedContext.isUIActive();
     }
 
     @Override
     protected ContextualStorage getContextualStorage(final Contextual<?> contextual, final boolean createIfNotExist) {
-        init();
         final Class key = convertToKey(contextual);
-        return this.contextManager.getContextualStorage(key, createIfNotExist);
+
+        final UI ui = UI.getCurrent();
+        final VaadinSession session = ui == null ? null : ui.getSession();
+        if (AbstractContextualStorageManager.isConcurrentMode() || session == null || session.hasLock()) {
+            return this.contextManager.get().getContextualStorage(key, createIfNotExist);
+        }
+
+        if (VaadinContextSnapshot.isRunning(session)) {
+            // a snapshot running in a worker thread, the storages of the UI aren't thread safe
+            final ContextualStorage storage = VaadinContextSnapshot.getRouteStorage(ui, key);
+            if (storage == null && createIfNotExist) {
+                throw VaadinContextSnapshot.newMissingStorageException("@RouteScoped storage of " + key.getName());
+            }
+            return storage;
+        }
+
+        // neither holding the lock nor running a snapshot, e.g. a thread which set the UI as current itself
+        session.lock();
+        try {
+            return this.contextManager.get().getContextualStorage(key, createIfNotExist);
+        } finally {
+            session.unlock();
+        }
     }
 
     private Class convertToKey(Contextual<?> contextual) {
 
+        final Class<?> owner = BeanIndex.getRouteScopeOwner(contextual);
+        if (owner != null) {
+            return owner;
+        }
+
+        // not known at build time
         if (!(contextual instanceof Bean)) {
             if (contextual instanceof PassivationCapable) {
                 final String id = ((PassivationCapable) contextual).getId();
-                contextual = this.beanManager.getPassivationCapableBean(id);
+                contextual = this.beanManager.get().getPassivationCapableBean(id);
             } else {
                 throw new IllegalArgumentException(contextual.getClass().getName() + " is not of type " + Bean.class.getName());
             }
@@ -103,13 +261,16 @@ public class RouteScopedContext extends AbstractContext {
 
     @Override
     public void destroy() {
-        init();
         destroyAllActive();
     }
 
     @Override
     public ContextState getState() {
-        init();
-        return Collections::emptyMap; // FIXME
+
+        if (!isActive()) {
+            return newContextState(Collections.emptyList());
+        }
+        // the storages of all the owners of the current UI
+        return newContextState(this.contextManager.get().getContextualStorages());
     }
 }
@@ -0,0 +1,184 @@
+package com.urosporo.quarkus.vaadin.cdi.context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.urosporo.quarkus.vaadin.SlowClientGuard;
+import com.urosporo.quarkus.vaadin.VaadinMetrics;
+import com.urosporo.quarkus.vaadin.cdi.ContextualStorage;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.VaadinSessionState;
+
+import io.quarkus.arc.InjectableBean;
+
+/**
+ * Samples the heap retained by the scoped beans of the sessions, published by {@link VaadinMetrics}.
+ * <p>
+ * At the end of a request, its session is sampled with the configured probability. The storages of the session, its UIs and their routes are
+ * estimated by a {@link RetainedSizeEstimator} in a {@link VaadinSession#access(com.vaadin.flow.server.Command) session access}, so the bean
+ * graphs aren't changed by the request threads while they are walked. The access usually runs right away in the ending request thread, else
+ * in the thread holding the lock. An estimate taking longer than the time budget is abandoned and counted, rather than published cut, so the
+ * lock isn't held for long. A sample is skipped while the previous one is still queued or running, so the sampling never queues up.
+ *
+ * @since 1.1.0
+ */
+public final class ScopeMemorySampler {
+
+    /**
+     * After that long, a queued sample is considered lost, e.g. as its session was closed meanwhile, and the next one is taken.
+     */
+    private static final long LOST_SAMPLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static volatile ScopeMemorySampler current;
+
+    private final double sampleRate;
+
+    private final int maxObjects;
+
+    private final long timeBudgetNanos;
+
+    private final VaadinMetrics metrics;
+
+    /**
+     * The time the pending sample was queued, 0 if there is none.
+     */
+    private final AtomicLong pendingSince = new AtomicLong();
+
+    private ScopeMemorySampler(final double sampleRate, final int maxObjects, final long timeBudgetMillis, final VaadinMetrics metrics) {
+
+        this.sampleRate = sampleRate;
+        this.maxObjects = maxObjects;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts sampling the sessions.
+     *
+     * @param sampleRate
+     *            the probability a request samples its session, between 0 and 1
+     * @param maxObjects
+     *            the maximum number of objects walked per contextual instance
+     * @param timeBudgetMillis
+     *            the maximum time a sample holds the session lock
+     * @param metrics
+     *            to publish the samples to
+     */
+    public static void start(final double sampleRate, final int maxObjects, final long timeBudgetMillis, final VaadinMetrics metrics) {
+
+        current = new ScopeMemorySampler(sampleRate, maxObjects, timeBudgetMillis, metrics);
+    }
+
+    /**
+     * Stops sampling the sessions, a queued sample is skipped.
+     */
+    public static void stop() {
+
+        current = null;
+    }
+
+    /**
+     * Samples the session with the configured probability.
+     *
+     * @param session
+     *            the session of the ending request, not locked by the current thread, might be <code>null</code>
+     */
+    public static void sample(final VaadinSession session) {
+
+        final ScopeMemorySampler sampler = current;
+        if (sampler != null && session != null && ThreadLocalRandom.current().nextDouble() < sampler.sampleRate && sampler.tryBeginSample()) {
+            SlowClientGuard.accessExempt(session, () -> sampler.estimate(session));
+        }
+    }
+
+    private boolean tryBeginSample() {
+
+        final long now = System.nanoTime();
+        final long since = this.pendingSince.get();
+        return (since == 0 || now - since > LOST_SAMPLE_NANOS) && this.pendingSince.compareAndSet(since, now == 0 ? 1 : now);
+    }
+
+    /**
+     * Estimates the storages of the session, which is locked by the current thread.
+     */
+    private void estimate(final VaadinSession session) {
+
+        try {
+            if (current != this || session.getState() != VaadinSessionState.OPEN) {
+                return;
+            }
+            final ContextualStorage sessionStorage = VaadinSessionScopedContext.getContextualStorage(session, false);
+            final List<List<ContextualStorage>> uiStorages = new ArrayList<>();
+            for (final UI ui : session.getUIs()) {
+                final ContextualStorage uiStorage = UIScopedContext.findContextualStorage(ui);
+                if (uiStorage != null) {
+                    uiStorages.add(getUIStorages(uiStorage));
+                }
+            }
+
+            // the session first: an object shared with a UI is retained as long as the session
+            final RetainedSizeEstimator estimator = new RetainedSizeEstimator(this.maxObjects, System.nanoTime() + this.timeBudgetNanos);
+            final Map<String, Long> beanClassBytes = new HashMap<>();
+            final long sessionBytes = sessionStorage == null ? 0 : estimate(estimator, Collections.singletonList(sessionStorage), beanClassBytes);
+            final long[] uiBytes = new long[uiStorages.size()];
+            for (int index = 0; index < uiBytes.length && !estimator.isOverBudget(); index++) {
+                uiBytes[index] = estimate(estimator, uiStorages.get(index), beanClassBytes);
+            }
+            if (estimator.isOverBudget()) {
+                this.metrics.memorySampleOverBudget();
+            } else {
+                this.metrics.memorySampled(sessionBytes, uiBytes, beanClassBytes);
+            }
+        } catch (final RuntimeException e) {
+            // e.g. a bean changed by a thread without the session lock
+            getLogger().warn("Memory sample of a session failed.", e);
+        } finally {
+            this.pendingSince.set(0);
+        }
+    }
+
+    /**
+     * @return the storage of the UI and the ones of its routes, held by the route storage manager of the UI
+     */
+    private static List<ContextualStorage> getUIStorages(final ContextualStorage uiStorage) {
+
+        final List<ContextualStorage> storages = new ArrayList<>();
+        storages.add(uiStorage);
+        for (final Object instance : uiStorage.getContextualInstances().values()) {
+            if (instance instanceof RouteScopedContext.ContextualStorageManager) {
+                storages.addAll(((RouteScopedContext.ContextualStorageManager) instance).getContextualStorages());
+            }
+        }
+        return storages;
+    }
+
+    private static long estimate(final RetainedSizeEstimator estimator, final List<ContextualStorage> storages,
+            final Map<String, Long> beanClassBytes) {
+
+        long bytes = 0;
+        for (final ContextualStorage storage : storages) {
+            for (final Map.Entry<InjectableBean<?>, Object> instance : storage.getContextualInstances().entrySet()) {
+                // counted even if retained by an instance estimated before, so every bean class is published
+                final long instanceBytes = estimator.estimate(instance.getValue());
+                beanClassBytes.merge(instance.getKey().getBeanClass().getName(), instanceBytes, Long::sum);
+                bytes += instanceBytes;
+            }
+        }
+        return bytes;
+    }
+
+    private static Logger getLogger() {
+
+        return LoggerFactory.getLogger(ScopeMemorySampler.class);
+    }
+}
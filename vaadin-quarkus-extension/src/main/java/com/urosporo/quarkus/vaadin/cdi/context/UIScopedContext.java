@@ -19,13 +19,14 @@ import java.lang.annotation.Annotation;
 import java.util.Collections;
 
 import javax.enterprise.context.spi.Contextual;
-import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.context.spi.CreationalContext;
 
 import com.urosporo.quarkus.vaadin.cdi.AbstractContext;
 import com.urosporo.quarkus.vaadin.cdi.BeanProvider;
 import com.urosporo.quarkus.vaadin.cdi.ContextualStorage;
 import com.urosporo.quarkus.vaadin.cdi.annotation.UIScoped;
 import com.urosporo.quarkus.vaadin.cdi.annotation.VaadinSessionScoped;
+import com.vaadin.flow.component.ComponentUtil;
 import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.server.VaadinSession;
@@ -35,24 +36,126 @@ import io.quarkus.arc.Unremovable;
 
 /**
  * UIScopedContext is the context for {@link UIScoped @UIScoped} beans.
+ * <p>
+ * The storage of a UI is attached to the UI itself, so resolving an instance takes the current UI, its storage and the array slot of the bean,
+ * without any allocation. The session scoped {@link ContextualStorageManager} only keeps track of the storages, to destroy them with the
+ * session.
  */
 public class UIScopedContext extends AbstractContext {
 
-    private ContextualStorageManager contextualStorageManager;
+    private final LazyReference<ContextualStorageManager> contextualStorageManager = new LazyReference<>(
+            () -> BeanProvider.getContextualReference(Arc.container().beanManager(), ContextualStorageManager.class, false));
 
     @Override
     protected ContextualStorage getContextualStorage(final Contextual<?> contextual, final boolean createIfNotExist) {
-        init();
-        return this.contextualStorageManager.getContextualStorage(createIfNotExist);
+
+        final UI ui = UI.getCurrent();
+        return ui == null ? null : getContextualStorage(ui, createIfNotExist);
+    }
+
+    private ContextualStorage getContextualStorage(final UI ui, final boolean createIfNotExist) {
+
+        final VaadinSession session = ui.getSession();
+        if (session != null && !session.hasLock()) {
+            return getUnlockedContextualStorage(ui, session, createIfNotExist);
+        }
+
+        final ContextualStorage storage = ComponentUtil.getData(ui, ContextualStorage.class);
+        if (storage != null || !createIfNotExist) {
+            return storage;
+        }
+        return newContextualStorage(ui, this.contextualStorageManager.get());
     }
 
-    private synchronized void init() {
-        if (contextualStorageManager == null) {
-            BeanManager beanManager = Arc.container().beanManager();
-            this.contextualStorageManager = BeanProvider.getContextualReference(beanManager, ContextualStorageManager.class, false);
+    /**
+     * Without the session lock, the data of the UI isn't touched. The storage is taken from the snapshot running in the current thread, else
+     * looked up in the concurrent storages of the session in the concurrent mode. Otherwise the storage is looked up and created with the lock,
+     * as it registers a detach listener, unless a snapshot is running: it never takes the lock.
+     */
+    private ContextualStorage getUnlockedContextualStorage(final UI ui, final VaadinSession session, final boolean createIfNotExist) {
+
+        final ContextualStorage snapshotStorage = VaadinContextSnapshot.getUIStorage(ui);
+        if (snapshotStorage != null) {
+            return snapshotStorage;
+        }
+        if (AbstractContextualStorageManager.isConcurrentMode()) {
+            final ContextualStorage storage = this.contextualStorageManager.get().getContextualStorage(false);
+            if (storage != null || !createIfNotExist) {
+                return storage;
+            }
+        } else if (VaadinContextSnapshot.isRunning(session)) {
+            if (createIfNotExist) {
+                throw VaadinContextSnapshot.newMissingStorageException("@UIScoped storage of the UI");
+            }
+            return null;
+        }
+        session.lock();
+        try {
+            return getContextualStorage(ui, createIfNotExist);
+        } finally {
+            session.unlock();
         }
     }
 
+    /**
+     * @param ui
+     *            any UI, its session has to be locked
+     * @return the storage of the UI or <code>null</code> if there is none
+     */
+    static ContextualStorage findContextualStorage(final UI ui) {
+
+        return ComponentUtil.getData(ui, ContextualStorage.class);
+    }
+
+    /**
+     * @param ui
+     *            the current UI, its session has to be locked
+     * @return the storage of the UI, created if there is none yet
+     */
+    static ContextualStorage getContextualStorage(final UI ui) {
+
+        final ContextualStorage storage = ComponentUtil.getData(ui, ContextualStorage.class);
+        if (storage != null) {
+            return storage;
+        }
+        return newContextualStorage(ui, BeanProvider.getContextualReference(Arc.container().beanManager(), ContextualStorageManager.class, false));
+    }
+
+    private static ContextualStorage newContextualStorage(final UI ui, final ContextualStorageManager contextualStorageManager) {
+
+        final ContextualStorage storage = contextualStorageManager.getContextualStorage(true);
+        ComponentUtil.setData(ui, ContextualStorage.class, storage);
+        return storage;
+    }
+
+    @Override
+    public <T> T get(final Contextual<T> bean) {
+
+        final ContextualStorage storage = getContextualStorage(getCurrentUI(), false);
+        return storage == null ? null : storage.getContextualInstance(bean);
+    }
+
+    @Override
+    public <T> T get(final Contextual<T> bean, final CreationalContext<T> creationalContext) {
+
+        if (creationalContext == null) {
+            return get(bean);
+        }
+        return getContextualStorage(getCurrentUI(), true).createContextualInstance(bean, creationalContext);
+    }
+
+    /**
+     * Same as {@link #checkActive()}, but with a single lookup of the current UI. A UI is only current with its session.
+     */
+    private UI getCurrentUI() {
+
+        final UI ui = UI.getCurrent();
+        if (ui == null) {
+            throw newContextNotActiveException();
+        }
+        return ui;
+    }
+
     @Override
     public Class<? extends Annotation> getScope() {
         return UIScoped.class;
@@ -60,6 +163,14 @@ public class UIScopedContext extends AbstractContext {
 
     @Override
     public boolean isActive() {
+        return isUIActive();
+    }
+
+    /**
+     * @return whether the UI context is active, i.e. there is a current session and UI
+     */
+    public static boolean isUIActive() {
+
         return VaadinSession.getCurrent() != null && UI.getCurrent() != null;
     }
 
@@ -70,8 +181,9 @@ public class UIScopedContext extends AbstractContext {
         public ContextualStorageManager() {
 
             // Session lock checked in VaadinSessionScopedContext while
-            // getting the session attribute of this beans context.
-            super(false);
+            // getting the session attribute of this beans context, unless
+            // in the concurrent mode.
+            super(isConcurrentMode(), UIScoped.class);
         }
 
         public ContextualStorage getContextualStorage(final boolean createIfNotExist) {
@@ -89,20 +201,21 @@ public class UIScopedContext extends AbstractContext {
 
         private void destroy(final DetachEvent event) {
 
-            final int uiId = event.getUI().getUIId();
-            super.destroy(uiId);
+            final UI ui = event.getUI();
+            ComponentUtil.setData(ui, ContextualStorage.class, null);
+            super.destroy(ui.getUIId());
         }
     }
 
     @Override
     public void destroy() {
-        init();
         destroyAllActive();
     }
 
     @Override
     public ContextState getState() {
-        init();
-        return Collections::emptyMap; // FIXME
+
+        final UI ui = UI.getCurrent();
+        return newContextState(Collections.singletonList(ui == null ? null : getContextualStorage(ui, false)));
     }
 }
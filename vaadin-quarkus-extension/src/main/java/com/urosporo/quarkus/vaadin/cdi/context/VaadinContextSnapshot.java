@@ -0,0 +1,252 @@
+package com.urosporo.quarkus.vaadin.cdi.context;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import javax.enterprise.context.ContextNotActiveException;
+
+import com.urosporo.quarkus.vaadin.cdi.ContextualStorage;
+import com.urosporo.quarkus.vaadin.cdi.annotation.RouteScoped;
+import com.urosporo.quarkus.vaadin.cdi.annotation.UIScoped;
+import com.urosporo.quarkus.vaadin.cdi.annotation.VaadinSessionScoped;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.internal.CurrentInstance;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * The Vaadin contexts of the current thread, to activate them in another thread.
+ * <p>
+ * The Vaadin scopes are bound to the current service, session and UI, which Vaadin keeps in thread locals. A snapshot holds references to them
+ * and to the storages of the {@link VaadinSessionScoped @VaadinSessionScoped} and {@link UIScoped @UIScoped} beans, so a task running in a worker
+ * thread resolves the same instances as the request thread, without taking the session lock. Taken while the session is locked, the snapshot
+ * creates these storages if they are missing. It also holds the {@link RouteScoped @RouteScoped} storages of the UI, created for the owners in
+ * the active route chain.
+ * <p>
+ * The session isn't locked while a task runs: the instances it shares with the request threads have to be thread safe, and changes to the UI
+ * still have to be applied by {@link UI#access(com.vaadin.flow.server.Command)}. A task never takes the session lock: resolving a bean whose
+ * storage isn't part of the snapshot fails with a {@link ContextNotActiveException}, unless the storages are concurrent, see
+ * {@link AbstractContextualStorageManager#setConcurrentMode(boolean)}.
+ * <p>
+ * With MicroProfile Context Propagation, {@link VaadinThreadContextProvider} takes the snapshots for the managed executors.
+ *
+ * @since 1.1.0
+ */
+public final class VaadinContextSnapshot {
+
+    private static final VaadinContextSnapshot EMPTY = new VaadinContextSnapshot(null, null, null, null, null, Collections.emptyMap());
+
+    private final VaadinService service;
+
+    private final VaadinSession session;
+
+    private final UI ui;
+
+    private final ContextualStorage sessionStorage;
+
+    private final ContextualStorage uiStorage;
+
+    private final Map<Class<?>, ContextualStorage> routeStorages;
+
+    private VaadinContextSnapshot(final VaadinService service, final VaadinSession session, final UI ui, final ContextualStorage sessionStorage,
+            final ContextualStorage uiStorage, final Map<Class<?>, ContextualStorage> routeStorages) {
+
+        this.service = service;
+        this.session = session;
+        this.ui = ui;
+        this.sessionStorage = sessionStorage;
+        this.uiStorage = uiStorage;
+        this.routeStorages = routeStorages;
+    }
+
+    /**
+     * Takes a snapshot of the Vaadin contexts of the current thread, e.g. a request thread or a thread running another snapshot.
+     *
+     * @return the snapshot
+     */
+    public static VaadinContextSnapshot capture() {
+
+        final VaadinService service = VaadinService.getCurrent();
+        final VaadinSession session = VaadinSession.getCurrent();
+        final UI ui = UI.getCurrent();
+        if (service == null && session == null && ui == null) {
+            return EMPTY;
+        }
+
+        ContextualStorage sessionStorage = null;
+        ContextualStorage uiStorage = null;
+        Map<Class<?>, ContextualStorage> routeStorages = Collections.emptyMap();
+        if (session != null) {
+            if (session.hasLock()) {
+                sessionStorage = VaadinSessionScopedContext.getContextualStorage(session, true);
+                if (ui != null) {
+                    uiStorage = UIScopedContext.getContextualStorage(ui);
+                    routeStorages = RouteScopedContext.getActiveContextualStorages(ui, uiStorage);
+                }
+            } else {
+                sessionStorage = getSessionStorage(session);
+                if (ui != null) {
+                    uiStorage = getUIStorage(ui);
+                    routeStorages = getRouteStorages(ui);
+                }
+            }
+        }
+        return new VaadinContextSnapshot(service, session, ui, sessionStorage, uiStorage, routeStorages);
+    }
+
+    /**
+     * @return a snapshot without any Vaadin context
+     */
+    public static VaadinContextSnapshot empty() {
+
+        return EMPTY;
+    }
+
+    /**
+     * @param task
+     *            the task to run with the contexts of this snapshot
+     * @return the task running with the contexts of this snapshot
+     */
+    public Runnable wrap(final Runnable task) {
+
+        return () -> {
+
+            final Map<Class<?>, CurrentInstance> previous = begin();
+            try {
+                task.run();
+            } finally {
+                end(previous);
+            }
+        };
+    }
+
+    /**
+     * @param <T>
+     *            the result type of the task
+     * @param task
+     *            the task to call with the contexts of this snapshot
+     * @return the task called with the contexts of this snapshot
+     */
+    public <T> Callable<T> wrap(final Callable<T> task) {
+
+        return () -> {
+
+            final Map<Class<?>, CurrentInstance> previous = begin();
+            try {
+                return task.call();
+            } finally {
+                end(previous);
+            }
+        };
+    }
+
+    /**
+     * @param executor
+     *            the executor to run the tasks
+     * @return an executor running each task with the contexts of this snapshot
+     */
+    public Executor wrap(final Executor executor) {
+
+        return command -> executor.execute(wrap(command));
+    }
+
+    /**
+     * Activates the contexts of this snapshot in the current thread, replacing the current ones.
+     *
+     * @return the previous current instances, to pass to {@link #end(Map)}
+     */
+    Map<Class<?>, CurrentInstance> begin() {
+
+        final Map<Class<?>, CurrentInstance> previous = CurrentInstance.getInstances();
+        CurrentInstance.clearAll();
+        if (this.service != null) {
+            CurrentInstance.set(VaadinService.class, this.service);
+        }
+        if (this.session != null) {
+            CurrentInstance.set(VaadinSession.class, this.session);
+        }
+        if (this.ui != null) {
+            CurrentInstance.set(UI.class, this.ui);
+        }
+        if (this.sessionStorage != null || this.uiStorage != null) {
+            CurrentInstance.set(VaadinContextSnapshot.class, this);
+        }
+        return previous;
+    }
+
+    /**
+     * Restores the contexts which were current before {@link #begin()}.
+     *
+     * @param previous
+     *            the current instances returned by {@link #begin()}
+     */
+    static void end(final Map<Class<?>, CurrentInstance> previous) {
+
+        CurrentInstance.clearAll();
+        CurrentInstance.restoreInstances(previous);
+    }
+
+    /**
+     * @param session
+     *            the current session
+     * @return the session storage of the snapshot running in the current thread, or <code>null</code> if there is none for the session
+     */
+    static ContextualStorage getSessionStorage(final VaadinSession session) {
+
+        final VaadinContextSnapshot snapshot = CurrentInstance.get(VaadinContextSnapshot.class);
+        return snapshot == null || snapshot.session != session ? null : snapshot.sessionStorage;
+    }
+
+    /**
+     * @param ui
+     *            the current UI
+     * @return the UI storage of the snapshot running in the current thread, or <code>null</code> if there is none for the UI
+     */
+    static ContextualStorage getUIStorage(final UI ui) {
+
+        final VaadinContextSnapshot snapshot = CurrentInstance.get(VaadinContextSnapshot.class);
+        return snapshot == null || snapshot.ui != ui ? null : snapshot.uiStorage;
+    }
+
+    /**
+     * @param ui
+     *            the current UI
+     * @param owner
+     *            the owner of the route storage
+     * @return the route storage of the owner in the snapshot running in the current thread, or <code>null</code> if there is none for the UI
+     */
+    static ContextualStorage getRouteStorage(final UI ui, final Class<?> owner) {
+
+        return getRouteStorages(ui).get(owner);
+    }
+
+    private static Map<Class<?>, ContextualStorage> getRouteStorages(final UI ui) {
+
+        final VaadinContextSnapshot snapshot = CurrentInstance.get(VaadinContextSnapshot.class);
+        return snapshot == null || snapshot.ui != ui ? Collections.emptyMap() : snapshot.routeStorages;
+    }
+
+    /**
+     * @param session
+     *            the current session
+     * @return whether a snapshot of the session is running in the current thread, which must not take the session lock
+     */
+    static boolean isRunning(final VaadinSession session) {
+
+        final VaadinContextSnapshot snapshot = CurrentInstance.get(VaadinContextSnapshot.class);
+        return snapshot != null && snapshot.session == session;
+    }
+
+    /**
+     * @param storage
+     *            the description of the missing storage
+     * @return the exception thrown by a snapshot task resolving a bean whose storage isn't part of the snapshot
+     */
+    static ContextNotActiveException newMissingStorageException(final String storage) {
+
+        return new ContextNotActiveException("The " + storage + " is not part of the Vaadin context snapshot of the current thread."
+                + " A snapshot task doesn't take the session lock to create it, unless the storages are concurrent.");
+    }
+}
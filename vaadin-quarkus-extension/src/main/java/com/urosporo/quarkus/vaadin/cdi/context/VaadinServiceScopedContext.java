@@ -37,15 +37,12 @@ import io.quarkus.arc.Unremovable;
  */
 public class VaadinServiceScopedContext extends AbstractContext {
 
-    private ContextualStorageManager contextManager;
+    private final LazyReference<ContextualStorageManager> contextManager = new LazyReference<>(
+            () -> BeanProvider.getContextualReference(Arc.container().beanManager(), ContextualStorageManager.class, false));
 
     @Override
     protected ContextualStorage getContextualStorage(final Contextual<?> contextual, final boolean createIfNotExist) {
 
-        if (this.contextManager == null) {
-            this.contextManager = BeanProvider.getContextualReference(Arc.container().beanManager(), ContextualStorageManager.class, false);
-        }
-
         final QuarkusVaadinServlet servlet = (QuarkusVaadinServlet) VaadinServlet.getCurrent();
         String servletName;
         if (servlet != null) {
@@ -53,7 +50,7 @@ public class VaadinServiceScopedContext extends AbstractContext {
         } else {
             servletName = QuarkusVaadinServlet.getCurrentServletName().get();
         }
-        return this.contextManager.getContextualStorage(servletName, createIfNotExist);
+        return this.contextManager.get().getContextualStorage(servletName, createIfNotExist);
     }
 
     @Override
@@ -73,7 +70,7 @@ public class VaadinServiceScopedContext extends AbstractContext {
 
         public ContextualStorageManager() {
 
-            super(true);
+            super(true, VaadinServiceScoped.class);
         }
 
     }
@@ -87,6 +84,9 @@ public class VaadinServiceScopedContext extends AbstractContext {
     @Override
     public ContextState getState() {
 
-        return Collections::emptyMap; // FIXME
+        if (!isActive()) {
+            return newContextState(Collections.emptyList());
+        }
+        return newContextState(Collections.singletonList(getContextualStorage(null, false)));
     }
 }
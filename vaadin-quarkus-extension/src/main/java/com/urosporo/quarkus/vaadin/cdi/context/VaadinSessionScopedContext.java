@@ -1,5 +1,6 @@
 package com.urosporo.quarkus.vaadin.cdi.context;
 
+import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.util.Collections;
 
@@ -7,10 +8,12 @@ import javax.enterprise.context.spi.Contextual;
 import javax.enterprise.inject.spi.BeanManager;
 
 import com.urosporo.quarkus.vaadin.cdi.AbstractContext;
+import com.urosporo.quarkus.vaadin.cdi.ContextTeardown;
 import com.urosporo.quarkus.vaadin.cdi.ContextUtils;
 import com.urosporo.quarkus.vaadin.cdi.ContextualStorage;
 import com.urosporo.quarkus.vaadin.cdi.annotation.VaadinSessionScoped;
 import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.WrappedSession;
 
 import io.quarkus.arc.Arc;
 
@@ -18,25 +21,110 @@ public class VaadinSessionScopedContext extends AbstractContext {
 
     private static final String ATTRIBUTE_NAME = VaadinSessionScopedContext.class.getName();
 
+    /**
+     * The attribute of the wrapped session holding the storage in the concurrent mode, as the attributes of the wrapped session are readable
+     * without the session lock. It goes away with the wrapped session.
+     */
+    private static final String CONCURRENT_ATTRIBUTE_NAME = ATTRIBUTE_NAME + ".concurrent";
+
     @Override
     protected ContextualStorage getContextualStorage(final Contextual<?> contextual, final boolean createIfNotExist) {
 
-        final VaadinSession session = VaadinSession.getCurrent();
-        ContextualStorage storage = findContextualStorage(session);
+        return getContextualStorage(VaadinSession.getCurrent(), createIfNotExist);
+    }
+
+    static ContextualStorage getContextualStorage(final VaadinSession session, final boolean createIfNotExist) {
+
+        if (!session.hasLock()) {
+            // propagated to a worker thread
+            final ContextualStorage storage = VaadinContextSnapshot.getSessionStorage(session);
+            if (storage != null) {
+                return storage;
+            }
+            if (AbstractContextualStorageManager.isConcurrentMode()) {
+                return getConcurrentContextualStorage(session, createIfNotExist);
+            }
+            if (VaadinContextSnapshot.isRunning(session)) {
+                if (createIfNotExist) {
+                    throw VaadinContextSnapshot.newMissingStorageException("@VaadinSessionScoped storage of the session");
+                }
+                return null;
+            }
+            // the attribute is only accessed with the lock
+            session.lock();
+            try {
+                return getContextualStorage(session, createIfNotExist);
+            } finally {
+                session.unlock();
+            }
+        }
+
+        // session lock is checked inside
+        ContextualStorage storage = (ContextualStorage) session.getAttribute(ATTRIBUTE_NAME);
         if (storage == null && createIfNotExist) {
-            storage = new ContextualStorage(getBeanManager(), false);
+            storage = new ContextualStorage(getBeanManager(), AbstractContextualStorageManager.isConcurrentMode(), VaadinSessionScoped.class);
             session.setAttribute(ATTRIBUTE_NAME, storage);
         }
+        if (storage != null && AbstractContextualStorageManager.isConcurrentMode()) {
+            publishConcurrentStorage(session, storage);
+        }
         return storage;
     }
 
-    private static ContextualStorage findContextualStorage(final VaadinSession session) {
+    /**
+     * Makes the storage readable without the lock, also after a deserialization of the session, which drops the storage of the holder.
+     */
+    private static void publishConcurrentStorage(final VaadinSession session, final ContextualStorage storage) {
 
-        // session lock is checked inside
-        return (ContextualStorage) session.getAttribute(ATTRIBUTE_NAME);
+        final ConcurrentStorageHolder holder = getConcurrentStorageHolder(session);
+        if (holder != null && holder.storage == storage) {
+            return;
+        }
+        final WrappedSession wrappedSession = session.getSession();
+        if (wrappedSession == null) {
+            return;
+        }
+        try {
+            wrappedSession.setAttribute(CONCURRENT_ATTRIBUTE_NAME, new ConcurrentStorageHolder(storage));
+        } catch (final IllegalStateException e) {
+            // invalidated, nothing is resolved without the lock anymore
+        }
     }
 
-    private BeanManager getBeanManager() {
+    private static ConcurrentStorageHolder getConcurrentStorageHolder(final VaadinSession session) {
+
+        final WrappedSession wrappedSession = session.getSession();
+        if (wrappedSession == null) {
+            return null;
+        }
+        try {
+            return (ConcurrentStorageHolder) wrappedSession.getAttribute(CONCURRENT_ATTRIBUTE_NAME);
+        } catch (final IllegalStateException e) {
+            // invalidated
+            return null;
+        }
+    }
+
+    /**
+     * Without the session lock, the storage is looked up in the attribute of the wrapped session. It's only created with the lock, once per
+     * session.
+     */
+    private static ContextualStorage getConcurrentContextualStorage(final VaadinSession session, final boolean createIfNotExist) {
+
+        final ConcurrentStorageHolder holder = getConcurrentStorageHolder(session);
+        final ContextualStorage storage = holder == null ? null : holder.storage;
+        if (storage != null || !createIfNotExist) {
+            return storage;
+        }
+        session.lock();
+        try {
+            return getContextualStorage(session, true);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    private static BeanManager getBeanManager() {
 
         return Arc.container().beanManager();
     }
@@ -55,9 +143,14 @@ public class VaadinSessionScopedContext extends AbstractContext {
 
     public static void destroy(final VaadinSession session) {
 
-        final ContextualStorage storage = findContextualStorage(session);
+        final ContextualStorage storage = getContextualStorage(session, false);
+        final ConcurrentStorageHolder holder = getConcurrentStorageHolder(session);
+        if (holder != null) {
+            // the wrapped session might be invalidated already, so the attribute isn't removed
+            holder.storage = null;
+        }
         if (storage != null) {
-            AbstractContext.destroyAllActive(storage);
+            ContextTeardown.destroy(storage, session);
         }
     }
 
@@ -85,6 +178,22 @@ public class VaadinSessionScopedContext extends AbstractContext {
     @Override
     public ContextState getState() {
 
-        return Collections::emptyMap; // FIXME
+        final VaadinSession session = VaadinSession.getCurrent();
+        return newContextState(Collections.singletonList(session == null ? null : getContextualStorage(session, false)));
+    }
+
+    /**
+     * Serialized with the wrapped session, but without the storage: it's serialized with the attributes of the Vaadin session already.
+     */
+    private static final class ConcurrentStorageHolder implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient volatile ContextualStorage storage;
+
+        private ConcurrentStorageHolder(final ContextualStorage storage) {
+
+            this.storage = storage;
+        }
     }
 }
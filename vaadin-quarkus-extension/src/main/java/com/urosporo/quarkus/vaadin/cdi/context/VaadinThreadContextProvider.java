@@ -0,0 +1,49 @@
+package com.urosporo.quarkus.vaadin.cdi.context;
+
+import java.util.Map;
+
+import org.eclipse.microprofile.context.spi.ThreadContextProvider;
+import org.eclipse.microprofile.context.spi.ThreadContextSnapshot;
+
+import com.vaadin.flow.internal.CurrentInstance;
+
+/**
+ * Propagates the Vaadin contexts to the tasks of the MicroProfile Context Propagation executors, by {@link VaadinContextSnapshot snapshots}.
+ * Registered as a service, it's only loaded if MicroProfile Context Propagation is present.
+ *
+ * @since 1.1.0
+ */
+public class VaadinThreadContextProvider implements ThreadContextProvider {
+
+    /**
+     * The context type to name in {@code ManagedExecutor} and {@code ThreadContext} configurations.
+     */
+    public static final String VAADIN = "Vaadin";
+
+    @Override
+    public ThreadContextSnapshot currentContext(final Map<String, String> props) {
+
+        return toThreadContextSnapshot(VaadinContextSnapshot.capture());
+    }
+
+    @Override
+    public ThreadContextSnapshot clearedContext(final Map<String, String> props) {
+
+        return toThreadContextSnapshot(VaadinContextSnapshot.empty());
+    }
+
+    @Override
+    public String getThreadContextType() {
+
+        return VAADIN;
+    }
+
+    private static ThreadContextSnapshot toThreadContextSnapshot(final VaadinContextSnapshot snapshot) {
+
+        return () -> {
+
+            final Map<Class<?>, CurrentInstance> previous = snapshot.begin();
+            return () -> VaadinContextSnapshot.end(previous);
+        };
+    }
+}